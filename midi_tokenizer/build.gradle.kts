@@ -37,6 +37,17 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+// Micro-benchmarks live in src/test/java/.../bench and are run on demand:
+// ./gradlew benchmark -Pbench=ParserBenchmark
+tasks.register<JavaExec>("benchmark") {
+    description = "Runs a benchmark main class from the bench test package"
+    group = "verification"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.marcoalmeida.midi_tokenizer.bench." + (project.findProperty("bench") ?: "ParserBenchmark"))
+    jvmArgs("-Xmx2g")
+    project.findProperty("copies")?.let { args(it.toString()) }
+}
+
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
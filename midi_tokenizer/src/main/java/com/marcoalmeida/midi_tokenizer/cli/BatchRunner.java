@@ -0,0 +1,234 @@
+package com.marcoalmeida.midi_tokenizer.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs one per-file job over many files on virtual threads.
+ * Each file is read, transformed and written by its own virtual thread, so reads and writes
+ * of some files overlap the transform of others. Files in flight (read but not yet written)
+ * are bounded to keep memory and open handles in check, and transforms are limited to one
+ * per processor. A failing file is recorded and the batch carries on; so are files whose
+ * output path would collide with another file's, and neither of those is written.
+ */
+final class BatchRunner {
+
+    /**
+     * CPU-bound step: turns the bytes of one input file into the bytes of its output file.
+     */
+    @FunctionalInterface
+    interface Transform {
+        Result apply(Path input, ByteBuffer data) throws Exception;
+    }
+
+    /**
+     * @param output Output file contents
+     * @param events Number of events processed, for throughput
+     */
+    record Result(byte[] output, long events) {
+    }
+
+    record Failure(Path input, String message) {
+    }
+
+    /**
+     * Files to process and the directory whose layout is mirrored in the output.
+     */
+    record Inputs(Path root, List<Path> files) {
+    }
+
+    record Summary(int files, int succeeded, long events, long nanos, List<Failure> failures) {
+
+        double seconds() {
+            return nanos / 1e9;
+        }
+
+        /**
+         * One-line throughput report followed by one line per failed file.
+         */
+        String report(String verb, Path outputDirectory) {
+            double seconds = Math.max(seconds(), 1e-9);
+            StringBuilder sb = new StringBuilder(String.format(Locale.ROOT,
+                "%s %d of %d file(s) into %s in %.2f s (%.1f files/s, %.0f events/s)",
+                verb, succeeded, files, outputDirectory, seconds(), succeeded / seconds, events / seconds));
+            if (!failures.isEmpty()) {
+                sb.append(String.format("%nFailed (%d):", failures.size()));
+                for (Failure failure : failures) {
+                    sb.append(String.format("%n  %s: %s", failure.input(), failure.message()));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private final int maxInFlight;
+    private final Semaphore transforms = new Semaphore(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * @param maxInFlight Files read but not yet written at any time
+     */
+    BatchRunner(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1, got " + maxInFlight);
+        }
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Files under a directory (recursively) with one of the given extensions, or the files
+     * matching a glob such as {@code corpus/**}{@code /*.mid}, sorted by path.
+     * Glob matches are not filtered by extension; their root is the deepest directory
+     * of the pattern without glob characters. Unlike a plain {@link PathMatcher} glob,
+     * {@code **}{@code /} also matches no directory at all, so {@code corpus/**}{@code /*.mid}
+     * includes the files directly in {@code corpus}.
+     */
+    static Inputs resolveInputs(String input, List<String> extensions) throws IOException {
+        Path directory = Path.of(input);
+        if (Files.isDirectory(directory)) {
+            return new Inputs(directory, listFiles(directory, path -> hasExtension(path, extensions)));
+        }
+
+        // Walk from the deepest directory without glob characters
+        Path root = Path.of("");
+        Path pattern = Path.of(input);
+        for (Path part : pattern) {
+            if (part.toString().matches(".*[*?\\[{].*")) {
+                break;
+            }
+            root = root.resolve(part);
+        }
+        if (pattern.isAbsolute()) {
+            root = pattern.getRoot().resolve(root);
+        }
+        if (!Files.isDirectory(root)) {
+            return new Inputs(root, List.of());
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + optionalDirectories(input));
+        return new Inputs(root, listFiles(root, matcher::matches));
+    }
+
+    /**
+     * Rewrite each {@code **}{@code /} as a group that may also be empty. Patterns that already
+     * use groups are left alone, since groups cannot nest.
+     */
+    private static String optionalDirectories(String glob) {
+        return glob.contains("{") ? glob : glob.replace("**/", "{**/,}");
+    }
+
+    /**
+     * Output path for {@code input}: its path relative to {@code inputRoot}, under
+     * {@code outputDirectory}, with the extension replaced.
+     */
+    static Path outputPath(Path input, Path inputRoot, Path outputDirectory, String extension) {
+        Path relative = inputRoot.relativize(input);
+        String name = relative.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        String basename = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        Path parent = relative.getParent();
+        return outputDirectory.resolve(parent != null ? parent.resolve(basename + extension) : Path.of(basename + extension));
+    }
+
+    /**
+     * Transform every input and write the result under {@code outputDirectory}.
+     */
+    Summary run(Inputs inputs, Path outputDirectory, String outputExtension, Transform transform)
+            throws InterruptedException {
+        Path inputRoot = inputs.root().toAbsolutePath();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicLong events = new AtomicLong();
+        ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+        // Inputs that differ only in extension (song.mid, song.midi) would overwrite each other's output
+        Map<Path, List<Path>> claims = new HashMap<>();
+        for (Path input : inputs.files()) {
+            Path output = outputPath(input.toAbsolutePath(), inputRoot, outputDirectory, outputExtension);
+            claims.computeIfAbsent(output, key -> new ArrayList<>()).add(input);
+        }
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Path input : inputs.files()) {
+                Path absolute = input.toAbsolutePath();
+                Path output = outputPath(absolute, inputRoot, outputDirectory, outputExtension);
+                List<Path> claimants = claims.get(output);
+                if (claimants.size() > 1) {
+                    failures.add(new Failure(input, "Output " + output + " is also the output of "
+                        + claimants.stream().filter(other -> other != input).map(Path::toString)
+                            .collect(Collectors.joining(", "))));
+                    continue;
+                }
+
+                // Submitting only when a slot is free keeps the number of live threads bounded too
+                inFlight.acquire();
+                executor.submit(() -> {
+                    try {
+                        Result result = process(absolute, output, transform);
+                        events.addAndGet(result.events());
+                        succeeded.incrementAndGet();
+                    } catch (Throwable e) {
+                        // Errors too (e.g. StackOverflowError on a pathological file): only this file fails
+                        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                        failures.add(new Failure(input, message));
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long nanos = System.nanoTime() - start;
+
+        List<Failure> sorted = new ArrayList<>(failures);
+        sorted.sort(Comparator.comparing(Failure::input));
+        return new Summary(inputs.files().size(), succeeded.get(), events.get(), nanos, sorted);
+    }
+
+    private Result process(Path input, Path output, Transform transform) throws Exception {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(input));
+
+        Result result;
+        transforms.acquire();
+        try {
+            result = transform.apply(input, data);
+        } finally {
+            transforms.release();
+        }
+
+        Path parent = output.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(output, result.output());
+        return result;
+    }
+
+    private static List<Path> listFiles(Path root, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).filter(filter).sorted().toList();
+        }
+    }
+
+    private static boolean hasExtension(Path path, List<String> extensions) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return extensions.stream().anyMatch(name::endsWith);
+    }
+}
@@ -1,18 +1,30 @@
 package com.marcoalmeida.midi_tokenizer.cli;
 
+import com.marcoalmeida.midi_tokenizer.io.MidiOutputCache;
+import com.marcoalmeida.midi_tokenizer.io.MtokReader;
+import com.marcoalmeida.midi_tokenizer.io.MtokWriter;
+import com.marcoalmeida.midi_tokenizer.io.ParseCache;
 import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
 import com.marcoalmeida.midi_tokenizer.strudel.ConversionOptions;
+import com.marcoalmeida.midi_tokenizer.strudel.MeasureRange;
+import com.marcoalmeida.midi_tokenizer.strudel.OutputBudget;
 import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+import com.marcoalmeida.midi_tokenizer.strudel.TrackPatternCache;
 import org.springframework.shell.standard.ShellComponent;
 import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Spring Shell commands for parsing MIDI files.
@@ -20,12 +32,21 @@ import java.nio.file.Path;
 @ShellComponent
 public class MidiShellCommands {
     
+    private static final String BATCH_CONCURRENCY = "64";
+    private static final List<String> MIDI_EXTENSIONS = List.of(".mid", ".midi");
+
     private final MidiParser parser;
     private final StrudelConverter strudelConverter;
+    private final ParseCache parseCache;
+    private final MidiOutputCache outputCache;
+    private MidiWatcher watcher;
 
-    public MidiShellCommands(MidiParser parser, StrudelConverter strudelConverter) {
+    public MidiShellCommands(MidiParser parser, StrudelConverter strudelConverter, ParseCache parseCache,
+                             MidiOutputCache outputCache) {
         this.parser = parser;
         this.strudelConverter = strudelConverter;
+        this.parseCache = parseCache;
+        this.outputCache = outputCache;
     }
     
     /**
@@ -33,17 +54,21 @@ public class MidiShellCommands {
      * 
      * @param input Input MIDI file path
      * @param output Optional output file path (defaults to stdout)
-     * @param format Output format (json or text) - currently only json is supported
+     * @param format Output format: json, or bin for the compact .mtok binary format (requires output)
      * @param time Time format (seconds or ticks)
      * @param includeMeta Whether to include meta events
+     * @param parallel Decode tracks in parallel
+     * @param compact Write compact single-line JSON instead of pretty-printed
      */
     @ShellMethod(key = "parse", value = "Parse a MIDI file and output JSON representation")
     public String parse(
             @ShellOption(help = "Input MIDI file path") String input,
             @ShellOption(help = "Output file path (optional, defaults to stdout)", defaultValue = ShellOption.NULL) String output,
-            @ShellOption(help = "Output format: json or text", defaultValue = "json") String format,
+            @ShellOption(help = "Output format: json or bin (.mtok binary, requires --output)", defaultValue = "json") String format,
             @ShellOption(help = "Time format: seconds or ticks", defaultValue = "seconds") String time,
-            @ShellOption(help = "Include meta events", defaultValue = "true") boolean includeMeta
+            @ShellOption(help = "Include meta events", defaultValue = "true") boolean includeMeta,
+            @ShellOption(help = "Decode tracks in parallel (large multi-track files)", defaultValue = "false") boolean parallel,
+            @ShellOption(help = "Write compact JSON without indentation", defaultValue = "false") boolean compact
     ) {
         try {
             File inputFile = new File(input);
@@ -58,15 +83,25 @@ public class MidiShellCommands {
             
             boolean includeTimeSeconds = time.equalsIgnoreCase("seconds");
             
-            String json = parser.parseToJson(inputFile, includeTimeSeconds, includeMeta);
+            if (format.equalsIgnoreCase("bin")) {
+                if (output == null) {
+                    return "Error: --format bin requires --output (e.g. --output song" + MtokReader.FILE_EXTENSION + ")";
+                }
+                new MtokWriter().write(parser.parse(inputFile, includeTimeSeconds, includeMeta, parallel), Path.of(output));
+                return "Successfully wrote output to: " + output;
+            }
+            if (!format.equalsIgnoreCase("json")) {
+                return "Error: Unsupported format: " + format + " (expected json or bin)";
+            }
             
             if (output != null) {
-                try (FileWriter writer = new FileWriter(output)) {
-                    writer.write(json);
+                // Stream straight to the file as UTF-8, without building the document in memory
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Path.of(output)), 64 * 1024)) {
+                    parser.parseToJson(inputFile, out, includeTimeSeconds, includeMeta, parallel, !compact);
                 }
                 return "Successfully wrote output to: " + output;
             } else {
-                return json;
+                return parser.parseToJson(inputFile, includeTimeSeconds, includeMeta, parallel, !compact);
             }
             
         } catch (Exception e) {
@@ -90,36 +125,52 @@ public class MidiShellCommands {
                 
                 Optional:
                   --output        Path to write JSON output (default: stdout)
-                  --format        Output format: json (default: json)
+                  --format        Output format: json or bin (compact .mtok binary, needs --output) (default: json)
                   --time          Time format: seconds or ticks (default: seconds)
                   --include-meta  Include meta events (default: true)
+                  --parallel      Decode tracks in parallel for large multi-track files (default: false)
+                  --compact       Write compact JSON without indentation (default: false)
                 
                 Examples:
                   parse --input song.mid
                   parse --input song.mid --output song.json
                   parse --input song.mid --time ticks
                   parse --input song.mid --include-meta false
+                  parse --input score.mid --parallel
+                  parse --input score.mid --output score.json --compact
+                  parse --input score.mid --output score.mtok --format bin
                 """;
     }
 
     /**
      * Convert a MIDI file to Strudel pattern.
      *
-     * @param input       Input MIDI (.mid) or JSON (.json) file path
+     * @param input       Input MIDI (.mid), JSON (.json) or token (.mtok) file path
      * @param output      Optional output file path (defaults to input basename with .txt)
      * @param tempo       Optional tempo override in BPM
      * @param track       Optional track index to convert (null = all non-empty tracks, number = specific track)
-     * @param quantize    Optional quantization level (auto-detected from time signature if not provided)
+     * @param quantize    Optional quantization level, "auto" to search for the best level for the file,
+     *                    or "auto-track" for each track (default from time signature if not provided)
      * @param noPolyphony Disable polyphonic conversion (use simpler single-note mode)
+     * @param parallel    Decode MIDI tracks in parallel
+     * @param maxBytes    Optional limit on the size of the note patterns; dense measures are simplified to fit
+     * @param maxTokens   Optional limit on the notes and rests of the patterns, instead of {@code maxBytes}
+     * @param fromMeasure Optional first measure to convert, counted from 1 (default: the first)
+     * @param toMeasure   Optional last measure to convert (default: the last)
      */
     @ShellMethod(key = "convert", value = "Convert MIDI file to Strudel pattern")
     public String convert(
-            @ShellOption(help = "Path to MIDI or JSON file") String input,
+            @ShellOption(help = "Path to MIDI, JSON or .mtok file") String input,
             @ShellOption(help = "Output file path (optional)", defaultValue = ShellOption.NULL) String output,
             @ShellOption(help = "Tempo override in BPM", defaultValue = ShellOption.NULL) Integer tempo,
             @ShellOption(help = "Track index to convert (omit for all non-empty tracks)", defaultValue = ShellOption.NULL) Integer track,
-            @ShellOption(help = "Quantization level (optional, auto-detected)", defaultValue = ShellOption.NULL) Integer quantize,
-            @ShellOption(value = "--no-polyphony", help = "Disable polyphonic conversion (use simple single-note mode)", defaultValue = "false") boolean noPolyphony
+            @ShellOption(help = "Quantization level, auto, or auto-track (optional, default from time signature)", defaultValue = ShellOption.NULL) String quantize,
+            @ShellOption(value = "--no-polyphony", help = "Disable polyphonic conversion (use simple single-note mode)", defaultValue = "false") boolean noPolyphony,
+            @ShellOption(help = "Decode MIDI tracks in parallel (large multi-track files)", defaultValue = "false") boolean parallel,
+            @ShellOption(help = "Limit the note patterns to this many bytes, simplifying dense measures (optional)", defaultValue = ShellOption.NULL) Integer maxBytes,
+            @ShellOption(help = "Limit the note patterns to this many notes and rests, simplifying dense measures (optional)", defaultValue = ShellOption.NULL) Integer maxTokens,
+            @ShellOption(help = "First measure to convert, counted from 1 (optional)", defaultValue = ShellOption.NULL) Integer fromMeasure,
+            @ShellOption(help = "Last measure to convert (optional)", defaultValue = ShellOption.NULL) Integer toMeasure
     ) {
         try {
             File inputFile = new File(input);
@@ -130,15 +181,19 @@ public class MidiShellCommands {
             String inputLower = inputFile.getName().toLowerCase();
             if (!inputLower.endsWith(".mid") && 
                 !inputLower.endsWith(".midi") && 
-                !inputLower.endsWith(".json")) {
-                return "Error: Input file must be a MIDI file (.mid, .midi) or JSON file (.json)";
+                !inputLower.endsWith(".json") &&
+                !inputLower.endsWith(MtokReader.FILE_EXTENSION)) {
+                return "Error: Input file must be a MIDI file (.mid, .midi), JSON file (.json) or token file (.mtok)";
             }
 
             // Create conversion options (Phase 1.9: with polyphony toggle)
-            ConversionOptions options = new ConversionOptions(tempo, track, quantize, !noPolyphony);
+            ConversionOptions options = ConversionOptions.of(tempo, track, quantize, !noPolyphony, parallel)
+                .withOutputBudget(OutputBudget.of(maxBytes, maxTokens))
+                .withMeasureRange(MeasureRange.of(fromMeasure, toMeasure));
 
             // Convert
-            String strudelPattern = strudelConverter.convert(input, options);
+            StrudelConverter.Conversion conversion = strudelConverter.convertWithReport(input, options);
+            String strudelPattern = conversion.content();
 
             // Determine output path
             String outputPath = output;
@@ -155,14 +210,12 @@ public class MidiShellCommands {
                     : basename + ".txt";
             }
 
-            // Write to file with UTF-8 BOM so Windows editors detect encoding correctly
-            byte[] bom = new byte[] {(byte)0xEF, (byte)0xBB, (byte)0xBF};
-            byte[] content = strudelPattern.getBytes(StandardCharsets.UTF_8);
-            byte[] withBom = new byte[bom.length + content.length];
-            System.arraycopy(bom, 0, withBom, 0, bom.length);
-            System.arraycopy(content, 0, withBom, bom.length, content.length);
-            Files.write(Path.of(outputPath), withBom);
-            return "Successfully wrote Strudel pattern to: " + outputPath;
+            Files.write(Path.of(outputPath), withBom(strudelPattern));
+            String message = "Successfully wrote Strudel pattern to: " + outputPath;
+            if (conversion.budgetReport() != null) {
+                message += System.lineSeparator() + conversion.budgetReport().summary();
+            }
+            return message;
 
         } catch (IllegalArgumentException e) {
             return "Error: " + e.getMessage();
@@ -170,4 +223,248 @@ public class MidiShellCommands {
             return "Error converting MIDI file: " + e.getMessage();
         }
     }
+
+    /**
+     * Parse every MIDI file under a directory (or matching a glob) into an output directory.
+     *
+     * @param input       Input directory (searched recursively for .mid/.midi) or glob
+     * @param output      Output directory; the input layout is mirrored
+     * @param format      Output format: json, or bin for .mtok
+     * @param time        Time format (seconds or ticks)
+     * @param includeMeta Whether to include meta events
+     * @param compact     Write compact single-line JSON instead of pretty-printed
+     * @param concurrency Files in flight at once
+     */
+    @ShellMethod(key = "parse-batch", value = "Parse all MIDI files in a directory or glob")
+    public String parseBatch(
+            @ShellOption(help = "Input directory or glob (e.g. 'corpus/**/*.mid')") String input,
+            @ShellOption(help = "Output directory") String output,
+            @ShellOption(help = "Output format: json or bin (.mtok binary)", defaultValue = "json") String format,
+            @ShellOption(help = "Time format: seconds or ticks", defaultValue = "seconds") String time,
+            @ShellOption(help = "Include meta events", defaultValue = "true") boolean includeMeta,
+            @ShellOption(help = "Write compact JSON without indentation", defaultValue = "false") boolean compact,
+            @ShellOption(help = "Files in flight at once", defaultValue = BATCH_CONCURRENCY) int concurrency
+    ) {
+        boolean binary = format.equalsIgnoreCase("bin");
+        if (!binary && !format.equalsIgnoreCase("json")) {
+            return "Error: Unsupported format: " + format + " (expected json or bin)";
+        }
+        boolean includeTimeSeconds = time.equalsIgnoreCase("seconds");
+
+        return runBatch("Parsed", input, output, concurrency, binary ? MtokReader.FILE_EXTENSION : ".json",
+            (file, data) -> {
+                MidiOutput parsed = parser.parse(data, file.getFileName().toString(), includeTimeSeconds, includeMeta);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                if (binary) {
+                    new MtokWriter().write(parsed, bytes);
+                } else {
+                    parser.writeJson(parsed, bytes, !compact);
+                }
+                return new BatchRunner.Result(bytes.toByteArray(), eventCount(parsed));
+            });
+    }
+
+    /**
+     * Convert every MIDI file under a directory (or matching a glob) to Strudel patterns.
+     *
+     * @param input       Input directory (searched recursively for .mid/.midi) or glob
+     * @param output      Output directory; the input layout is mirrored
+     * @param tempo       Optional tempo override in BPM
+     * @param quantize    Optional quantization level, "auto" or "auto-track" (default per file if not provided)
+     * @param noPolyphony Disable polyphonic conversion
+     * @param concurrency Files in flight at once
+     */
+    @ShellMethod(key = "convert-batch", value = "Convert all MIDI files in a directory or glob to Strudel patterns")
+    public String convertBatch(
+            @ShellOption(help = "Input directory or glob (e.g. 'corpus/**/*.mid')") String input,
+            @ShellOption(help = "Output directory") String output,
+            @ShellOption(help = "Tempo override in BPM", defaultValue = ShellOption.NULL) Integer tempo,
+            @ShellOption(help = "Quantization level, auto, or auto-track (optional, default from time signature)", defaultValue = ShellOption.NULL) String quantize,
+            @ShellOption(value = "--no-polyphony", help = "Disable polyphonic conversion (use simple single-note mode)", defaultValue = "false") boolean noPolyphony,
+            @ShellOption(help = "Files in flight at once", defaultValue = BATCH_CONCURRENCY) int concurrency
+    ) {
+        ConversionOptions options;
+        try {
+            options = ConversionOptions.of(tempo, null, quantize, !noPolyphony, false);
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+
+        return runBatch("Converted", input, output, concurrency, ".txt",
+            (file, data) -> {
+                MidiOutput parsed = parser.parse(data, file.getFileName().toString(), false, true);
+                String pattern = strudelConverter.convert(parsed, file.toString(), options);
+                return new BatchRunner.Result(withBom(pattern), eventCount(parsed));
+            });
+    }
+
+    private String runBatch(String verb, String input, String output, int concurrency, String outputExtension,
+                            BatchRunner.Transform transform) {
+        try {
+            BatchRunner runner = new BatchRunner(concurrency);
+            BatchRunner.Inputs inputs = BatchRunner.resolveInputs(input, MIDI_EXTENSIONS);
+            if (inputs.files().isEmpty()) {
+                return "Error: No MIDI files found for: " + input;
+            }
+            Path outputDirectory = Path.of(output);
+            return runner.run(inputs, outputDirectory, outputExtension, transform).report(verb, outputDirectory);
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Error: Batch interrupted";
+        } catch (Exception e) {
+            return "Error running batch: " + e.getMessage();
+        }
+    }
+
+    private static long eventCount(MidiOutput output) {
+        long events = 0;
+        for (TrackOutput track : output.getTracks()) {
+            events += track.eventCount();
+        }
+        return events;
+    }
+
+    /**
+     * UTF-8 with a BOM so Windows editors detect the encoding of pattern files correctly.
+     */
+    static byte[] withBom(String strudelPattern) {
+        byte[] bom = new byte[] {(byte)0xEF, (byte)0xBB, (byte)0xBF};
+        byte[] content = strudelPattern.getBytes(StandardCharsets.UTF_8);
+        byte[] withBom = new byte[bom.length + content.length];
+        System.arraycopy(bom, 0, withBom, 0, bom.length);
+        System.arraycopy(content, 0, withBom, bom.length, content.length);
+        return withBom;
+    }
+
+    /**
+     * Watch a directory and re-convert MIDI files in it whenever their contents change.
+     *
+     * @param dir         Directory to watch
+     * @param tempo       Optional tempo override in BPM
+     * @param quantize    Optional quantization level, "auto" or "auto-track" (default per file if not provided)
+     * @param noPolyphony Disable polyphonic conversion
+     * @param debounce    Quiet period after the last change before converting, in milliseconds
+     */
+    @ShellMethod(key = "watch", value = "Re-convert MIDI files in a directory whenever they change")
+    public synchronized String watch(
+            @ShellOption(help = "Directory to watch") String dir,
+            @ShellOption(help = "Tempo override in BPM", defaultValue = ShellOption.NULL) Integer tempo,
+            @ShellOption(help = "Quantization level, auto, or auto-track (optional, default from time signature)", defaultValue = ShellOption.NULL) String quantize,
+            @ShellOption(value = "--no-polyphony", help = "Disable polyphonic conversion (use simple single-note mode)", defaultValue = "false") boolean noPolyphony,
+            @ShellOption(help = "Quiet period after the last change, in milliseconds", defaultValue = "300") long debounce
+    ) {
+        if (watcher != null) {
+            return "Error: Already watching " + watcher.getDirectory() + " (run watch-stop first)";
+        }
+        Path directory = Path.of(dir);
+        if (!Files.isDirectory(directory)) {
+            return "Error: Not a directory: " + dir;
+        }
+        try {
+            ConversionOptions options = ConversionOptions.of(tempo, null, quantize, !noPolyphony, false);
+            watcher = new MidiWatcher(directory, parser, strudelConverter, options, debounce);
+            return "Watching " + watcher.getDirectory() + " (changed .mid files are converted to .txt next to them; "
+                + "watch-status shows progress, watch-stop ends it)";
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        } catch (IOException e) {
+            return "Error watching directory: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Show what the running watch has done so far.
+     */
+    @ShellMethod(key = "watch-status", value = "Show conversions done by the running watch")
+    public synchronized String watchStatus() {
+        if (watcher == null) {
+            return "Not watching (start with watch --dir <directory>)";
+        }
+        StringBuilder sb = new StringBuilder(String.format(
+            "Watching %s: %d converted, %d unchanged, %d failed",
+            watcher.getDirectory(), watcher.convertedCount(), watcher.unchangedCount(), watcher.failedCount()));
+        for (String line : watcher.recentLog()) {
+            sb.append(System.lineSeparator()).append("  ").append(line);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stop the running watch.
+     */
+    @ShellMethod(key = "watch-stop", value = "Stop watching for MIDI file changes")
+    public synchronized String watchStop() {
+        if (watcher == null) {
+            return "Not watching";
+        }
+        Path directory = watcher.getDirectory();
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            return "Error stopping watch: " + e.getMessage();
+        } finally {
+            watcher = null;
+        }
+        return "Stopped watching " + directory;
+    }
+
+    /**
+     * Show the in-memory cache counters and the location, size and limit of the on-disk parse cache.
+     */
+    @ShellMethod(key = "cache-info", value = "Show the in-memory and on-disk caches used by convert")
+    public String cacheInfo() {
+        String memory = !outputCache.isEnabled()
+            ? "Memory cache is disabled (midi-tokenizer.memory-cache.max-events=0)"
+            : String.format("""
+                    Memory cache: %d file(s), %d of %d events
+                    Hits:         %d
+                    Misses:       %d
+                    Evictions:    %d""",
+                outputCache.entryCount(),
+                outputCache.eventCount(),
+                outputCache.getMaxEvents(),
+                outputCache.getHits(),
+                outputCache.getMisses(),
+                outputCache.getEvictions());
+        TrackPatternCache patterns = strudelConverter.getPatternCache();
+        memory += String.format("""
+
+                Track patterns: %d memoized (%d hits, %d misses)""",
+            patterns.entryCount(), patterns.getHits(), patterns.getMisses());
+        try {
+            if (!parseCache.isEnabled()) {
+                return memory + "\nParse cache is disabled (midi-tokenizer.cache.max-size-mb=0)";
+            }
+            return memory + "\n" + String.format("""
+                    Parse cache: %s
+                    Entries:     %d
+                    Size:        %.1f MB of %.1f MB
+                    Parser version: %d""",
+                parseCache.getDirectory(),
+                parseCache.entryCount(),
+                parseCache.sizeBytes() / (1024.0 * 1024.0),
+                parseCache.getMaxBytes() / (1024.0 * 1024.0),
+                MidiParser.PARSER_VERSION);
+        } catch (IOException e) {
+            return memory + "\nError reading parse cache: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Delete all entries from the in-memory and on-disk caches.
+     */
+    @ShellMethod(key = "cache-clear", value = "Delete all entries from the in-memory and on-disk caches")
+    public String cacheClear() {
+        int dropped = outputCache.clear();
+        strudelConverter.getPatternCache().clear();
+        try {
+            int deleted = parseCache.clear();
+            return "Dropped " + dropped + " file(s) from memory; removed " + deleted
+                + " cached parse(s) from " + parseCache.getDirectory();
+        } catch (IOException e) {
+            return "Error clearing parse cache: " + e.getMessage();
+        }
+    }
 }
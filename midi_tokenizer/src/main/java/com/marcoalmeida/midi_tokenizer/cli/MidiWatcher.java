@@ -0,0 +1,239 @@
+package com.marcoalmeida.midi_tokenizer.cli;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.strudel.ConversionOptions;
+import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Watches a directory and rewrites the Strudel {@code .txt} next to each MIDI file when it changes.
+ * Change events for a file are debounced: each event reschedules the file's conversion, so a
+ * burst of saves results in one conversion after the burst. A conversion that is overtaken by a
+ * newer event is abandoned before its output is written. Files are only converted when the
+ * SHA-256 of their contents differs from the last one seen, so touching or re-saving an
+ * unchanged file does nothing.
+ *
+ * <p>Events are received on a virtual thread and conversions run one at a time on a daemon
+ * thread, so the shell stays usable while watching.
+ */
+final class MidiWatcher implements AutoCloseable {
+
+    private static final int LOG_SIZE = 20;
+
+    private final Path directory;
+    private final MidiParser parser;
+    private final StrudelConverter converter;
+    private final ConversionOptions options;
+    private final long debounceMillis;
+
+    private final WatchService watchService;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().daemon().name("midi-watch-convert").factory());
+    private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final Map<Path, Long> generations = new ConcurrentHashMap<>();
+    private final Map<Path, byte[]> hashes = new ConcurrentHashMap<>();
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Deque<String> log = new ArrayDeque<>();
+
+    /**
+     * Start watching. Files already in the directory are hashed but not converted.
+     */
+    MidiWatcher(Path directory, MidiParser parser, StrudelConverter converter, ConversionOptions options,
+                long debounceMillis) throws IOException {
+        this.directory = directory.toAbsolutePath();
+        this.parser = parser;
+        this.converter = converter;
+        this.options = options;
+        this.debounceMillis = debounceMillis;
+
+        for (Path file : midiFiles()) {
+            try {
+                hashes.put(file, hash(Files.readAllBytes(file)));
+            } catch (IOException e) {
+                // Converted on its next change
+            }
+        }
+
+        watchService = this.directory.getFileSystem().newWatchService();
+        this.directory.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread.ofVirtual().name("midi-watch").start(this::receiveEvents);
+    }
+
+    Path getDirectory() { return directory; }
+
+    int convertedCount() { return converted.get(); }
+
+    int unchangedCount() { return unchanged.get(); }
+
+    int failedCount() { return failed.get(); }
+
+    /**
+     * Most recent conversions and failures, oldest first.
+     */
+    synchronized List<String> recentLog() {
+        return new ArrayList<>(log);
+    }
+
+    /**
+     * Stop watching and cancel pending conversions; a running conversion is abandoned.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Schedule a conversion of {@code file} after the debounce delay, replacing any pending one.
+     */
+    void onChange(Path file) {
+        long generation = generations.merge(file, 1L, Long::sum);
+        AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+        pending.compute(file, (key, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            ScheduledFuture<?> future = scheduler.schedule(() -> {
+                // Done waiting: drop the entry unless a newer change has replaced it. This blocks
+                // on the entry until compute has returned, so self is always set by then.
+                pending.computeIfPresent(file, (name, current) -> current == self.get() ? null : current);
+                convert(file, generation);
+            }, debounceMillis, TimeUnit.MILLISECONDS);
+            self.set(future);
+            return future;
+        });
+    }
+
+    /**
+     * Number of files with a conversion waiting for its debounce delay.
+     */
+    int pendingCount() { return pending.size(); }
+
+    private void receiveEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were dropped: let the hashes decide what changed
+                        midiFiles().forEach(this::onChange);
+                    } else if (event.context() instanceof Path name && isMidi(name)) {
+                        onChange(directory.resolve(name));
+                    }
+                }
+                if (!key.reset()) {
+                    record("Stopped: " + directory + " is no longer accessible");
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private void convert(Path file, long generation) {
+        try {
+            byte[] data = Files.readAllBytes(file);
+            byte[] hash = hash(data);
+            if (Arrays.equals(hash, hashes.get(file))) {
+                unchanged.incrementAndGet();
+                return;
+            }
+
+            MidiOutput parsed = parser.parse(ByteBuffer.wrap(data), file.getFileName().toString(), false, true);
+            if (isSuperseded(file, generation)) {
+                return;
+            }
+            String pattern = converter.convert(parsed, file.toString(), options);
+            if (isSuperseded(file, generation)) {
+                return;
+            }
+
+            Path output = textFileFor(file);
+            Files.write(output, MidiShellCommands.withBom(pattern));
+            hashes.put(file, hash);
+            record("Converted " + file.getFileName() + " -> " + output.getFileName());
+            converted.incrementAndGet();
+        } catch (NoSuchFileException e) {
+            // Deleted or renamed before the debounce delay ran out
+        } catch (Exception e) {
+            record("Failed " + file.getFileName() + ": " + e.getMessage());
+            failed.incrementAndGet();
+        }
+    }
+
+    private boolean isSuperseded(Path file, long generation) {
+        return generations.getOrDefault(file, 0L) != generation || Thread.currentThread().isInterrupted();
+    }
+
+    private synchronized void record(String message) {
+        if (log.size() == LOG_SIZE) {
+            log.removeFirst();
+        }
+        log.addLast(LocalTime.now().truncatedTo(ChronoUnit.SECONDS) + " " + message);
+    }
+
+    private List<Path> midiFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> isMidi(path.getFileName()) && Files.isRegularFile(path)).toList();
+        } catch (IOException e) {
+            return List.of();
+        }
+    }
+
+    private static boolean isMidi(Path name) {
+        String lower = name.toString().toLowerCase(Locale.ROOT);
+        return lower.endsWith(".mid") || lower.endsWith(".midi");
+    }
+
+    /**
+     * {@code song.mid -> song.txt}, as written by {@code convert} without {@code --output}.
+     */
+    static Path textFileFor(Path file) {
+        String name = file.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        String basename = dotIndex > 0 ? name.substring(0, dotIndex) : name;
+        return file.resolveSibling(basename + ".txt");
+    }
+
+    private static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
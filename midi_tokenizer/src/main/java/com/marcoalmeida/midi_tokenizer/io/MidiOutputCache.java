@@ -0,0 +1,140 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-process LRU cache of loaded {@link MidiOutput}s, so repeated commands on the same file
+ * in one shell session skip loading it again. Entries are keyed by canonical path, modification
+ * time and length (a rewritten file misses) and weighed by their event count; least recently
+ * used entries are evicted once the total exceeds the limit.
+ *
+ * <p>Cached outputs are shared between callers and must be treated as read-only.
+ */
+@Component
+public class MidiOutputCache {
+
+    /**
+     * Loads a file on a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        MidiOutput load(File file) throws Exception;
+    }
+
+    private final long maxEvents;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalEvents;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEvents Total event count kept across all entries; 0 disables caching
+     */
+    @Autowired
+    public MidiOutputCache(@Value("${midi-tokenizer.memory-cache.max-events:2000000}") long maxEvents) {
+        this.maxEvents = maxEvents;
+    }
+
+    public long getMaxEvents() { return maxEvents; }
+
+    public boolean isEnabled() { return maxEvents > 0; }
+
+    /**
+     * Return the cached output for {@code file}, or load and cache it.
+     *
+     * @param variant Distinguishes different loads of the same file (e.g. parse options)
+     */
+    public MidiOutput get(File file, String variant, Loader loader) throws Exception {
+        if (!isEnabled()) {
+            return loader.load(file);
+        }
+
+        Key key = Key.of(file, variant);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.output;
+            }
+            misses++;
+        }
+
+        // Loaded outside the lock; concurrent misses on one file both load, and the last one is kept
+        MidiOutput output = loader.load(file);
+        put(key, new Entry(output, weigh(output)));
+        return output;
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized long getEvictions() { return evictions; }
+
+    public synchronized int entryCount() { return entries.size(); }
+
+    /**
+     * Total event count of cached entries.
+     */
+    public synchronized long eventCount() { return totalEvents; }
+
+    /**
+     * Drop every entry. Counters are kept.
+     *
+     * @return Number of entries dropped
+     */
+    public synchronized int clear() {
+        int count = entries.size();
+        entries.clear();
+        totalEvents = 0;
+        return count;
+    }
+
+    private synchronized void put(Key key, Entry entry) {
+        if (entry.weight > maxEvents) {
+            // Would evict everything else and still not fit
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalEvents -= previous.weight;
+        }
+        totalEvents += entry.weight;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalEvents > maxEvents && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            totalEvents -= evicted.weight;
+            evictions++;
+        }
+    }
+
+    private static long weigh(MidiOutput output) {
+        long events = 1;
+        for (TrackOutput track : output.getTracks()) {
+            events += track.eventCount();
+        }
+        return events;
+    }
+
+    private record Entry(MidiOutput output, long weight) {
+    }
+
+    private record Key(String path, long lastModified, long length, String variant) {
+        static Key of(File file, String variant) throws IOException {
+            return new Key(file.getCanonicalPath(), file.lastModified(), file.length(), variant);
+        }
+    }
+}
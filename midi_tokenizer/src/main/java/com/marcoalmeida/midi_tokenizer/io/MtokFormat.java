@@ -0,0 +1,73 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and primitive encodings of the {@code .mtok} binary token format.
+ *
+ * <p>Layout (version 1), all integers unsigned LEB128 varints unless noted:
+ * <pre>
+ * magic "MTOK" (4 bytes) | version (1 byte) | flags (1 byte, bit 0: seconds derived from the tempo map,
+ *                                                    bit 1: fixed-width event records)
+ * string table:    count, then per string: UTF-8 length, UTF-8 bytes
+ * schemaVersion:   string id
+ * file:            filename id, format, division, durationTicks, durationSeconds (float64)
+ * tempo map:       count, then per entry: delta tick, microsecondsPerQuarter, bpm (float64)
+ * time signatures: count, then per entry: delta tick, numerator, denominator, clocksPerClick, thirtySecondsPer24Clocks
+ * key signatures:  count, then per entry: delta tick, sharpsFlats (zigzag), majorMinor
+ * track directory: count, then per track: index, name id + 1 (0 = none),
+ *                  program changes (count, then delta tick, channel, program),
+ *                  event count, note count, event block offset, event block length
+ * event blocks:    one per track; offsets are relative to the start of this section
+ * </pre>
+ *
+ * <p>In the default, compact encoding each event starts with a header byte (kind in the high
+ * nibble, channel in the low nibble) and a zigzag tick delta (rows keep insertion order, so
+ * ticks can go backwards), followed by: note number, velocity and duration ticks for notes;
+ * controller and value for control changes; zigzag pitch bend for pitch bends; text id + 1
+ * (0 = none) for meta events.
+ *
+ * <p>With fixed-width records, an event block holds one little-endian
+ * {@link com.marcoalmeida.midi_tokenizer.model.EventArena} record per event, followed by the
+ * meta texts: count, then per meta row: row delta, text id + 1. Readers can then use a
+ * memory-mapped block as an event view without decoding it.
+ * Float64 values are little-endian.
+ */
+final class MtokFormat {
+
+    static final byte[] MAGIC = {'M', 'T', 'O', 'K'};
+    static final int VERSION = 1;
+    static final int FLAG_TIMED = 1;
+    static final int FLAG_FIXED_WIDTH = 2;
+
+    private MtokFormat() {}
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in .mtok data");
+    }
+
+    static int readVarintInt(ByteBuffer in) throws IOException {
+        long value = readVarint(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Value out of range in .mtok data: " + value);
+        }
+        return (int) value;
+    }
+}
@@ -0,0 +1,289 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.model.EventArena;
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.FileMetadata;
+import com.marcoalmeida.midi_tokenizer.model.KeySignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.Metadata;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.ProgramChangeEvent;
+import com.marcoalmeida.midi_tokenizer.model.TempoEntry;
+import com.marcoalmeida.midi_tokenizer.model.TempoMap;
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Reads {@code .mtok} files written by {@link MtokWriter}.
+ * The header, metadata and track directory are decoded when the reader is opened;
+ * event blocks are decoded on demand, so a single track can be loaded without
+ * touching the others. Fixed-width event blocks are not decoded at all: tracks are
+ * returned as read-only views over the file contents, mapped by {@link #open} or read into
+ * the heap by {@link #load}.
+ */
+public class MtokReader {
+
+    /** File extension for {@code .mtok} files, including the dot. */
+    public static final String FILE_EXTENSION = ".mtok";
+
+    private final ByteBuffer data;
+    private final boolean timed;
+    private final boolean fixedWidth;
+    private final String[] strings;
+    private final String schemaVersion;
+    private final FileMetadata file;
+    private final Metadata metadata = new Metadata();
+    private final List<TrackEntry> tracks = new ArrayList<>();
+    private final int eventsStart;
+
+    private MtokReader(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            for (byte expected : MtokFormat.MAGIC) {
+                if (data.get() != expected) {
+                    throw new IOException("Not an .mtok file (bad magic)");
+                }
+            }
+            int version = data.get() & 0xFF;
+            if (version != MtokFormat.VERSION) {
+                throw new IOException("Unsupported .mtok version " + version + " (expected " + MtokFormat.VERSION + ")");
+            }
+            int flags = data.get();
+            timed = (flags & MtokFormat.FLAG_TIMED) != 0;
+            fixedWidth = (flags & MtokFormat.FLAG_FIXED_WIDTH) != 0;
+
+            strings = new String[MtokFormat.readVarintInt(data)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[MtokFormat.readVarintInt(data)];
+                data.get(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+
+            schemaVersion = strings[MtokFormat.readVarintInt(data)];
+            file = new FileMetadata(
+                strings[MtokFormat.readVarintInt(data)],
+                MtokFormat.readVarintInt(data),
+                MtokFormat.readVarintInt(data),
+                MtokFormat.readVarint(data),
+                data.getDouble()
+            );
+            readMetadata();
+            readDirectory();
+            eventsStart = data.position();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt .mtok file", e);
+        }
+    }
+
+    /**
+     * Open an {@code .mtok} file. The file is memory-mapped; the reader holds no open handle.
+     */
+    public static MtokReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(".mtok file too large to map: " + file + " (" + size + " bytes)");
+            }
+            return new MtokReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Open an {@code .mtok} file by reading it into the heap instead of mapping it. Tracks
+     * returned by the reader hold no reference to the file, so it can be replaced or deleted
+     * while they are in use (Windows refuses both for a mapped file).
+     */
+    public static MtokReader load(File file) throws IOException {
+        return new MtokReader(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    /**
+     * Read {@code .mtok} contents that are already in memory.
+     */
+    public static MtokReader of(ByteBuffer data) throws IOException {
+        return new MtokReader(data.slice());
+    }
+
+    /**
+     * Whether the source output included seconds (they are rebuilt from the tempo map).
+     */
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public int trackCount() {
+        return tracks.size();
+    }
+
+    /**
+     * Decode everything.
+     */
+    public MidiOutput read() throws IOException {
+        return read(track -> true);
+    }
+
+    /**
+     * Decode the header, metadata and the events of the tracks accepted by {@code trackFilter}
+     * (by position in the file). Other tracks keep their index, name and program changes
+     * but are returned without events.
+     */
+    public MidiOutput read(IntPredicate trackFilter) throws IOException {
+        MidiOutput output = new MidiOutput();
+        output.setSchemaVersion(schemaVersion);
+        output.setFile(file);
+        output.setMetadata(metadata);
+
+        TempoMap tempoMap = timed ? TempoMap.of(metadata.getTempoMap(), file.getDivision()) : null;
+        for (int i = 0; i < tracks.size(); i++) {
+            TrackEntry entry = tracks.get(i);
+            TrackOutput track = new TrackOutput(entry.index);
+            track.setName(entry.name);
+            track.setProgramChanges(new ArrayList<>(entry.programChanges));
+
+            if (!trackFilter.test(i)) {
+                TrackEvents empty = new TrackEvents();
+                empty.setTempoMap(tempoMap);
+                track.setTrackEvents(empty);
+            } else if (fixedWidth) {
+                track.setTrackEvents(wrapRecords(entry, tempoMap));
+            } else {
+                TrackEvents events = readEvents(entry);
+                events.setTempoMap(tempoMap);
+                track.setTrackEvents(events);
+            }
+            output.getTracks().add(track);
+        }
+        return output;
+    }
+
+    private void readMetadata() throws IOException {
+        List<TempoEntry> tempoMap = new ArrayList<>();
+        long tick = 0;
+        for (int i = MtokFormat.readVarintInt(data); i > 0; i--) {
+            tick += MtokFormat.unzigzag(MtokFormat.readVarint(data));
+            tempoMap.add(new TempoEntry(tick, MtokFormat.readVarint(data), data.getDouble()));
+        }
+        metadata.setTempoMap(tempoMap);
+
+        List<TimeSignatureEntry> timeSignatures = new ArrayList<>();
+        tick = 0;
+        for (int i = MtokFormat.readVarintInt(data); i > 0; i--) {
+            tick += MtokFormat.unzigzag(MtokFormat.readVarint(data));
+            timeSignatures.add(new TimeSignatureEntry(tick,
+                MtokFormat.readVarintInt(data), MtokFormat.readVarintInt(data),
+                MtokFormat.readVarintInt(data), MtokFormat.readVarintInt(data)));
+        }
+        metadata.setTimeSignatures(timeSignatures);
+
+        List<KeySignatureEntry> keySignatures = new ArrayList<>();
+        tick = 0;
+        for (int i = MtokFormat.readVarintInt(data); i > 0; i--) {
+            tick += MtokFormat.unzigzag(MtokFormat.readVarint(data));
+            keySignatures.add(new KeySignatureEntry(tick,
+                (int) MtokFormat.unzigzag(MtokFormat.readVarint(data)), MtokFormat.readVarintInt(data)));
+        }
+        metadata.setKeySignatures(keySignatures);
+    }
+
+    private void readDirectory() throws IOException {
+        for (int i = MtokFormat.readVarintInt(data); i > 0; i--) {
+            TrackEntry entry = new TrackEntry();
+            entry.index = MtokFormat.readVarintInt(data);
+            int name = MtokFormat.readVarintInt(data);
+            entry.name = name > 0 ? strings[name - 1] : null;
+
+            long tick = 0;
+            for (int j = MtokFormat.readVarintInt(data); j > 0; j--) {
+                tick += MtokFormat.unzigzag(MtokFormat.readVarint(data));
+                entry.programChanges.add(new ProgramChangeEvent(tick,
+                    MtokFormat.readVarintInt(data), MtokFormat.readVarintInt(data)));
+            }
+            entry.eventCount = MtokFormat.readVarintInt(data);
+            entry.noteCount = MtokFormat.readVarintInt(data);
+            entry.offset = MtokFormat.readVarintInt(data);
+            entry.length = MtokFormat.readVarintInt(data);
+            tracks.add(entry);
+        }
+    }
+
+    private TrackEvents readEvents(TrackEntry entry) throws IOException {
+        TrackEvents events = new TrackEvents();
+        try {
+            ByteBuffer in = data.slice(eventsStart + entry.offset, entry.length);
+            long tick = 0;
+            for (int row = 0; row < entry.eventCount; row++) {
+                int header = in.get() & 0xFF;
+                int kind = header >> 4;
+                int channel = header & 0x0F;
+                tick += MtokFormat.unzigzag(MtokFormat.readVarint(in));
+
+                switch (kind) {
+                    case TrackEvents.KIND_NOTE -> events.addNote(tick, channel,
+                        MtokFormat.readVarintInt(in), MtokFormat.readVarintInt(in), MtokFormat.readVarint(in));
+                    case TrackEvents.KIND_CONTROL_CHANGE -> events.addControlChange(tick, channel,
+                        MtokFormat.readVarintInt(in), MtokFormat.readVarintInt(in));
+                    case TrackEvents.KIND_PITCH_BEND -> events.addPitchBend(tick, channel,
+                        (int) MtokFormat.unzigzag(MtokFormat.readVarint(in)));
+                    case TrackEvents.KIND_META -> {
+                        int text = MtokFormat.readVarintInt(in);
+                        events.addMeta(tick, text > 0 ? strings[text - 1] : null);
+                    }
+                    default -> throw new IOException("Unknown event kind " + kind + " in .mtok track " + entry.index);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt .mtok track " + entry.index, e);
+        }
+        events.trim();
+        return events;
+    }
+
+    private EventView wrapRecords(TrackEntry entry, TempoMap tempoMap) throws IOException {
+        try {
+            int recordBytes = entry.eventCount * EventArena.RECORD_BYTES;
+            ByteBuffer records = data.slice(eventsStart + entry.offset, recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer in = data.slice(eventsStart + entry.offset + recordBytes, entry.length - recordBytes);
+
+            CharSequence[] text = null;
+            int metaCount = MtokFormat.readVarintInt(in);
+            if (metaCount > 0) {
+                text = new CharSequence[entry.eventCount];
+                int row = 0;
+                for (int i = 0; i < metaCount; i++) {
+                    row += MtokFormat.readVarintInt(in);
+                    int id = MtokFormat.readVarintInt(in);
+                    text[row] = id > 0 ? strings[id - 1] : null;
+                }
+            }
+            return EventArena.wrap(records, entry.eventCount, entry.noteCount, text, tempoMap);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Truncated or corrupt .mtok track " + entry.index, e);
+        }
+    }
+
+    /**
+     * Track directory entry: everything but the events.
+     */
+    private static final class TrackEntry {
+        int index;
+        String name;
+        final List<ProgramChangeEvent> programChanges = new ArrayList<>();
+        int eventCount;
+        int noteCount;
+        int offset;
+        int length;
+    }
+}
@@ -0,0 +1,247 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.model.EventArena;
+import com.marcoalmeida.midi_tokenizer.model.EventKind;
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.FileMetadata;
+import com.marcoalmeida.midi_tokenizer.model.KeySignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.Metadata;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.ProgramChangeEvent;
+import com.marcoalmeida.midi_tokenizer.model.TempoEntry;
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link MidiOutput} in the {@code .mtok} binary format (see {@link MtokFormat}).
+ * Events are encoded straight from each track's {@link EventView}. Seconds are not stored:
+ * {@link MtokReader} derives them from the tempo map when the source had them.
+ */
+public class MtokWriter {
+
+    private final boolean fixedWidth;
+
+    /**
+     * Writer for the compact, varint-encoded form.
+     */
+    public MtokWriter() {
+        this(false);
+    }
+
+    /**
+     * @param fixedWidth Write fixed-width event records, which are several times larger but
+     *                   are read back memory-mapped without decoding
+     */
+    public MtokWriter(boolean fixedWidth) {
+        this.fixedWidth = fixedWidth;
+    }
+
+    /**
+     * Write {@code output} to a file, replacing it if it exists.
+     */
+    public void write(MidiOutput output, Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024)) {
+            write(output, out);
+        }
+    }
+
+    /**
+     * Write {@code output} to a stream. The stream is not closed.
+     */
+    public void write(MidiOutput output, OutputStream out) throws IOException {
+        StringTable strings = new StringTable();
+        boolean timed = false;
+
+        // Event blocks first: they fill the string table and give the directory its offsets
+        ByteSink events = new ByteSink();
+        int trackCount = output.getTracks().size();
+        EventView[] views = new EventView[trackCount];
+        int[] offsets = new int[trackCount];
+        int[] lengths = new int[trackCount];
+        for (int i = 0; i < trackCount; i++) {
+            views[i] = output.getTracks().get(i).getTrackEvents();
+            timed |= views[i].hasSeconds();
+            offsets[i] = events.size();
+            if (fixedWidth) {
+                writeRecords(views[i], strings, events);
+            } else {
+                writeEvents(views[i], strings, events);
+            }
+            lengths[i] = events.size() - offsets[i];
+        }
+
+        ByteSink header = new ByteSink();
+        int schemaVersion = strings.id(output.getSchemaVersion());
+        FileMetadata file = output.getFile();
+        int filename = strings.id(file.getFilename());
+        int[] trackNames = new int[trackCount];
+        for (int i = 0; i < trackCount; i++) {
+            String name = output.getTracks().get(i).getName();
+            trackNames[i] = name != null ? strings.id(name) + 1 : 0;
+        }
+
+        header.putBytes(MtokFormat.MAGIC);
+        header.put(MtokFormat.VERSION);
+        header.put((timed ? MtokFormat.FLAG_TIMED : 0) | (fixedWidth ? MtokFormat.FLAG_FIXED_WIDTH : 0));
+        strings.writeTo(header);
+
+        header.putVarint(schemaVersion);
+        header.putVarint(filename);
+        header.putVarint(file.getFormat());
+        header.putVarint(file.getDivision());
+        header.putVarint(file.getDurationTicks());
+        header.putDouble(file.getDurationSeconds());
+
+        writeMetadata(output.getMetadata(), header);
+
+        header.putVarint(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            TrackOutput track = output.getTracks().get(i);
+            header.putVarint(track.getIndex());
+            header.putVarint(trackNames[i]);
+            header.putVarint(track.getProgramChanges().size());
+            long previousTick = 0;
+            for (ProgramChangeEvent programChange : track.getProgramChanges()) {
+                header.putVarint(MtokFormat.zigzag(programChange.getTick() - previousTick));
+                header.putVarint(programChange.getChannel());
+                header.putVarint(programChange.getProgram());
+                previousTick = programChange.getTick();
+            }
+            header.putVarint(views[i].size());
+            header.putVarint(views[i].noteCount());
+            header.putVarint(offsets[i]);
+            header.putVarint(lengths[i]);
+        }
+
+        header.writeTo(out);
+        events.writeTo(out);
+        out.flush();
+    }
+
+    private static void writeMetadata(Metadata metadata, ByteSink out) {
+        long previousTick = 0;
+        out.putVarint(metadata.getTempoMap().size());
+        for (TempoEntry tempo : metadata.getTempoMap()) {
+            out.putVarint(MtokFormat.zigzag(tempo.getTick() - previousTick));
+            out.putVarint(tempo.getMicrosecondsPerQuarter());
+            out.putDouble(tempo.getBpm());
+            previousTick = tempo.getTick();
+        }
+
+        previousTick = 0;
+        out.putVarint(metadata.getTimeSignatures().size());
+        for (TimeSignatureEntry timeSignature : metadata.getTimeSignatures()) {
+            out.putVarint(MtokFormat.zigzag(timeSignature.getTick() - previousTick));
+            out.putVarint(timeSignature.getNumerator());
+            out.putVarint(timeSignature.getDenominator());
+            out.putVarint(timeSignature.getClocksPerClick());
+            out.putVarint(timeSignature.getThirtySecondsPer24Clocks());
+            previousTick = timeSignature.getTick();
+        }
+
+        previousTick = 0;
+        out.putVarint(metadata.getKeySignatures().size());
+        for (KeySignatureEntry keySignature : metadata.getKeySignatures()) {
+            out.putVarint(MtokFormat.zigzag(keySignature.getTick() - previousTick));
+            out.putVarint(MtokFormat.zigzag(keySignature.getSharpsFlats()));
+            out.putVarint(keySignature.getMajorMinor());
+            previousTick = keySignature.getTick();
+        }
+    }
+
+    private static void writeEvents(EventView events, StringTable strings, ByteSink out) {
+        long previousTick = 0;
+        for (int row = 0; row < events.size(); row++) {
+            EventKind kind = events.eventKind(row);
+            int channel = kind == EventKind.META ? 0 : events.channel(row);
+            out.put((kind.code() << 4) | (channel & 0x0F));
+            out.putVarint(MtokFormat.zigzag(events.tick(row) - previousTick));
+            previousTick = events.tick(row);
+
+            switch (kind) {
+                case NOTE -> {
+                    out.putVarint(events.noteNumber(row));
+                    out.putVarint(events.velocity(row));
+                    out.putVarint(events.durationTicks(row));
+                }
+                case CONTROL_CHANGE -> {
+                    out.putVarint(events.controller(row));
+                    out.putVarint(events.value(row));
+                }
+                case PITCH_BEND -> out.putVarint(MtokFormat.zigzag(events.pitchBend(row)));
+                case META -> {
+                    CharSequence text = events.text(row);
+                    out.putVarint(text != null ? strings.id(text.toString()) + 1 : 0);
+                }
+            }
+        }
+    }
+
+    private static void writeRecords(EventView events, StringTable strings, ByteSink out) throws IOException {
+        if ((long) events.size() * EventArena.RECORD_BYTES > Integer.MAX_VALUE) {
+            throw new IOException("Track of " + events.size() + " events is too large for fixed-width records");
+        }
+        ByteBuffer records = ByteBuffer.allocate(events.size() * EventArena.RECORD_BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        int metaCount = 0;
+        for (int row = 0; row < events.size(); row++) {
+            if (!EventArena.putRecord(records, row * EventArena.RECORD_BYTES, events, row)) {
+                throw new IOException("Note at tick " + events.tick(row) + " is too long for fixed-width records ("
+                    + events.durationTicks(row) + " ticks)");
+            }
+            if (events.kind(row) == TrackEvents.KIND_META) {
+                metaCount++;
+            }
+        }
+        out.putBytes(records.array());
+
+        out.putVarint(metaCount);
+        int previousRow = 0;
+        for (int row = 0; row < events.size(); row++) {
+            if (events.kind(row) == TrackEvents.KIND_META) {
+                CharSequence text = events.text(row);
+                out.putVarint(row - previousRow);
+                out.putVarint(text != null ? strings.id(text.toString()) + 1 : 0);
+                previousRow = row;
+            }
+        }
+    }
+
+    /**
+     * Deduplicating dictionary of track names and meta texts.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int id(String value) {
+            return ids.computeIfAbsent(value, key -> {
+                strings.add(key);
+                return strings.size() - 1;
+            });
+        }
+
+        void writeTo(ByteSink out) {
+            out.putVarint(strings.size());
+            for (String value : strings) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.putVarint(utf8.length);
+                out.putBytes(utf8);
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persistent, content-addressed cache of parsed MIDI files.
+ * Entries are {@code .mtok} files named by the SHA-256 of the MIDI bytes, the parser and
+ * format versions and the parse flags, so renamed or copied files still hit and any parser
+ * change misses. Entries use fixed-width event records, so a hit is served as views over the
+ * entry with neither reparsing nor decoding. Entries are read into the heap rather than mapped,
+ * so results still in use never keep an entry from being evicted or cleared. The directory is kept
+ * under a size limit by evicting least recently used entries (by modification time, which
+ * is refreshed on every hit).
+ */
+@Component
+public class ParseCache {
+
+    /** Default location: {@code ~/.cache/midi-tokenizer}. */
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("user.home"), ".cache", "midi-tokenizer");
+
+    private final MidiParser parser;
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * @param directory Cache directory; created on first store
+     * @param maxBytes  Size limit for all entries; 0 disables caching
+     */
+    public ParseCache(MidiParser parser, Path directory, long maxBytes) {
+        this.parser = parser;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    @Autowired
+    public ParseCache(MidiParser parser,
+                      @Value("${midi-tokenizer.cache.dir:}") String directory,
+                      @Value("${midi-tokenizer.cache.max-size-mb:256}") long maxSizeMb) {
+        this(parser, directory.isBlank() ? DEFAULT_DIRECTORY : Path.of(directory), maxSizeMb * 1024 * 1024);
+    }
+
+    public Path getDirectory() { return directory; }
+
+    public long getMaxBytes() { return maxBytes; }
+
+    public boolean isEnabled() { return maxBytes > 0; }
+
+    /**
+     * Parse a MIDI file, or load the cached result for identical content.
+     * The returned output reports {@code file}'s own name. Cache failures fall back to parsing.
+     *
+     * @see MidiParser#parse(File, boolean, boolean, boolean)
+     */
+    public MidiOutput parse(File file, boolean includeTimeSeconds, boolean includeMeta,
+                            boolean parallel) throws Exception {
+        if (!isEnabled()) {
+            return parser.parse(file, includeTimeSeconds, includeMeta, parallel);
+        }
+
+        ByteBuffer data = MidiParser.mapFile(file);
+        Path entry = directory.resolve(key(data, includeTimeSeconds, includeMeta) + MtokReader.FILE_EXTENSION);
+
+        MidiOutput cached = load(entry);
+        if (cached != null) {
+            cached.getFile().setFilename(file.getName());
+            return cached;
+        }
+
+        MidiOutput output = parser.parse(data, file.getName(), includeTimeSeconds, includeMeta, parallel);
+        store(output, entry);
+        return output;
+    }
+
+    /**
+     * Number of cached entries.
+     */
+    public int entryCount() throws IOException {
+        return entries().size();
+    }
+
+    /**
+     * Total size of cached entries, in bytes.
+     */
+    public long sizeBytes() throws IOException {
+        long total = 0;
+        for (Path entry : entries()) {
+            total += sizeOf(entry);
+        }
+        return total;
+    }
+
+    /**
+     * Delete every cached entry.
+     *
+     * @return Number of entries deleted
+     */
+    public int clear() throws IOException {
+        int deleted = 0;
+        for (Path entry : entries()) {
+            if (Files.deleteIfExists(entry)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private MidiOutput load(Path entry) {
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try {
+            // Read, not mapped: a mapped entry cannot be deleted on Windows while the result lives
+            MidiOutput output = MtokReader.load(entry.toFile()).read();
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return output;
+        } catch (IOException | RuntimeException e) {
+            // Unreadable, truncated or corrupt entry: drop it and reparse
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+                // Left for eviction
+            }
+            return null;
+        }
+    }
+
+    private void store(MidiOutput output, Path entry) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                new MtokWriter(true).write(output, temp);
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            evict();
+        } catch (IOException e) {
+            // The cache is an optimization; a failed store leaves the parse result intact
+        }
+    }
+
+    /**
+     * Delete least recently used entries until the cache fits in {@link #maxBytes}.
+     */
+    private void evict() throws IOException {
+        List<Path> entries = entries();
+        long total = 0;
+        for (Path entry : entries) {
+            total += sizeOf(entry);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparingLong(ParseCache::lastUsed));
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = sizeOf(entry);
+            try {
+                if (Files.deleteIfExists(entry)) {
+                    total -= size;
+                }
+            } catch (IOException e) {
+                // In use by another process: evict the next entry instead
+            }
+        }
+    }
+
+    private List<Path> entries() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files
+                .filter(path -> path.getFileName().toString().endsWith(MtokReader.FILE_EXTENSION))
+                .toList());
+        }
+    }
+
+    private static long sizeOf(Path entry) {
+        try {
+            return Files.size(entry);
+        } catch (IOException e) {
+            // Deleted concurrently
+            return 0;
+        }
+    }
+
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String key(ByteBuffer data, boolean includeTimeSeconds, boolean includeMeta) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String version = "parser=" + MidiParser.PARSER_VERSION + ";mtok=" + MtokFormat.VERSION
+                + ";seconds=" + includeTimeSeconds + ";meta=" + includeMeta + ";";
+            digest.update(version.getBytes(StandardCharsets.US_ASCII));
+            digest.update(data.duplicate());
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
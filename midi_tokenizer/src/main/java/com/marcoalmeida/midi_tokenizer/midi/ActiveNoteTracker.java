@@ -0,0 +1,88 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import java.util.Arrays;
+
+/**
+ * Pairs Note On and Note Off events for one track without allocating.
+ * Every (channel, note) key owns a fixed-size slot range in one flat {@code long[]};
+ * each pending note-on is packed as {@code tick << 7 | velocity}.
+ * Repeated note-ons for the same key stack up instead of overwriting each other,
+ * and a note-off closes the oldest pending one (first on, first off).
+ */
+final class ActiveNoteTracker {
+
+    /** Returned by {@link #noteOff} when the key has no pending note-on. */
+    static final long NONE = -1L;
+
+    private static final int KEYS = 16 * 128;
+    private static final int INITIAL_DEPTH = 4;
+
+    private long[] pending = new long[KEYS * INITIAL_DEPTH];
+    private final int[] counts = new int[KEYS];
+    private int depth = INITIAL_DEPTH;
+
+    /**
+     * Record a note-on.
+     *
+     * @param channel  MIDI channel (0-15)
+     * @param note     Note number (0-127)
+     * @param tick     Absolute tick of the note-on
+     * @param velocity Velocity (1-127)
+     */
+    void noteOn(int channel, int note, long tick, int velocity) {
+        int key = (channel << 7) | note;
+        int count = counts[key];
+        if (count == depth) {
+            grow();
+        }
+        pending[key * depth + count] = (tick << 7) | velocity;
+        counts[key] = count + 1;
+    }
+
+    /**
+     * Close the oldest pending note-on for a key.
+     *
+     * @return Packed tick/velocity of the matching note-on, or {@link #NONE}
+     */
+    long noteOff(int channel, int note) {
+        int key = (channel << 7) | note;
+        int count = counts[key];
+        if (count == 0) {
+            return NONE;
+        }
+        int base = key * depth;
+        long packed = pending[base];
+        // Stacks are shallow, so shifting down is cheaper than a ring buffer
+        System.arraycopy(pending, base + 1, pending, base, count - 1);
+        counts[key] = count - 1;
+        return packed;
+    }
+
+    /**
+     * Drop all pending note-ons (e.g. at the start of a new track).
+     */
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+
+    static long tick(long packed) {
+        return packed >>> 7;
+    }
+
+    static int velocity(long packed) {
+        return (int) (packed & 0x7F);
+    }
+
+    /**
+     * Double the per-key depth; only happens for unusually deep same-pitch stacks.
+     */
+    private void grow() {
+        int newDepth = depth * 2;
+        long[] grown = new long[KEYS * newDepth];
+        for (int key = 0; key < KEYS; key++) {
+            System.arraycopy(pending, key * depth, grown, key * newDepth, counts[key]);
+        }
+        pending = grown;
+        depth = newDepth;
+    }
+}
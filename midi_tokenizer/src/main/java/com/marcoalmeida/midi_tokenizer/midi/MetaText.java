@@ -0,0 +1,55 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Text of a meta event that is decoded only when first read.
+ * Holds a reference to the source buffer (usually a mapped file) instead of
+ * copying the payload into a {@code byte[]} and {@code String} up front.
+ */
+class MetaText implements CharSequence {
+
+    private final String prefix;
+    private final ByteBuffer source;
+    private final int offset;
+    private final int length;
+    private String value;
+
+    /**
+     * @param prefix Text placed before the payload (e.g. "lyric: ")
+     * @param source Buffer holding the payload
+     * @param offset Payload offset in {@code source}
+     * @param length Payload length in bytes
+     */
+    MetaText(String prefix, ByteBuffer source, int offset, int length) {
+        this.prefix = prefix;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public String toString() {
+        if (value == null) {
+            byte[] bytes = new byte[length];
+            source.get(offset, bytes);
+            value = prefix + new String(bytes);
+        }
+        return value;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+}
@@ -0,0 +1,208 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.marcoalmeida.midi_tokenizer.model.EventKind;
+import com.marcoalmeida.midi_tokenizer.model.FileMetadata;
+import com.marcoalmeida.midi_tokenizer.model.Metadata;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.ProgramChangeEvent;
+import com.marcoalmeida.midi_tokenizer.model.TempoEntry;
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming loader for parse JSON that keeps only what Strudel conversion needs:
+ * file metadata, tempo map, time signatures, track names, program changes and note events.
+ * Control changes, pitch bends, meta events and key signatures are skipped at the token
+ * level, and notes go straight into {@link TrackEvents} columns without {@link
+ * com.marcoalmeida.midi_tokenizer.model.EventOutput} objects.
+ */
+public class MidiJsonReader {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader FILE_READER = MAPPER.readerFor(FileMetadata.class);
+    private static final ObjectReader TEMPO_READER = MAPPER.readerForListOf(TempoEntry.class);
+    private static final ObjectReader TIME_SIGNATURE_READER = MAPPER.readerForListOf(TimeSignatureEntry.class);
+    private static final ObjectReader PROGRAM_CHANGE_READER = MAPPER.readerForListOf(ProgramChangeEvent.class);
+
+    /**
+     * Read the parts of a parse JSON file used for conversion.
+     * Tracks keep their seconds when every note carries them; otherwise callers attach a tempo map.
+     */
+    public MidiOutput readForConversion(File file) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(file)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            MidiOutput output = new MidiOutput();
+
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                switch (field) {
+                    case "schemaVersion" -> output.setSchemaVersion(parser.getValueAsString());
+                    case "file" -> output.setFile(FILE_READER.readValue(parser));
+                    case "metadata" -> readMetadata(parser, output.getMetadata());
+                    case "tracks" -> {
+                        expect(parser.currentToken(), JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            output.getTracks().add(readTrack(parser));
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return output;
+        }
+    }
+
+    private void readMetadata(JsonParser parser, Metadata metadata) throws IOException {
+        expect(parser.currentToken(), JsonToken.START_OBJECT);
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "tempoMap" -> metadata.setTempoMap(TEMPO_READER.readValue(parser));
+                case "timeSignatures" -> metadata.setTimeSignatures(TIME_SIGNATURE_READER.readValue(parser));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private TrackOutput readTrack(JsonParser parser) throws IOException {
+        TrackOutput track = new TrackOutput();
+        TrackEvents events = new TrackEvents();
+        double[] seconds = new double[64];
+        double[] durationSeconds = new double[64];
+        boolean allTimed = true;
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "index" -> track.setIndex(parser.getIntValue());
+                case "name" -> track.setName(parser.getValueAsString());
+                case "programChanges" -> track.setProgramChanges(PROGRAM_CHANGE_READER.readValue(parser));
+                case "events" -> {
+                    expect(parser.currentToken(), JsonToken.START_ARRAY);
+                    NoteFields note = new NoteFields();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        if (!note.read(parser)) {
+                            continue;
+                        }
+                        int row = events.size();
+                        events.addNote(note.tick, note.channel, note.noteNumber, note.velocity, note.durationTicks);
+                        if (row == seconds.length) {
+                            seconds = Arrays.copyOf(seconds, row * 2);
+                            durationSeconds = Arrays.copyOf(durationSeconds, row * 2);
+                        }
+                        if (note.timed) {
+                            seconds[row] = note.timeSeconds;
+                            durationSeconds[row] = note.durationSeconds;
+                        } else {
+                            allTimed = false;
+                        }
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        events.trim();
+        if (allTimed) {
+            events.setSeconds(seconds, durationSeconds);
+        }
+        track.setTrackEvents(events);
+        return track;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON structure: expected " + expected + " but found " + actual);
+        }
+    }
+
+    /**
+     * Fields of the event object under the parser, reused across events.
+     */
+    private static final class NoteFields {
+        private static final String NOTE_TAG = EventKind.NOTE.tag();
+
+        long tick;
+        int channel;
+        int noteNumber;
+        int velocity;
+        long durationTicks;
+        boolean timed;
+        double timeSeconds;
+        double durationSeconds;
+
+        /**
+         * Consume one event object; returns true if it is a note.
+         * Values of other fields (note names, meta text) are skipped without being decoded.
+         */
+        boolean read(JsonParser parser) throws IOException {
+            boolean typeSeen = false;
+            boolean isNote = false;
+            tick = 0;
+            channel = 0;
+            noteNumber = 0;
+            velocity = 0;
+            durationTicks = 0;
+            timed = false;
+            durationSeconds = 0.0;
+
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL || (typeSeen && !isNote)) {
+                    // Once the type rules out a note, remaining values are not decoded at all
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "type" -> {
+                        isNote = isNoteTag(parser);
+                        typeSeen = true;
+                    }
+                    case "tick" -> tick = parser.getLongValue();
+                    case "channel" -> channel = parser.getIntValue();
+                    case "noteNumber" -> noteNumber = parser.getIntValue();
+                    case "velocity" -> velocity = parser.getIntValue();
+                    case "durationTicks" -> durationTicks = parser.getLongValue();
+                    case "timeSeconds" -> {
+                        timeSeconds = parser.getDoubleValue();
+                        timed = true;
+                    }
+                    case "durationSeconds" -> durationSeconds = parser.getDoubleValue();
+                    default -> parser.skipChildren();
+                }
+            }
+            return isNote;
+        }
+
+        /**
+         * Compare the current string value with the note tag without creating a String.
+         */
+        private static boolean isNoteTag(JsonParser parser) throws IOException {
+            char[] chars = parser.getTextCharacters();
+            int offset = parser.getTextOffset();
+            int length = parser.getTextLength();
+            if (length != NOTE_TAG.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (chars[offset + i] != NOTE_TAG.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
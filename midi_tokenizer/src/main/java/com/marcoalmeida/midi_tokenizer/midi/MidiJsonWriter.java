@@ -0,0 +1,208 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.marcoalmeida.midi_tokenizer.model.EventKind;
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Streams a {@link MidiOutput} as JSON with a Jackson {@link JsonGenerator}.
+ * Events are written straight from each track's {@link EventView} rows, so no
+ * {@link com.marcoalmeida.midi_tokenizer.model.EventOutput} objects, tree or
+ * full-document string are built. The output is byte-identical to serializing
+ * the same {@link MidiOutput} with an {@link ObjectMapper}.
+ */
+public class MidiJsonWriter {
+
+    private static final SerializableString TYPE = new SerializedString("type");
+    private static final SerializableString TICK = new SerializedString("tick");
+    private static final SerializableString TIME_SECONDS = new SerializedString("timeSeconds");
+    private static final SerializableString CHANNEL = new SerializedString("channel");
+    private static final SerializableString NOTE_NUMBER = new SerializedString("noteNumber");
+    private static final SerializableString NOTE_NAME = new SerializedString("noteName");
+    private static final SerializableString VELOCITY = new SerializedString("velocity");
+    private static final SerializableString DURATION_TICKS = new SerializedString("durationTicks");
+    private static final SerializableString DURATION_SECONDS = new SerializedString("durationSeconds");
+    private static final SerializableString CONTROLLER = new SerializedString("controller");
+    private static final SerializableString VALUE = new SerializedString("value");
+    private static final SerializableString PITCH_BEND = new SerializedString("pitchBend");
+    private static final SerializableString TEXT = new SerializedString("text");
+
+    private final ObjectWriter writer;
+
+    /**
+     * @param objectMapper Mapper used for the small non-event parts (file metadata, tempo map, program changes)
+     * @param indent       Pretty-print the output; false writes compact, single-line JSON
+     */
+    public MidiJsonWriter(ObjectMapper objectMapper, boolean indent) {
+        this.writer = indent
+            ? objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT)
+            : objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Write UTF-8 JSON to a stream. The stream is flushed but not closed.
+     */
+    public void write(MidiOutput output, OutputStream out) throws IOException {
+        try (TrackStream tracks = open(output, out)) {
+            for (TrackOutput track : output.getTracks()) {
+                tracks.write(track);
+            }
+        }
+    }
+
+    /**
+     * Write JSON to a character stream. The writer is flushed but not closed.
+     */
+    public void write(MidiOutput output, Writer out) throws IOException {
+        try (TrackStream tracks = open(output, out)) {
+            for (TrackOutput track : output.getTracks()) {
+                tracks.write(track);
+            }
+        }
+    }
+
+    /**
+     * Start a UTF-8 document whose tracks are supplied one at a time, so only the
+     * track being written has to be in memory. The file metadata and metadata of
+     * {@code header} are written immediately; its track list is ignored.
+     * Closing the returned stream finishes the document and flushes, but does not close, {@code out}.
+     */
+    public TrackStream open(MidiOutput header, OutputStream out) throws IOException {
+        return open(header, writer.createGenerator(out, JsonEncoding.UTF8));
+    }
+
+    /**
+     * Character-stream variant of {@link #open(MidiOutput, OutputStream)}.
+     */
+    public TrackStream open(MidiOutput header, Writer out) throws IOException {
+        return open(header, writer.createGenerator(out));
+    }
+
+    private TrackStream open(MidiOutput header, JsonGenerator gen) throws IOException {
+        gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        gen.writeStartObject();
+        gen.writeStringField("schemaVersion", header.getSchemaVersion());
+        gen.writeFieldName("file");
+        writer.writeValue(gen, header.getFile());
+        gen.writeFieldName("metadata");
+        writer.writeValue(gen, header.getMetadata());
+        gen.writeArrayFieldStart("tracks");
+        return new TrackStream(gen);
+    }
+
+    /**
+     * The open {@code tracks} array of a document started with {@link #open}.
+     */
+    public final class TrackStream implements Closeable {
+        private final JsonGenerator gen;
+
+        private TrackStream(JsonGenerator gen) {
+            this.gen = gen;
+        }
+
+        /**
+         * Append a track. Nothing of it is retained once this returns.
+         */
+        public void write(TrackOutput track) throws IOException {
+            writeTrack(track, gen);
+        }
+
+        /**
+         * Close the tracks array and the document.
+         */
+        @Override
+        public void close() throws IOException {
+            try (gen) {
+                gen.writeEndArray();
+                gen.writeEndObject();
+            }
+        }
+    }
+
+    private void writeTrack(TrackOutput track, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField("index", track.getIndex());
+        gen.writeStringField("name", track.getName());
+        gen.writeFieldName("programChanges");
+        writer.writeValue(gen, track.getProgramChanges());
+
+        EventView events = track.getTrackEvents();
+        boolean timed = events.hasSeconds();
+        gen.writeArrayFieldStart("events");
+        for (int row = 0; row < events.size(); row++) {
+            writeEvent(events, row, timed, gen);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Fields follow the declaration order of {@link com.marcoalmeida.midi_tokenizer.model.EventOutput},
+     * which is the order Jackson uses when serializing it.
+     */
+    private static void writeEvent(EventView events, int row, boolean timed, JsonGenerator gen) throws IOException {
+        EventKind kind = events.eventKind(row);
+        gen.writeStartObject();
+        gen.writeFieldName(TYPE);
+        gen.writeString(kind.tag());
+        gen.writeFieldName(TICK);
+        gen.writeNumber(events.tick(row));
+        if (timed) {
+            gen.writeFieldName(TIME_SECONDS);
+            gen.writeNumber(events.seconds(row));
+        }
+        if (kind != EventKind.META) {
+            gen.writeFieldName(CHANNEL);
+            gen.writeNumber(events.channel(row));
+        }
+
+        switch (kind) {
+            case NOTE -> {
+                int noteNumber = events.noteNumber(row);
+                gen.writeFieldName(NOTE_NUMBER);
+                gen.writeNumber(noteNumber);
+                gen.writeFieldName(NOTE_NAME);
+                gen.writeString(NoteUtils.serializedNoteName(noteNumber));
+                gen.writeFieldName(VELOCITY);
+                gen.writeNumber(events.velocity(row));
+                gen.writeFieldName(DURATION_TICKS);
+                gen.writeNumber(events.durationTicks(row));
+                if (timed) {
+                    gen.writeFieldName(DURATION_SECONDS);
+                    gen.writeNumber(events.durationSeconds(row));
+                }
+            }
+            case CONTROL_CHANGE -> {
+                gen.writeFieldName(CONTROLLER);
+                gen.writeNumber(events.controller(row));
+                gen.writeFieldName(VALUE);
+                gen.writeNumber(events.value(row));
+            }
+            case PITCH_BEND -> {
+                gen.writeFieldName(PITCH_BEND);
+                gen.writeNumber(events.pitchBend(row));
+            }
+            case META -> {
+                CharSequence text = events.text(row);
+                if (text != null) {
+                    gen.writeFieldName(TEXT);
+                    gen.writeString(text.toString());
+                }
+            }
+        }
+        gen.writeEndObject();
+    }
+}
@@ -5,14 +5,23 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.stereotype.Component;
 
-import javax.sound.midi.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Core MIDI parser that reads Standard MIDI Files (types 0 and 1)
  * and converts them to an LLM-friendly JSON representation.
+ * Files are memory-mapped and decoded in place by {@link SmfDecoder}.
  */
 @Component
 public class MidiParser {
@@ -38,7 +47,11 @@ public class MidiParser {
     private static final int META_TIME_SIGNATURE = 0x58;
     private static final int META_KEY_SIGNATURE = 0x59;
     
-    private static final long DEFAULT_TEMPO_MICROSECONDS_PER_QUARTER = 500000; // 120 BPM
+    /** Version of the parse output; bump it whenever parsing changes so cached results are invalidated. */
+    public static final int PARSER_VERSION = 1;
+    
+    /** Smallest file for which parallel parsing is worth the task overhead. */
+    public static final int PARALLEL_THRESHOLD_BYTES = 64 * 1024;
     
     private final ObjectMapper objectMapper;
     
@@ -51,345 +64,451 @@ public class MidiParser {
      * Parse a MIDI file and return the JSON output as a string.
      */
     public String parseToJson(File file, boolean includeTimeSeconds, boolean includeMeta) throws Exception {
-        MidiOutput output = parse(file, includeTimeSeconds, includeMeta);
-        return objectMapper.writeValueAsString(output);
+        return parseToJson(file, includeTimeSeconds, includeMeta, false);
+    }
+    
+    /**
+     * Parse a MIDI file and return the JSON output as a string, optionally decoding tracks in parallel.
+     */
+    public String parseToJson(File file, boolean includeTimeSeconds, boolean includeMeta, 
+                              boolean parallel) throws Exception {
+        return parseToJson(file, includeTimeSeconds, includeMeta, parallel, true);
+    }
+    
+    /**
+     * Parse a MIDI file and return the JSON output as a string.
+     * 
+     * @param indent Pretty-print the JSON; false produces compact single-line output
+     */
+    public String parseToJson(File file, boolean includeTimeSeconds, boolean includeMeta, 
+                              boolean parallel, boolean indent) throws Exception {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        parseToJson(file, json, includeTimeSeconds, includeMeta, parallel, indent);
+        return json.toString(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Parse a MIDI file and stream the JSON output as UTF-8.
+     * Tempo and signature meta events are collected in a first pass over the file; tracks
+     * are then decoded and written one at a time, so memory use is the compact event store
+     * of the largest track rather than of the whole file. Parallel decoding needs every
+     * track in memory at once and keeps to the whole-file path.
+     * 
+     * @param out    Destination; flushed but not closed
+     * @param indent Pretty-print the JSON; false produces compact single-line output
+     */
+    public void parseToJson(File file, OutputStream out, boolean includeTimeSeconds, boolean includeMeta, 
+                            boolean parallel, boolean indent) throws Exception {
+        MidiJsonWriter jsonWriter = new MidiJsonWriter(objectMapper, indent);
+        ByteBuffer data = mapFile(file);
+        SmfDecoder.Layout layout = SmfDecoder.layout(data);
+        if (isConcurrent(data, layout, parallel)) {
+            jsonWriter.write(parse(data, layout, file.getName(), includeTimeSeconds, includeMeta, true), out);
+            return;
+        }
+        MidiOutput header = parseHeader(data, layout, file.getName(), includeTimeSeconds);
+        try (MidiJsonWriter.TrackStream tracks = jsonWriter.open(header, out)) {
+            writeTracks(data, layout, header, includeTimeSeconds, includeMeta, tracks);
+        }
+    }
+    
+    /**
+     * Stream an already parsed file as UTF-8 JSON. The stream is flushed but not closed.
+     * 
+     * @param indent Pretty-print the JSON; false produces compact single-line output
+     */
+    public void writeJson(MidiOutput output, OutputStream out, boolean indent) throws IOException {
+        new MidiJsonWriter(objectMapper, indent).write(output, out);
     }
     
     /**
      * Parse a MIDI file and return the structured output.
+     * The file is memory-mapped, so no intermediate copy of its bytes is made.
      */
     public MidiOutput parse(File file, boolean includeTimeSeconds, boolean includeMeta) throws Exception {
-        Sequence sequence = MidiSystem.getSequence(file);
+        return parse(file, includeTimeSeconds, includeMeta, false);
+    }
+    
+    /**
+     * Parse a MIDI file, optionally decoding tracks in parallel.
+     * 
+     * @see #parse(ByteBuffer, String, boolean, boolean, boolean)
+     */
+    public MidiOutput parse(File file, boolean includeTimeSeconds, boolean includeMeta, 
+                            boolean parallel) throws Exception {
+        return parse(mapFile(file), file.getName(), includeTimeSeconds, includeMeta, parallel);
+    }
+    
+    /**
+     * Parse MIDI file contents that are already in memory.
+     * 
+     * @param data     SMF bytes between the buffer's position and limit (heap, direct or mapped)
+     * @param filename Name reported in the file metadata
+     */
+    public MidiOutput parse(ByteBuffer data, String filename, boolean includeTimeSeconds, 
+                            boolean includeMeta) throws Exception {
+        return parse(data, filename, includeTimeSeconds, includeMeta, false);
+    }
+    
+    /**
+     * Parse MIDI file contents, optionally decoding tracks concurrently.
+     * Parallel mode only kicks in for multi-track files of at least
+     * {@link #PARALLEL_THRESHOLD_BYTES}; smaller files are cheaper to parse on the
+     * calling thread. Output is identical in both modes.
+     * 
+     * @param data     SMF bytes between the buffer's position and limit (heap, direct or mapped)
+     * @param filename Name reported in the file metadata
+     * @param parallel Decode tracks on the common fork-join pool
+     */
+    public MidiOutput parse(ByteBuffer data, String filename, boolean includeTimeSeconds, 
+                            boolean includeMeta, boolean parallel) throws Exception {
+        return parse(data, SmfDecoder.layout(data), filename, includeTimeSeconds, includeMeta, parallel);
+    }
+    
+    private MidiOutput parse(ByteBuffer data, SmfDecoder.Layout layout, String filename, 
+                             boolean includeTimeSeconds, boolean includeMeta, boolean parallel) throws Exception {
+        // Tempo, time/key signatures and track events are collected in the same pass
+        FileParser fileParser = isConcurrent(data, layout, parallel) 
+            ? decodeTracksInParallel(data, layout, includeMeta) 
+            : decodeTracks(data, layout, includeMeta);
         
-        MidiOutput output = new MidiOutput();
+        MidiOutput output = buildOutput(fileParser, layout, filename, includeTimeSeconds);
+        output.setTracks(fileParser.tracks);
         
-        // File metadata
-        int format = getSequenceFormat(sequence);
-        int division = sequence.getResolution();
+        // Seconds need the complete tempo map; tracks compute them lazily from it
+        if (includeTimeSeconds) {
+            TempoMap tempo = tempoMap(output);
+            for (TrackOutput track : output.getTracks()) {
+                track.setTrackEvents(track.getTrackEvents().withTempoMap(tempo));
+            }
+        }
+        return output;
+    }
+    
+    private static boolean isConcurrent(ByteBuffer data, SmfDecoder.Layout layout, boolean parallel) {
+        return parallel && layout.trackCount() > 1 && data.remaining() >= PARALLEL_THRESHOLD_BYTES;
+    }
+    
+    /**
+     * Everything but the tracks: a pass that only collects tempo and signature meta events
+     * and each track's end tick, without storing any track events.
+     */
+    private MidiOutput parseHeader(ByteBuffer data, SmfDecoder.Layout layout, String filename, 
+                                   boolean includeTimeSeconds) throws Exception {
+        FileParser headerParser = new FileParser(false, false);
+        for (int i = 0; i < layout.trackCount(); i++) {
+            SmfDecoder.decodeTrack(data, layout, i, headerParser);
+        }
+        return buildOutput(headerParser, layout, filename, includeTimeSeconds);
+    }
+    
+    /**
+     * Decode the tracks one by one and hand each to the JSON stream, dropping it once written.
+     */
+    private void writeTracks(ByteBuffer data, SmfDecoder.Layout layout, MidiOutput header, 
+                             boolean includeTimeSeconds, boolean includeMeta, 
+                             MidiJsonWriter.TrackStream tracks) throws Exception {
+        TempoMap tempo = includeTimeSeconds ? tempoMap(header) : null;
+        for (int i = 0; i < layout.trackCount(); i++) {
+            FileParser trackParser = new FileParser(includeMeta);
+            SmfDecoder.decodeTrack(data, layout, i, trackParser);
+            TrackOutput track = trackParser.tracks.get(0);
+            if (tempo != null) {
+                track.setTrackEvents(track.getTrackEvents().withTempoMap(tempo));
+            }
+            tracks.write(track);
+        }
+    }
+    
+    private MidiOutput buildOutput(FileParser fileParser, SmfDecoder.Layout layout, String filename, 
+                                   boolean includeTimeSeconds) {
+        MidiOutput output = new MidiOutput();
+        Metadata metadata = output.getMetadata();
         
-        // Build tempo map
-        List<TempoEntry> tempoMap = buildTempoMap(sequence);
-        output.getMetadata().setTempoMap(tempoMap);
+        List<TempoEntry> tempoMap = fileParser.buildTempoMap();
+        metadata.setTempoMap(tempoMap);
+        metadata.setTimeSignatures(fileParser.timeSignatures);
+        metadata.setKeySignatures(fileParser.keySignatures);
         
-        // Calculate total duration
-        long maxTick = calculateMaxTick(sequence);
-        double durationSeconds = includeTimeSeconds ? ticksToSeconds(maxTick, division, tempoMap) : 0.0;
+        // File metadata
+        int format = getFileFormat(layout.division(), layout.trackCount());
+        int division = getResolution(layout.division());
+        long maxTick = fileParser.maxTick;
+        double durationSeconds = includeTimeSeconds 
+            ? TempoMap.of(tempoMap, division).ticksToSeconds(maxTick) 
+            : 0.0;
         
-        FileMetadata fileMetadata = new FileMetadata(
-            file.getName(),
+        output.setFile(new FileMetadata(
+            filename,
             format,
             division,
             maxTick,
             durationSeconds
-        );
-        output.setFile(fileMetadata);
-        
-        // Parse tracks
-        Track[] tracks = sequence.getTracks();
-        for (int i = 0; i < tracks.length; i++) {
-            TrackOutput trackOutput = parseTrack(tracks[i], i, division, tempoMap, includeTimeSeconds, includeMeta);
-            output.getTracks().add(trackOutput);
-        }
-        
-        // Extract time and key signatures
-        extractGlobalMetadata(sequence, output.getMetadata());
+        ));
         
         return output;
     }
     
-    private int getSequenceFormat(Sequence sequence) {
-        float divisionType = sequence.getDivisionType();
-        if (divisionType == Sequence.PPQ) {
-            // PPQ sequences can be type 0 or 1; we'll determine by track count
-            return sequence.getTracks().length == 1 ? 0 : 1;
+    private static TempoMap tempoMap(MidiOutput output) {
+        return TempoMap.of(output.getMetadata().getTempoMap(), output.getFile().getDivision());
+    }
+    
+    private FileParser decodeTracks(ByteBuffer data, SmfDecoder.Layout layout, 
+                                    boolean includeMeta) throws Exception {
+        FileParser fileParser = new FileParser(includeMeta);
+        for (int i = 0; i < layout.trackCount(); i++) {
+            SmfDecoder.decodeTrack(data, layout, i, fileParser);
         }
-        return 1; // SMPTE-based sequences are typically type 1
+        return fileParser;
     }
     
-    private List<TempoEntry> buildTempoMap(Sequence sequence) {
-        List<TempoEntry> tempoMap = new ArrayList<>();
+    /**
+     * Decode each track on the common fork-join pool with its own collector, then
+     * merge the collectors in track order so the result matches sequential decoding.
+     */
+    private FileParser decodeTracksInParallel(ByteBuffer data, SmfDecoder.Layout layout, 
+                                              boolean includeMeta) throws Exception {
+        List<ForkJoinTask<FileParser>> tasks = new ArrayList<>();
+        for (int i = 0; i < layout.trackCount(); i++) {
+            int trackIndex = i;
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                FileParser trackParser = new FileParser(includeMeta);
+                SmfDecoder.decodeTrack(data, layout, trackIndex, trackParser);
+                return trackParser;
+            }));
+        }
         
-        for (Track track : sequence.getTracks()) {
-            for (int i = 0; i < track.size(); i++) {
-                MidiEvent event = track.get(i);
-                MidiMessage message = event.getMessage();
-                
-                if (message instanceof MetaMessage) {
-                    MetaMessage meta = (MetaMessage) message;
-                    if (meta.getType() == META_SET_TEMPO) {
-                        byte[] data = meta.getData();
-                        long microsecondsPerQuarter = ((data[0] & 0xFF) << 16) | 
-                                                     ((data[1] & 0xFF) << 8) | 
-                                                     (data[2] & 0xFF);
-                        double bpm = 60000000.0 / microsecondsPerQuarter;
-                        
-                        tempoMap.add(new TempoEntry(event.getTick(), microsecondsPerQuarter, bpm));
-                    }
+        FileParser merged = new FileParser(includeMeta);
+        for (ForkJoinTask<FileParser> task : tasks) {
+            try {
+                merged.append(task.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
                 }
+                throw e;
             }
         }
-        
-        // If no tempo events, add default
-        if (tempoMap.isEmpty()) {
-            tempoMap.add(new TempoEntry(0, DEFAULT_TEMPO_MICROSECONDS_PER_QUARTER, 120.0));
-        }
-        
-        // Sort by tick
-        tempoMap.sort(Comparator.comparingLong(TempoEntry::getTick));
-        
-        return tempoMap;
+        return merged;
     }
     
-    private void extractGlobalMetadata(Sequence sequence, Metadata metadata) {
-        for (Track track : sequence.getTracks()) {
-            for (int i = 0; i < track.size(); i++) {
-                MidiEvent event = track.get(i);
-                MidiMessage message = event.getMessage();
-                
-                if (message instanceof MetaMessage) {
-                    MetaMessage meta = (MetaMessage) message;
-                    
-                    if (meta.getType() == META_TIME_SIGNATURE) {
-                        byte[] data = meta.getData();
-                        int numerator = data[0] & 0xFF;
-                        int denominator = 1 << (data[1] & 0xFF);
-                        int clocksPerClick = data[2] & 0xFF;
-                        int thirtySecondsPer24Clocks = data[3] & 0xFF;
-                        
-                        metadata.getTimeSignatures().add(new TimeSignatureEntry(
-                            event.getTick(), numerator, denominator, 
-                            clocksPerClick, thirtySecondsPer24Clocks
-                        ));
-                    } else if (meta.getType() == META_KEY_SIGNATURE) {
-                        byte[] data = meta.getData();
-                        int sharpsFlats = data[0]; // Signed byte
-                        int majorMinor = data[1] & 0xFF;
-                        
-                        metadata.getKeySignatures().add(new KeySignatureEntry(
-                            event.getTick(), sharpsFlats, majorMinor
-                        ));
-                    }
-                }
+    /**
+     * Map a file read-only into memory.
+     */
+    public static ByteBuffer mapFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("MIDI file too large to map: " + file + " (" + size + " bytes)");
             }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
         }
     }
     
-    private TrackOutput parseTrack(Track track, int index, int division, 
-                                   List<TempoEntry> tempoMap, boolean includeTimeSeconds,
-                                   boolean includeMeta) {
-        TrackOutput trackOutput = new TrackOutput(index);
+    private int getFileFormat(int rawDivision, int trackCount) {
+        if (rawDivision >= 0) {
+            // PPQ files can be type 0 or 1; we'll determine by track count
+            return trackCount == 1 ? 0 : 1;
+        }
+        return 1; // SMPTE-based files are typically type 1
+    }
+    
+    private int getResolution(int rawDivision) {
+        // SMPTE timing stores ticks per frame in the low byte
+        return rawDivision >= 0 ? rawDivision : rawDivision & 0xFF;
+    }
+    
+    /**
+     * Collects everything {@link #parse} needs in one decoder pass: tempo/time/key
+     * signature meta events from all tracks, and per-track note, controller,
+     * pitch bend, program change and text events (in ticks).
+     * In parallel mode each track gets its own collector and they are merged with {@link #append}.
+     */
+    private class FileParser implements SmfEventHandler {
+        private final boolean includeMeta;
+        private final boolean collectTracks;
+        
+        private final List<TempoEntry> tempoEntries = new ArrayList<>();
+        private final List<TimeSignatureEntry> timeSignatures = new ArrayList<>();
+        private final List<KeySignatureEntry> keySignatures = new ArrayList<>();
+        private final List<TrackOutput> tracks = new ArrayList<>();
+        private long maxTick;
         
-        // Map to track note-on events: key is (channel << 8) | noteNumber
-        Map<Integer, NoteOnInfo> activeNotes = new HashMap<>();
+        private TrackOutput trackOutput;
+        private TrackEvents trackEvents;
         
-        for (int i = 0; i < track.size(); i++) {
-            MidiEvent event = track.get(i);
-            MidiMessage message = event.getMessage();
+        // Pending note-ons of the current track, per (channel, noteNumber)
+        private final ActiveNoteTracker activeNotes = new ActiveNoteTracker();
+        
+        FileParser(boolean includeMeta) {
+            this(includeMeta, true);
+        }
+        
+        /**
+         * @param collectTracks Keep track events; false only gathers the file-wide meta events and end tick
+         */
+        FileParser(boolean includeMeta, boolean collectTracks) {
+            this.includeMeta = includeMeta;
+            this.collectTracks = collectTracks;
+        }
+        
+        @Override
+        public void startTrack(int trackIndex) {
+            if (!collectTracks) {
+                return;
+            }
+            trackOutput = new TrackOutput(trackIndex);
+            trackEvents = new TrackEvents();
+            activeNotes.clear();
+        }
+        
+        @Override
+        public void endTrack(int trackIndex, long endTick) {
+            if (collectTracks) {
+                trackEvents.trim();
+                trackOutput.setTrackEvents(trackEvents);
+                tracks.add(trackOutput);
+            }
+            maxTick = Math.max(maxTick, endTick);
+        }
+        
+        @Override
+        public void channelMessage(long tick, int status, int data1, int data2) {
+            if (!collectTracks) {
+                return;
+            }
+            int command = status & 0xF0;
+            int channel = status & 0x0F;
             
-            if (message instanceof ShortMessage) {
-                ShortMessage sm = (ShortMessage) message;
-                int command = sm.getCommand();
-                int channel = sm.getChannel();
+            if (command == NOTE_ON) {
+                int noteNumber = data1;
+                int velocity = data2;
                 
-                if (command == NOTE_ON) {
-                    int noteNumber = sm.getData1();
-                    int velocity = sm.getData2();
-                    
-                    if (velocity == 0) {
-                        // Note-on with velocity 0 is a note-off
-                        handleNoteOff(activeNotes, trackOutput, event.getTick(), channel, 
-                                    noteNumber, division, tempoMap, includeTimeSeconds);
-                    } else {
-                        // Actual note-on
-                        int key = (channel << 8) | noteNumber;
-                        activeNotes.put(key, new NoteOnInfo(event.getTick(), velocity));
-                    }
-                } else if (command == NOTE_OFF) {
-                    int noteNumber = sm.getData1();
-                    handleNoteOff(activeNotes, trackOutput, event.getTick(), channel, 
-                                noteNumber, division, tempoMap, includeTimeSeconds);
-                } else if (command == PROGRAM_CHANGE) {
-                    int program = sm.getData1();
-                    trackOutput.getProgramChanges().add(
-                        new ProgramChangeEvent(event.getTick(), channel, program)
-                    );
-                } else if (command == CONTROL_CHANGE) {
-                    EventOutput eventOutput = new EventOutput();
-                    eventOutput.setType("control_change");
-                    eventOutput.setTick(event.getTick());
-                    eventOutput.setChannel(channel);
-                    eventOutput.setController(sm.getData1());
-                    eventOutput.setValue(sm.getData2());
-                    
-                    if (includeTimeSeconds) {
-                        eventOutput.setTimeSeconds(ticksToSeconds(event.getTick(), division, tempoMap));
-                    }
-                    
-                    trackOutput.getEvents().add(eventOutput);
-                } else if (command == PITCH_BEND) {
-                    int lsb = sm.getData1();
-                    int msb = sm.getData2();
-                    int pitchBend = (msb << 7) | lsb;
-                    
-                    EventOutput eventOutput = new EventOutput();
-                    eventOutput.setType("pitch_bend");
-                    eventOutput.setTick(event.getTick());
-                    eventOutput.setChannel(channel);
-                    eventOutput.setPitchBend(pitchBend - 8192); // Center at 0
-                    
-                    if (includeTimeSeconds) {
-                        eventOutput.setTimeSeconds(ticksToSeconds(event.getTick(), division, tempoMap));
-                    }
-                    
-                    trackOutput.getEvents().add(eventOutput);
+                if (velocity == 0) {
+                    // Note-on with velocity 0 is a note-off
+                    handleNoteOff(activeNotes, trackEvents, tick, channel, noteNumber);
+                } else {
+                    // Actual note-on
+                    activeNotes.noteOn(channel, noteNumber, tick, velocity);
                 }
-            } else if (includeMeta && message instanceof MetaMessage) {
-                MetaMessage meta = (MetaMessage) message;
-                processMetaMessage(meta, event.getTick(), trackOutput, division, tempoMap, includeTimeSeconds);
+            } else if (command == NOTE_OFF) {
+                handleNoteOff(activeNotes, trackEvents, tick, channel, data1);
+            } else if (command == PROGRAM_CHANGE) {
+                trackOutput.getProgramChanges().add(
+                    new ProgramChangeEvent(tick, channel, data1)
+                );
+            } else if (command == CONTROL_CHANGE) {
+                trackEvents.addControlChange(tick, channel, data1, data2);
+            } else if (command == PITCH_BEND) {
+                int pitchBend = (data2 << 7) | data1;
+                trackEvents.addPitchBend(tick, channel, pitchBend - 8192); // Center at 0
             }
         }
         
-        return trackOutput;
-    }
-    
-    private void handleNoteOff(Map<Integer, NoteOnInfo> activeNotes, TrackOutput trackOutput,
-                              long offTick, int channel, int noteNumber, int division,
-                              List<TempoEntry> tempoMap, boolean includeTimeSeconds) {
-        int key = (channel << 8) | noteNumber;
-        NoteOnInfo noteOn = activeNotes.remove(key);
+        @Override
+        public void metaMessage(long tick, int type, ByteBuffer data, int offset, int length) {
+            if (type == META_SET_TEMPO && length >= 3) {
+                long microsecondsPerQuarter = ((data.get(offset) & 0xFF) << 16) | 
+                                             ((data.get(offset + 1) & 0xFF) << 8) | 
+                                             (data.get(offset + 2) & 0xFF);
+                double bpm = 60000000.0 / microsecondsPerQuarter;
+                
+                tempoEntries.add(new TempoEntry(tick, microsecondsPerQuarter, bpm));
+            } else if (type == META_TIME_SIGNATURE && length >= 4) {
+                int numerator = data.get(offset) & 0xFF;
+                int denominator = 1 << (data.get(offset + 1) & 0xFF);
+                int clocksPerClick = data.get(offset + 2) & 0xFF;
+                int thirtySecondsPer24Clocks = data.get(offset + 3) & 0xFF;
+                
+                timeSignatures.add(new TimeSignatureEntry(
+                    tick, numerator, denominator, 
+                    clocksPerClick, thirtySecondsPer24Clocks
+                ));
+            } else if (type == META_KEY_SIGNATURE && length >= 2) {
+                int sharpsFlats = data.get(offset); // Signed byte
+                int majorMinor = data.get(offset + 1) & 0xFF;
+                
+                keySignatures.add(new KeySignatureEntry(
+                    tick, sharpsFlats, majorMinor
+                ));
+            } else if (includeMeta) {
+                processMetaMessage(type, data, offset, length, tick, trackOutput, trackEvents);
+            }
+        }
         
-        if (noteOn != null) {
-            long durationTicks = offTick - noteOn.tick;
-            
-            EventOutput eventOutput = new EventOutput();
-            eventOutput.setType("note");
-            eventOutput.setTick(noteOn.tick);
-            eventOutput.setChannel(channel);
-            eventOutput.setNoteNumber(noteNumber);
-            eventOutput.setNoteName(NoteUtils.noteNumberToName(noteNumber));
-            eventOutput.setVelocity(noteOn.velocity);
-            eventOutput.setDurationTicks(durationTicks);
-            
-            if (includeTimeSeconds) {
-                double startTime = ticksToSeconds(noteOn.tick, division, tempoMap);
-                double endTime = ticksToSeconds(offTick, division, tempoMap);
-                eventOutput.setTimeSeconds(startTime);
-                eventOutput.setDurationSeconds(endTime - startTime);
+        /**
+         * Add the results of a collector that decoded later tracks.
+         */
+        void append(FileParser other) {
+            tempoEntries.addAll(other.tempoEntries);
+            timeSignatures.addAll(other.timeSignatures);
+            keySignatures.addAll(other.keySignatures);
+            tracks.addAll(other.tracks);
+            maxTick = Math.max(maxTick, other.maxTick);
+        }
+        
+        List<TempoEntry> buildTempoMap() {
+            // If no tempo events, add default
+            if (tempoEntries.isEmpty()) {
+                tempoEntries.add(new TempoEntry(0, TempoMap.DEFAULT_MICROSECONDS_PER_QUARTER, 120.0));
             }
             
-            trackOutput.getEvents().add(eventOutput);
+            // Sort by tick
+            tempoEntries.sort(Comparator.comparingLong(TempoEntry::getTick));
+            
+            return tempoEntries;
         }
     }
     
-    private void processMetaMessage(MetaMessage meta, long tick, TrackOutput trackOutput,
-                                   int division, List<TempoEntry> tempoMap, boolean includeTimeSeconds) {
-        int type = meta.getType();
-        byte[] data = meta.getData();
+    private void handleNoteOff(ActiveNoteTracker activeNotes, TrackEvents trackEvents,
+                              long offTick, int channel, int noteNumber) {
+        long noteOn = activeNotes.noteOff(channel, noteNumber);
         
-        String text = null;
-        String metaType = null;
+        if (noteOn != ActiveNoteTracker.NONE) {
+            long onTick = ActiveNoteTracker.tick(noteOn);
+            trackEvents.addNote(onTick, channel, noteNumber, ActiveNoteTracker.velocity(noteOn), 
+                                offTick - onTick);
+        }
+    }
+    
+    private void processMetaMessage(int type, ByteBuffer data, int offset, int length, long tick, 
+                                   TrackOutput trackOutput, TrackEvents trackEvents) {
+        String metaType;
         
         switch (type) {
             case META_TRACK_NAME:
                 metaType = "track_name";
-                text = new String(data);
-                trackOutput.setName(text);
+                trackOutput.setName(decodeText(data, offset, length));
                 break;
             case META_INSTRUMENT_NAME:
                 metaType = "instrument_name";
-                text = new String(data);
                 break;
             case META_TEXT:
                 metaType = "text";
-                text = new String(data);
                 break;
             case META_COPYRIGHT:
                 metaType = "copyright";
-                text = new String(data);
                 break;
             case META_LYRIC:
                 metaType = "lyric";
-                text = new String(data);
                 break;
             case META_MARKER:
                 metaType = "marker";
-                text = new String(data);
                 break;
             case META_CUE_POINT:
                 metaType = "cue_point";
-                text = new String(data);
                 break;
             default:
                 return; // Skip other meta events
         }
         
-        if (metaType != null) {
-            EventOutput eventOutput = new EventOutput();
-            eventOutput.setType("meta");
-            eventOutput.setTick(tick);
-            eventOutput.setText(metaType + ": " + (text != null ? text : ""));
-            
-            if (includeTimeSeconds) {
-                eventOutput.setTimeSeconds(ticksToSeconds(tick, division, tempoMap));
-            }
-            
-            trackOutput.getEvents().add(eventOutput);
-        }
-    }
-    
-    private long calculateMaxTick(Sequence sequence) {
-        long maxTick = 0;
-        for (Track track : sequence.getTracks()) {
-            if (track.size() > 0) {
-                long trackEnd = track.get(track.size() - 1).getTick();
-                maxTick = Math.max(maxTick, trackEnd);
-            }
-        }
-        return maxTick;
-    }
-    
-    private double ticksToSeconds(long ticks, int division, List<TempoEntry> tempoMap) {
-        double seconds = 0.0;
-        long currentTick = 0;
-        
-        for (int i = 0; i < tempoMap.size(); i++) {
-            TempoEntry tempo = tempoMap.get(i);
-            long nextTick = (i + 1 < tempoMap.size()) ? tempoMap.get(i + 1).getTick() : ticks;
-            
-            if (ticks <= tempo.getTick()) {
-                break;
-            }
-            
-            if (nextTick > ticks) {
-                nextTick = ticks;
-            }
-            
-            long ticksInSegment = nextTick - Math.max(currentTick, tempo.getTick());
-            double secondsInSegment = (ticksInSegment * tempo.getMicrosecondsPerQuarter()) / 
-                                     (division * 1000000.0);
-            seconds += secondsInSegment;
-            currentTick = nextTick;
-        }
-        
-        // Handle ticks before first tempo change
-        if (currentTick < ticks && (tempoMap.isEmpty() || tempoMap.get(0).getTick() > 0)) {
-            long firstTempoTick = tempoMap.isEmpty() ? ticks : Math.min(ticks, tempoMap.get(0).getTick());
-            long ticksInSegment = firstTempoTick - currentTick;
-            double secondsInSegment = (ticksInSegment * DEFAULT_TEMPO_MICROSECONDS_PER_QUARTER) / 
-                                     (division * 1000000.0);
-            seconds = secondsInSegment + seconds;
-        }
-        
-        return seconds;
+        // Text is decoded from the source buffer only when it is serialized
+        trackEvents.addMeta(tick, new MetaText(metaType + ": ", data, offset, length));
     }
     
-    private static class NoteOnInfo {
-        final long tick;
-        final int velocity;
-        
-        NoteOnInfo(long tick, int velocity) {
-            this.tick = tick;
-            this.velocity = velocity;
-        }
+    private static String decodeText(ByteBuffer data, int offset, int length) {
+        byte[] bytes = new byte[length];
+        data.get(offset, bytes);
+        return new String(bytes);
     }
 }
@@ -1,8 +1,12 @@
 package com.marcoalmeida.midi_tokenizer.midi;
 
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
 /**
  * Utility class for converting MIDI note numbers to scientific pitch notation.
  * Uses the A440 standard and 12-tone equal temperament (12-TET) mapping.
+ * Names for all 128 note numbers are precomputed, so lookups never allocate.
  */
 public class NoteUtils {
     
@@ -10,6 +14,19 @@ public class NoteUtils {
         "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"
     };
     
+    private static final String[] SCIENTIFIC_NAMES = new String[128];
+    private static final String[] STRUDEL_NAMES = new String[128];
+    private static final SerializableString[] SERIALIZED_NAMES = new SerializableString[128];
+    
+    static {
+        for (int noteNumber = 0; noteNumber < 128; noteNumber++) {
+            String name = NOTE_NAMES[noteNumber % 12] + ((noteNumber / 12) - 1);
+            SCIENTIFIC_NAMES[noteNumber] = name.intern();
+            STRUDEL_NAMES[noteNumber] = name.toLowerCase().intern();
+            SERIALIZED_NAMES[noteNumber] = new SerializedString(SCIENTIFIC_NAMES[noteNumber]);
+        }
+    }
+    
     /**
      * Converts a MIDI note number to scientific pitch notation.
      * Middle C (MIDI note 60) is represented as C4.
@@ -19,14 +36,33 @@ public class NoteUtils {
      * @throws IllegalArgumentException if noteNumber is not in range 0-127
      */
     public static String noteNumberToName(int noteNumber) {
-        if (noteNumber < 0 || noteNumber > 127) {
-            throw new IllegalArgumentException("MIDI note number must be between 0 and 127, got: " + noteNumber);
-        }
-        
-        int octave = (noteNumber / 12) - 1;
-        int noteIndex = noteNumber % 12;
-        
-        return NOTE_NAMES[noteIndex] + octave;
+        checkRange(noteNumber);
+        return SCIENTIFIC_NAMES[noteNumber];
+    }
+    
+    /**
+     * Converts a MIDI note number to the lower-case name used in Strudel patterns.
+     * 
+     * @param noteNumber MIDI note number (0-127)
+     * @return Lower-case note name (e.g., "c4", "a#5")
+     * @throws IllegalArgumentException if noteNumber is not in range 0-127
+     */
+    public static String noteNumberToStrudelName(int noteNumber) {
+        checkRange(noteNumber);
+        return STRUDEL_NAMES[noteNumber];
+    }
+    
+    /**
+     * Scientific pitch name with its UTF-8 and JSON-quoted encodings cached,
+     * for writing with {@code JsonGenerator.writeString(SerializableString)}.
+     * 
+     * @param noteNumber MIDI note number (0-127)
+     * @return Pre-encoded note name (e.g., "C4")
+     * @throws IllegalArgumentException if noteNumber is not in range 0-127
+     */
+    public static SerializableString serializedNoteName(int noteNumber) {
+        checkRange(noteNumber);
+        return SERIALIZED_NAMES[noteNumber];
     }
     
     /**
@@ -58,4 +94,10 @@ public class NoteUtils {
         
         return (noteNumber / 12) - 1;
     }
+    
+    private static void checkRange(int noteNumber) {
+        if (noteNumber < 0 || noteNumber > 127) {
+            throw new IllegalArgumentException("MIDI note number must be between 0 and 127, got: " + noteNumber);
+        }
+    }
 }
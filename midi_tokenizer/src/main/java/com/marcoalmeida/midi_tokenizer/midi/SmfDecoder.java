@@ -0,0 +1,254 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import javax.sound.midi.InvalidMidiDataException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for Standard MIDI Files (types 0 and 1).
+ * Reads MThd/MTrk chunks directly from bytes and reports every event to a
+ * {@link SmfEventHandler}, without building an intermediate {@code Sequence}.
+ * Works in place on any {@link ByteBuffer}, including memory-mapped files:
+ * meta and SysEx payloads are handed out as offsets into the same buffer.
+ */
+public class SmfDecoder {
+
+    private static final int CHUNK_MTHD = 0x4D546864; // "MThd"
+    private static final int CHUNK_MTRK = 0x4D54726B; // "MTrk"
+
+    private static final int STATUS_SYSEX = 0xF0;
+    private static final int STATUS_SYSEX_ESCAPE = 0xF7;
+    private static final int STATUS_META = 0xFF;
+    private static final int META_END_OF_TRACK = 0x2F;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final SmfEventHandler handler;
+    private int pos;
+    private int end;
+    private int trackIndex;
+
+    private SmfDecoder(ByteBuffer data, SmfEventHandler handler) {
+        this.data = data;
+        this.size = data.limit();
+        this.handler = handler;
+    }
+
+    /**
+     * Decodes a complete Standard MIDI File held in a byte array.
+     *
+     * @param data    File contents
+     * @param handler Receiver for header, track and event callbacks
+     * @throws InvalidMidiDataException if the data is not a valid type 0 or 1 SMF
+     */
+    public static void decode(byte[] data, SmfEventHandler handler) throws InvalidMidiDataException {
+        decode(ByteBuffer.wrap(data), handler);
+    }
+
+    /**
+     * Decodes a complete Standard MIDI File from the remaining bytes of a buffer.
+     * The buffer's position and limit are not modified.
+     *
+     * @param data    File contents (heap, direct or memory-mapped)
+     * @param handler Receiver for header, track and event callbacks
+     * @throws InvalidMidiDataException if the data is not a valid type 0 or 1 SMF
+     */
+    public static void decode(ByteBuffer data, SmfEventHandler handler) throws InvalidMidiDataException {
+        ByteBuffer slice = data.slice();
+        Layout layout = new SmfDecoder(slice, handler).readLayout();
+        handler.header(layout.format(), layout.declaredTracks(), layout.division());
+
+        SmfDecoder decoder = new SmfDecoder(slice, handler);
+        for (int i = 0; i < layout.trackCount(); i++) {
+            decoder.decodeTrack(layout, i);
+        }
+    }
+
+    /**
+     * Reads the header and locates every MTrk chunk without decoding any events.
+     * Tracks can then be decoded independently (and concurrently) with
+     * {@link #decodeTrack(ByteBuffer, Layout, int, SmfEventHandler)}.
+     *
+     * @param data File contents; its position and limit are not modified
+     * @return Header fields and track chunk boundaries
+     * @throws InvalidMidiDataException if the data is not a valid type 0 or 1 SMF
+     */
+    public static Layout layout(ByteBuffer data) throws InvalidMidiDataException {
+        return new SmfDecoder(data.slice(), null).readLayout();
+    }
+
+    /**
+     * Decodes a single track. Only {@code startTrack}, event and {@code endTrack}
+     * callbacks are made; the header is not reported.
+     *
+     * @param data       The same buffer (and position) that was passed to {@link #layout}
+     * @param layout     Layout of {@code data}
+     * @param trackIndex Zero-based track index
+     * @param handler    Receiver for the track's callbacks
+     * @throws InvalidMidiDataException if the track data is malformed
+     */
+    public static void decodeTrack(ByteBuffer data, Layout layout, int trackIndex, SmfEventHandler handler)
+            throws InvalidMidiDataException {
+        new SmfDecoder(data.slice(), handler).decodeTrack(layout, trackIndex);
+    }
+
+    /**
+     * Header fields and MTrk chunk boundaries of a Standard MIDI File.
+     *
+     * @param format         SMF format from the header (0 or 1)
+     * @param declaredTracks Number of tracks declared in the header
+     * @param division       Raw division word (negative values denote SMPTE timing)
+     * @param trackStarts    Offset of each MTrk body, relative to the buffer position
+     * @param trackEnds      End offset (exclusive) of each MTrk body
+     */
+    public record Layout(int format, int declaredTracks, int division, int[] trackStarts, int[] trackEnds) {
+
+        /**
+         * Number of MTrk chunks present in the data.
+         */
+        public int trackCount() {
+            return trackStarts.length;
+        }
+    }
+
+    private Layout readLayout() throws InvalidMidiDataException {
+        if (size < 14 || readInt(0) != CHUNK_MTHD) {
+            throw new InvalidMidiDataException("Not a Standard MIDI File: missing MThd header");
+        }
+
+        long headerLength = readInt(4) & 0xFFFFFFFFL;
+        if (headerLength < 6) {
+            throw new InvalidMidiDataException("Invalid MThd header length: " + headerLength);
+        }
+
+        int format = readShort(8);
+        int declaredTracks = readShort(10);
+        int division = (short) readShort(12);
+
+        if (format != 0 && format != 1) {
+            throw new InvalidMidiDataException("Unsupported SMF format: " + format);
+        }
+
+        int[] starts = new int[declaredTracks];
+        int[] ends = new int[declaredTracks];
+        int count = 0;
+
+        long chunkStart = 8 + headerLength;
+        while (count < declaredTracks && chunkStart + 8 <= size) {
+            int chunkType = readInt((int) chunkStart);
+            long chunkLength = readInt((int) chunkStart + 4) & 0xFFFFFFFFL;
+            long bodyStart = chunkStart + 8;
+
+            // Unknown chunks are skipped, as required by the SMF specification
+            if (chunkType == CHUNK_MTRK) {
+                starts[count] = (int) bodyStart;
+                ends[count] = (int) Math.min(size, bodyStart + chunkLength);
+                count++;
+            }
+            chunkStart = bodyStart + chunkLength;
+        }
+
+        return new Layout(format, declaredTracks, division,
+            Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+
+    /**
+     * Decodes the events of one MTrk chunk body.
+     */
+    private void decodeTrack(Layout layout, int index) throws InvalidMidiDataException {
+        trackIndex = index;
+        pos = layout.trackStarts()[index];
+        end = layout.trackEnds()[index];
+        handler.startTrack(trackIndex);
+
+        long tick = 0;
+        int runningStatus = 0;
+
+        while (pos < end) {
+            tick += readVariableLength();
+
+            int status = readUnsigned();
+            int data1 = -1;
+
+            if (status < 0x80) {
+                // Running status: reuse the previous channel status, this byte is data1
+                if (runningStatus == 0) {
+                    throw new InvalidMidiDataException(
+                        "Data byte without running status in track " + trackIndex + " at byte " + (pos - 1));
+                }
+                data1 = status;
+                status = runningStatus;
+            }
+
+            if (status < STATUS_SYSEX) {
+                // Channel voice message; meta and SysEx events leave running status untouched
+                runningStatus = status;
+                int command = status & 0xF0;
+                if (data1 < 0) {
+                    data1 = readUnsigned();
+                }
+                int data2 = (command == 0xC0 || command == 0xD0) ? 0 : readUnsigned();
+                handler.channelMessage(tick, status, data1, data2);
+            } else if (status == STATUS_META) {
+                int type = readUnsigned();
+                int length = readPayloadLength();
+                handler.metaMessage(tick, type, data, pos, length);
+                pos += length;
+                if (type == META_END_OF_TRACK) {
+                    break;
+                }
+            } else if (status == STATUS_SYSEX || status == STATUS_SYSEX_ESCAPE) {
+                int length = readPayloadLength();
+                handler.sysexMessage(tick, status, data, pos, length);
+                pos += length;
+            } else {
+                throw new InvalidMidiDataException(
+                    "Invalid status byte 0x" + Integer.toHexString(status) + " in track " + trackIndex);
+            }
+        }
+
+        handler.endTrack(trackIndex, tick);
+    }
+
+    /**
+     * Reads a variable-length quantity of at most four bytes.
+     */
+    private int readVariableLength() throws InvalidMidiDataException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int b = readUnsigned();
+            value = (value << 7) | (b & 0x7F);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new InvalidMidiDataException(
+            "Variable-length quantity longer than 4 bytes in track " + trackIndex + " at byte " + pos);
+    }
+
+    /**
+     * Reads a meta/SysEx length and checks that the payload fits in the track.
+     */
+    private int readPayloadLength() throws InvalidMidiDataException {
+        int length = readVariableLength();
+        if (length > end - pos) {
+            throw new InvalidMidiDataException("Unexpected end of data in track " + trackIndex);
+        }
+        return length;
+    }
+
+    private int readUnsigned() throws InvalidMidiDataException {
+        if (pos >= end) {
+            throw new InvalidMidiDataException("Unexpected end of data in track " + trackIndex);
+        }
+        return data.get(pos++) & 0xFF;
+    }
+
+    private int readInt(int offset) {
+        return data.getInt(offset);
+    }
+
+    private int readShort(int offset) {
+        return data.getShort(offset) & 0xFFFF;
+    }
+}
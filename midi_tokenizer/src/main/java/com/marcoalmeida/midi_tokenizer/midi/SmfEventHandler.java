@@ -0,0 +1,67 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives events from {@link SmfDecoder} in file order.
+ * All callbacks default to no-ops so a handler only implements what it needs.
+ */
+public interface SmfEventHandler {
+
+    /**
+     * Called once with the MThd header fields.
+     *
+     * @param format     SMF format from the header (0 or 1)
+     * @param trackCount Number of tracks declared in the header
+     * @param division   Raw division word (negative values denote SMPTE timing)
+     */
+    default void header(int format, int trackCount, int division) {}
+
+    /**
+     * Called before the first event of each MTrk chunk.
+     *
+     * @param trackIndex Zero-based track index
+     */
+    default void startTrack(int trackIndex) {}
+
+    /**
+     * Called for every channel voice message, with running status already resolved.
+     *
+     * @param tick   Absolute tick of the event
+     * @param status Status byte (command in the high nibble, channel in the low nibble)
+     * @param data1  First data byte
+     * @param data2  Second data byte (0 for program change and channel pressure)
+     */
+    default void channelMessage(long tick, int status, int data1, int data2) {}
+
+    /**
+     * Called for every meta event. The payload is read with absolute gets on {@code data};
+     * handlers must not change the buffer's position or limit.
+     *
+     * @param tick   Absolute tick of the event
+     * @param type   Meta event type (e.g. 0x51 for Set Tempo)
+     * @param data   Buffer holding the payload
+     * @param offset Offset of the payload in {@code data}
+     * @param length Payload length in bytes
+     */
+    default void metaMessage(long tick, int type, ByteBuffer data, int offset, int length) {}
+
+    /**
+     * Called for every SysEx event (0xF0) and escape sequence (0xF7).
+     *
+     * @param tick   Absolute tick of the event
+     * @param status 0xF0 or 0xF7
+     * @param data   Buffer holding the payload (without the status byte)
+     * @param offset Offset of the payload in {@code data}
+     * @param length Payload length in bytes
+     */
+    default void sysexMessage(long tick, int status, ByteBuffer data, int offset, int length) {}
+
+    /**
+     * Called after the last event of a track.
+     *
+     * @param trackIndex Zero-based track index
+     * @param endTick    Absolute tick of the last event (including End of Track)
+     */
+    default void endTrack(int trackIndex, long endTick) {}
+}
@@ -0,0 +1,208 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Off-heap storage scope for parsed events.
+ * Tracks copied into an arena are stored as fixed-width records in direct memory,
+ * so large corpora add almost nothing to the garbage-collected heap. Everything
+ * allocated by an arena shares its lifetime: open one per file or per batch, and
+ * after {@link #close()} every view it handed out throws {@link IllegalStateException}.
+ * Closing only invalidates the views and drops the arena's references; the direct
+ * buffers themselves are freed by the garbage collector once unreachable, as for any
+ * {@link ByteBuffer#allocateDirect} buffer, not at the moment of closing.
+ *
+ * <p>Record layout (16 bytes, native byte order): tick (long), durationTicks (int),
+ * kind, channel, note, velocity (one byte each). Notes longer than {@link Integer#MAX_VALUE}
+ * ticks store {@link #LONG_DURATION} in the record and their duration on the heap. Tracks whose seconds were supplied
+ * directly rather than by a tempo map also store start and duration seconds (two doubles)
+ * per row. Meta text stays on the heap.
+ *
+ * <p>An arena is not thread-safe; views are safe to read concurrently while the arena is open.
+ */
+public final class EventArena implements AutoCloseable {
+
+    /** Size of one event record, see {@link #putRecord}. */
+    public static final int RECORD_BYTES = 16;
+    static final int SECONDS_BYTES = 16;
+
+    /** Record duration of a note too long for an int, see {@link #putRecord}. */
+    public static final int LONG_DURATION = -1;
+
+    private static final int SLAB_BYTES = 1 << 20;
+
+    private final List<OffHeapTrackEvents> views = new ArrayList<>();
+    private ByteBuffer slab;
+    private long allocatedBytes;
+    private long usedBytes;
+    private boolean closed;
+
+    private EventArena() {}
+
+    /**
+     * Open a new, empty arena.
+     */
+    public static EventArena open() {
+        return new EventArena();
+    }
+
+    /**
+     * Copy a track's events into this arena.
+     *
+     * @param events Source rows (any {@link EventView})
+     * @return Read-only view over the off-heap copy, valid until this arena is closed
+     * @throws IllegalArgumentException if the track needs more than 2 GB of records
+     */
+    public EventView copyOf(EventView events) {
+        ensureOpen();
+        int size = events.size();
+        boolean storeSeconds = events.hasSeconds() && events.getTempoMap() == null;
+        int rowBytes = RECORD_BYTES + (storeSeconds ? SECONDS_BYTES : 0);
+        long bytes = (long) size * rowBytes;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "Track of " + size + " events is too large for an event arena (" + bytes + " bytes)");
+        }
+
+        ByteBuffer records = allocate((int) bytes);
+        CharSequence[] text = null;
+        int noteCount = 0;
+        int[] longRows = new int[0];
+        long[] longDurations = new long[0];
+
+        for (int row = 0; row < size; row++) {
+            if (!putRecord(records, row * RECORD_BYTES, events, row)) {
+                longRows = Arrays.copyOf(longRows, longRows.length + 1);
+                longDurations = Arrays.copyOf(longDurations, longDurations.length + 1);
+                longRows[longRows.length - 1] = row;
+                longDurations[longDurations.length - 1] = events.durationTicks(row);
+            }
+
+            if (storeSeconds) {
+                int secondsOffset = size * RECORD_BYTES + row * SECONDS_BYTES;
+                records.putDouble(secondsOffset, events.seconds(row));
+                records.putDouble(secondsOffset + 8, events.durationSeconds(row));
+            }
+            if (events.kind(row) == TrackEvents.KIND_META) {
+                if (text == null) {
+                    text = new CharSequence[size];
+                }
+                text[row] = events.text(row);
+            }
+            if (events.isNote(row)) {
+                noteCount++;
+            }
+        }
+
+        return register(new OffHeapTrackEvents(this, records, size, noteCount, text,
+            longRows, longDurations, storeSeconds, events.getTempoMap()));
+    }
+
+    /**
+     * Write one row in the arena's record layout, using the buffer's byte order.
+     *
+     * @return False if the row's duration does not fit in the record; {@link #LONG_DURATION}
+     *         is written instead and the caller must keep the duration elsewhere
+     */
+    public static boolean putRecord(ByteBuffer out, int offset, EventView events, int row) {
+        long durationTicks = events.durationTicks(row);
+        boolean fits = durationTicks >= 0 && durationTicks <= Integer.MAX_VALUE;
+        out.putLong(offset, events.tick(row));
+        out.putInt(offset + 8, fits ? (int) durationTicks : LONG_DURATION);
+        out.put(offset + 12, events.kind(row));
+        out.put(offset + 13, (byte) events.channel(row));
+        out.put(offset + 14, (byte) events.noteNumber(row));
+        out.put(offset + 15, (byte) events.velocity(row));
+        return fits;
+    }
+
+    /**
+     * Read-only view over records written with {@link #putRecord} that no arena owns,
+     * e.g. a memory-mapped file. The view stays valid as long as the buffer does.
+     *
+     * @param records   {@code size} records, read with the buffer's byte order
+     * @param noteCount Number of note rows
+     * @param text      Meta text per row, or null if the track has none
+     * @param tempoMap  Tempo map for seconds, or null
+     */
+    public static EventView wrap(ByteBuffer records, int size, int noteCount, CharSequence[] text,
+                                 TempoMap tempoMap) {
+        return new OffHeapTrackEvents(null, records, size, noteCount, text, null, null, false, tempoMap);
+    }
+
+    /**
+     * Move every track of a parsed file into this arena, replacing its on-heap events.
+     */
+    public void moveOffHeap(MidiOutput output) {
+        for (TrackOutput track : output.getTracks()) {
+            track.setTrackEvents(copyOf(track.getTrackEvents()));
+        }
+    }
+
+    /**
+     * Direct memory reserved by this arena, in bytes.
+     */
+    public long allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Direct memory occupied by event records, in bytes.
+     */
+    public long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Invalidate all views and drop the arena's references to its memory.
+     * The direct buffers are returned to the system when the garbage collector finds them
+     * unreachable, not by this call.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (OffHeapTrackEvents view : views) {
+            view.release();
+        }
+        views.clear();
+        slab = null;
+    }
+
+    /**
+     * Slice {@code bytes} from the current slab, starting a new one when it is full.
+     * Oversized requests get a dedicated buffer.
+     */
+    private ByteBuffer allocate(int bytes) {
+        usedBytes += bytes;
+        if (bytes > SLAB_BYTES / 4) {
+            allocatedBytes += bytes;
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        if (slab == null || slab.remaining() < bytes) {
+            slab = ByteBuffer.allocateDirect(SLAB_BYTES).order(ByteOrder.nativeOrder());
+            allocatedBytes += SLAB_BYTES;
+        }
+        ByteBuffer slice = slab.slice(slab.position(), bytes).order(ByteOrder.nativeOrder());
+        slab.position(slab.position() + bytes);
+        return slice;
+    }
+
+    OffHeapTrackEvents register(OffHeapTrackEvents view) {
+        ensureOpen();
+        views.add(view);
+        return view;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Event arena is closed");
+        }
+    }
+}
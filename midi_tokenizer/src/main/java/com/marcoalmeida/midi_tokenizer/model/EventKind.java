@@ -0,0 +1,56 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+/**
+ * Kinds of event stored per track.
+ * Hot paths compare kinds instead of the JSON {@code type} string; {@link #tag()} is the
+ * shared constant written to JSON and {@link #code()} the byte used in event storage columns.
+ */
+public enum EventKind {
+    NOTE("note", TrackEvents.KIND_NOTE),
+    CONTROL_CHANGE("control_change", TrackEvents.KIND_CONTROL_CHANGE),
+    PITCH_BEND("pitch_bend", TrackEvents.KIND_PITCH_BEND),
+    META("meta", TrackEvents.KIND_META);
+
+    private static final EventKind[] BY_CODE = values();
+
+    private final String tag;
+    private final byte code;
+
+    EventKind(String tag, byte code) {
+        this.tag = tag;
+        this.code = code;
+    }
+
+    /**
+     * Type tag as written to JSON (e.g. "note").
+     */
+    public String tag() {
+        return tag;
+    }
+
+    public byte code() {
+        return code;
+    }
+
+    /**
+     * Kind for a storage column code.
+     */
+    public static EventKind of(byte code) {
+        return BY_CODE[code];
+    }
+
+    /**
+     * Kind for a JSON type tag, or null if the tag is unknown.
+     */
+    public static EventKind fromTag(String tag) {
+        if (tag == null) {
+            return null;
+        }
+        for (EventKind kind : BY_CODE) {
+            if (kind.tag.equals(tag)) {
+                return kind;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,6 @@
 package com.marcoalmeida.midi_tokenizer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 /**
@@ -29,14 +30,26 @@ public class EventOutput {
     // For pitch bend events
     private Integer pitchBend;
     
-    // For meta events
-    private String text;
+    // For meta events (may be decoded lazily, see setDeferredText)
+    private CharSequence text;
     
     public EventOutput() {}
     
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
     
+    /**
+     * Kind matching {@link #getType()}, or null if the type is not a known kind.
+     */
+    @JsonIgnore
+    public EventKind getKind() { return EventKind.fromTag(type); }
+    
+    /**
+     * Sets the type from a kind, sharing the kind's constant tag string.
+     */
+    @JsonIgnore
+    public void setKind(EventKind kind) { this.type = kind.tag(); }
+    
     public long getTick() { return tick; }
     public void setTick(long tick) { this.tick = tick; }
     
@@ -73,6 +86,13 @@ public class EventOutput {
     public Integer getPitchBend() { return pitchBend; }
     public void setPitchBend(Integer pitchBend) { this.pitchBend = pitchBend; }
     
-    public String getText() { return text; }
+    public String getText() { return text != null ? text.toString() : null; }
     public void setText(String text) { this.text = text; }
+    
+    /**
+     * Sets meta text whose {@code toString()} is only called when the text is read,
+     * so parsers can defer decoding until serialization.
+     */
+    @JsonIgnore
+    public void setDeferredText(CharSequence text) { this.text = text; }
 }
@@ -0,0 +1,110 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import com.marcoalmeida.midi_tokenizer.midi.NoteUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only, row-oriented access to the events of one track, independent of where
+ * they are stored (on-heap {@link TrackEvents} or an off-heap {@link EventArena}).
+ * Converters and writers iterate rows by index instead of materializing
+ * {@link EventOutput} objects. See {@link TrackEvents} for how columns are used per kind.
+ */
+public interface EventView {
+
+    int size();
+
+    int noteCount();
+
+    long tick(int row);
+
+    byte kind(int row);
+
+    default boolean isNote(int row) { return kind(row) == TrackEvents.KIND_NOTE; }
+
+    default EventKind eventKind(int row) { return EventKind.of(kind(row)); }
+
+    /**
+     * Channel of the row, or -1 for meta events.
+     */
+    int channel(int row);
+
+    int noteNumber(int row);
+
+    int velocity(int row);
+
+    long durationTicks(int row);
+
+    default int controller(int row) { return noteNumber(row); }
+
+    default int value(int row) { return velocity(row); }
+
+    default int pitchBend(int row) { return ((velocity(row) << 7) | noteNumber(row)) - 8192; }
+
+    CharSequence text(int row);
+
+    /**
+     * Tempo map used to compute seconds, or null if seconds were supplied directly (or are unavailable).
+     */
+    TempoMap getTempoMap();
+
+    /**
+     * Whether {@link #seconds} and {@link #durationSeconds} can be answered.
+     */
+    boolean hasSeconds();
+
+    double seconds(int row);
+
+    double durationSeconds(int row);
+
+    /**
+     * A view over the same rows that computes seconds from {@code tempoMap}.
+     * Implementations may attach the map in place and return themselves.
+     */
+    EventView withTempoMap(TempoMap tempoMap);
+
+    /**
+     * Materialize the rows as event objects, including seconds when they are available.
+     */
+    default List<EventOutput> toEventOutputs() {
+        boolean timed = hasSeconds();
+        int size = size();
+        List<EventOutput> events = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            EventOutput event = new EventOutput();
+            event.setTick(tick(row));
+            if (timed) {
+                event.setTimeSeconds(seconds(row));
+            }
+            EventKind kind = eventKind(row);
+            event.setKind(kind);
+            switch (kind) {
+                case NOTE -> {
+                    event.setChannel(channel(row));
+                    event.setNoteNumber(noteNumber(row));
+                    event.setNoteName(NoteUtils.noteNumberToName(noteNumber(row)));
+                    event.setVelocity(velocity(row));
+                    event.setDurationTicks(durationTicks(row));
+                    if (timed) {
+                        event.setDurationSeconds(durationSeconds(row));
+                    }
+                }
+                case CONTROL_CHANGE -> {
+                    event.setChannel(channel(row));
+                    event.setController(controller(row));
+                    event.setValue(value(row));
+                }
+                case PITCH_BEND -> {
+                    event.setChannel(channel(row));
+                    event.setPitchBend(pitchBend(row));
+                }
+                case META -> {
+                    event.setDeferredText(text(row));
+                }
+            }
+            events.add(event);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,200 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import java.util.Arrays;
+
+/**
+ * Interval index over the notes of one track, for finding the notes that sound in a stretch
+ * of ticks without visiting the others.
+ * Note rows are sorted by onset tick; a binary tree over blocks of {@value #BLOCK} consecutive
+ * notes stores the latest note end of each subtree. A query walks the notes with onsets before
+ * the end of the range, skipping every subtree that ends before its start, so notes held from
+ * long before the range (a pedal point) are found without scanning what lies in between.
+ * Time is O(log n + notes found) for typical tracks; building the index is one sort.
+ *
+ * <p>Rows refer to the {@link EventView} the index was built from, see {@link #events()}.
+ * The index is immutable and safe to query concurrently.
+ */
+public final class NoteIntervalIndex {
+
+    /** Notes per leaf of the tree, scanned one by one. */
+    private static final int BLOCK = 16;
+
+    private final EventView events;
+    private final int[] rows;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] latestEnds;
+    private final int leaves;
+
+    private NoteIntervalIndex(EventView events, int[] rows, long[] starts, long[] ends) {
+        this.events = events;
+        this.rows = rows;
+        this.starts = starts;
+        this.ends = ends;
+
+        // Implicit binary tree: leaf b (at leaves + b) holds the latest end of block b,
+        // inner nodes the latest end of their children
+        int blocks = (rows.length + BLOCK - 1) / BLOCK;
+        int leafCount = 1;
+        while (leafCount < blocks) {
+            leafCount <<= 1;
+        }
+        leaves = leafCount;
+        latestEnds = new long[2 * leafCount];
+        Arrays.fill(latestEnds, Long.MIN_VALUE);
+        for (int i = 0; i < rows.length; i++) {
+            int leaf = leafCount + i / BLOCK;
+            latestEnds[leaf] = Math.max(latestEnds[leaf], ends[i]);
+        }
+        for (int node = leafCount - 1; node > 0; node--) {
+            latestEnds[node] = Math.max(latestEnds[2 * node], latestEnds[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Indexes the note rows of {@code events}; other rows are left out.
+     */
+    public static NoteIntervalIndex of(EventView events) {
+        int count = events.noteCount();
+        int[] noteRows = new int[count];
+        long maxTick = 0;
+        int n = 0;
+        for (int row = 0; row < events.size() && n < count; row++) {
+            if (events.isNote(row)) {
+                noteRows[n++] = row;
+                maxTick = Math.max(maxTick, events.tick(row));
+            }
+        }
+        noteRows = n == count ? noteRows : Arrays.copyOf(noteRows, n);
+
+        // Rows are appended at note-off, so sort by onset, ties in row order
+        int[] rows = sortByOnset(events, noteRows, maxTick);
+        long[] starts = new long[rows.length];
+        long[] ends = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            starts[i] = events.tick(rows[i]);
+            // A note of zero ticks still sounds at its onset
+            ends[i] = starts[i] + Math.max(events.durationTicks(rows[i]), 1);
+        }
+        return new NoteIntervalIndex(events, rows, starts, ends);
+    }
+
+    /**
+     * The view whose rows this index returns.
+     */
+    public EventView events() {
+        return events;
+    }
+
+    public int noteCount() {
+        return rows.length;
+    }
+
+    /**
+     * Latest note onset tick (0 if there are no notes).
+     */
+    public long lastOnsetTick() {
+        return rows.length == 0 ? 0 : starts[rows.length - 1];
+    }
+
+    /**
+     * Note rows that sound at some tick from {@code fromTick} (inclusive) to {@code toTick}
+     * (exclusive): notes that start in the range and notes that started before it and are
+     * still held. A note of zero ticks sounds at its onset.
+     *
+     * @return The rows in ascending row order, as converters expect
+     */
+    public int[] overlapping(long fromTick, long toTick) {
+        // Notes starting at or after toTick cannot overlap
+        int limit = lowerBound(starts, toTick);
+        if (limit == 0 || fromTick >= toTick) {
+            return new int[0];
+        }
+        Found found = new Found();
+        collect(1, 0, leaves, (limit - 1) / BLOCK, limit, fromTick, found);
+        int[] result = Arrays.copyOf(found.rows, found.size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Adds the rows found under {@code node}, which spans blocks {@code first} to
+     * {@code first + span - 1}, skipping blocks after {@code lastBlock} and notes from {@code limit} on.
+     */
+    private void collect(int node, int first, int span, int lastBlock, int limit, long fromTick, Found found) {
+        if (first > lastBlock || latestEnds[node] <= fromTick) {
+            return;
+        }
+        if (span == 1) {
+            int end = Math.min((first + 1) * BLOCK, limit);
+            for (int i = first * BLOCK; i < end; i++) {
+                if (ends[i] > fromTick) {
+                    found.add(rows[i]);
+                }
+            }
+            return;
+        }
+        int half = span / 2;
+        collect(2 * node, first, half, lastBlock, limit, fromTick, found);
+        collect(2 * node + 1, first + half, half, lastBlock, limit, fromTick, found);
+    }
+
+    /**
+     * Growable list of the rows a query found.
+     */
+    private static final class Found {
+        int[] rows = new int[64];
+        int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    /**
+     * Index of the first of the ascending {@code values} that is at least {@code key}.
+     */
+    private static int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * The rows ordered by onset tick, then row. Keys pack onset and position into one long
+     * when they fit, so the sort is primitive.
+     */
+    private static int[] sortByOnset(EventView events, int[] noteRows, long maxTick) {
+        int n = noteRows.length;
+        if (n == 0 || maxTick < Long.MAX_VALUE / n) {
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = events.tick(noteRows[i]) * n + i;
+            }
+            Arrays.sort(keys);
+            int[] rows = new int[n];
+            for (int i = 0; i < n; i++) {
+                rows[i] = noteRows[(int) (keys[i] % n)];
+            }
+            return rows;
+        }
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            boxed[i] = noteRows[i];
+        }
+        Arrays.sort(boxed, (a, b) -> events.tick(a) != events.tick(b)
+            ? Long.compare(events.tick(a), events.tick(b)) : Integer.compare(a, b));
+        return Arrays.stream(boxed).mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,136 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Read-only view over track events stored in an {@link EventArena}, or over records
+ * that no arena owns (see {@link EventArena#wrap}).
+ * Fields are read with absolute gets, so concurrent readers do not interfere.
+ */
+final class OffHeapTrackEvents implements EventView {
+
+    private final EventArena arena; // null for records not owned by an arena
+    private final int size;
+    private final int noteCount;
+    private final CharSequence[] text;
+    private final int[] longRows;         // Rows of notes longer than a record holds, ascending
+    private final long[] longDurations;   // Their durations
+    private final boolean storedSeconds;
+    private final TempoMap tempoMap;
+    private ByteBuffer records;
+
+    OffHeapTrackEvents(EventArena arena, ByteBuffer records, int size, int noteCount, CharSequence[] text,
+                       int[] longRows, long[] longDurations, boolean storedSeconds, TempoMap tempoMap) {
+        this.arena = arena;
+        this.records = records;
+        this.size = size;
+        this.noteCount = noteCount;
+        this.text = text;
+        this.longRows = longRows;
+        this.longDurations = longDurations;
+        this.storedSeconds = storedSeconds;
+        this.tempoMap = tempoMap;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int noteCount() { return noteCount; }
+
+    @Override
+    public long tick(int row) { return records().getLong(offset(row)); }
+
+    @Override
+    public long durationTicks(int row) {
+        int durationTicks = records().getInt(offset(row) + 8);
+        if (durationTicks == EventArena.LONG_DURATION && longRows != null) {
+            return longDurations[Arrays.binarySearch(longRows, row)];
+        }
+        return durationTicks;
+    }
+
+    @Override
+    public byte kind(int row) { return records().get(offset(row) + 12); }
+
+    @Override
+    public int channel(int row) { return records().get(offset(row) + 13); }
+
+    @Override
+    public int noteNumber(int row) { return records().get(offset(row) + 14); }
+
+    @Override
+    public int velocity(int row) { return records().get(offset(row) + 15); }
+
+    @Override
+    public CharSequence text(int row) {
+        records();
+        return text != null ? text[row] : null;
+    }
+
+    @Override
+    public TempoMap getTempoMap() { return tempoMap; }
+
+    @Override
+    public boolean hasSeconds() { return storedSeconds || tempoMap != null; }
+
+    @Override
+    public double seconds(int row) {
+        if (storedSeconds) {
+            return records().getDouble(secondsOffset(row));
+        }
+        return requireTempoMap().ticksToSeconds(tick(row));
+    }
+
+    @Override
+    public double durationSeconds(int row) {
+        if (storedSeconds) {
+            return records().getDouble(secondsOffset(row) + 8);
+        }
+        if (!isNote(row)) {
+            return 0.0;
+        }
+        long start = tick(row);
+        TempoMap map = requireTempoMap();
+        return map.ticksToSeconds(start + durationTicks(row)) - map.ticksToSeconds(start);
+    }
+
+    /**
+     * Shares the off-heap rows; the new view has the same lifetime as this one.
+     */
+    @Override
+    public EventView withTempoMap(TempoMap tempoMap) {
+        OffHeapTrackEvents view =
+            new OffHeapTrackEvents(arena, records(), size, noteCount, text, longRows, longDurations, storedSeconds,
+                tempoMap);
+        return arena != null ? arena.register(view) : view;
+    }
+
+    void release() {
+        records = null;
+    }
+
+    private ByteBuffer records() {
+        ByteBuffer buffer = records;
+        if (buffer == null) {
+            throw new IllegalStateException("Event arena is closed");
+        }
+        return buffer;
+    }
+
+    private static int offset(int row) {
+        return row * EventArena.RECORD_BYTES;
+    }
+
+    private int secondsOffset(int row) {
+        return size * EventArena.RECORD_BYTES + row * EventArena.SECONDS_BYTES;
+    }
+
+    private TempoMap requireTempoMap() {
+        if (tempoMap == null) {
+            throw new IllegalStateException("No tempo map attached and no seconds available");
+        }
+        return tempoMap;
+    }
+}
@@ -0,0 +1,139 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexed tempo map for tick-to-seconds conversion.
+ * Stores tempo changes in primitive arrays together with the elapsed seconds at
+ * each change (a prefix sum), so a conversion is a binary search plus one
+ * multiply instead of a walk over all preceding tempo changes.
+ * Ticks before the first tempo event use the SMF default of 120 BPM.
+ */
+public class TempoMap {
+
+    public static final long DEFAULT_MICROSECONDS_PER_QUARTER = 500000; // 120 BPM
+
+    private final long[] ticks;
+    private final long[] microsecondsPerQuarter;
+    private final double[] cumulativeSeconds;
+    private final double initialBpm;
+    private final double ticksToMicroseconds;
+
+    private TempoMap(long[] ticks, long[] microsecondsPerQuarter, double initialBpm, int division) {
+        this.ticks = ticks;
+        this.microsecondsPerQuarter = microsecondsPerQuarter;
+        this.initialBpm = initialBpm;
+        this.ticksToMicroseconds = division * 1000000.0;
+
+        // Seconds elapsed at each tempo change; time before the first change runs at the default tempo
+        cumulativeSeconds = new double[ticks.length];
+        if (ticks.length > 0) {
+            cumulativeSeconds[0] = (ticks[0] * DEFAULT_MICROSECONDS_PER_QUARTER) / ticksToMicroseconds;
+        }
+        for (int i = 1; i < ticks.length; i++) {
+            cumulativeSeconds[i] = cumulativeSeconds[i - 1]
+                + ((ticks[i] - ticks[i - 1]) * microsecondsPerQuarter[i - 1]) / ticksToMicroseconds;
+        }
+    }
+
+    /**
+     * Builds a tempo map from tempo entries.
+     *
+     * @param entries  Tempo changes (any order; ties keep their list order)
+     * @param division MIDI division (ticks per quarter note)
+     * @return Tempo map ready for conversions
+     */
+    public static TempoMap of(List<TempoEntry> entries, int division) {
+        TempoEntry[] sorted = entries.toArray(new TempoEntry[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.getTick(), b.getTick()));
+
+        long[] ticks = new long[sorted.length];
+        long[] microseconds = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ticks[i] = sorted[i].getTick();
+            microseconds[i] = sorted[i].getMicrosecondsPerQuarter();
+        }
+
+        double initialBpm = sorted.length > 0 ? sorted[0].getBpm() : 120.0;
+        return new TempoMap(ticks, microseconds, initialBpm, division);
+    }
+
+    /**
+     * BPM of the first tempo event, or 120 if there is none.
+     */
+    public double initialBpm() {
+        return initialBpm;
+    }
+
+    /**
+     * Number of tempo changes.
+     */
+    public int size() {
+        return ticks.length;
+    }
+
+    /**
+     * Converts an absolute tick to seconds in O(log n).
+     */
+    public double ticksToSeconds(long tick) {
+        return secondsFrom(indexAt(tick), tick);
+    }
+
+    /**
+     * Creates a cursor for converting a mostly ascending stream of ticks.
+     * Each cursor is meant for a single thread.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Index of the last tempo change at or before {@code tick}, or -1 if none.
+     */
+    private int indexAt(long tick) {
+        int low = 0;
+        int high = ticks.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ticks[mid] <= tick) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    private double secondsFrom(int index, long tick) {
+        if (index < 0) {
+            return (tick * DEFAULT_MICROSECONDS_PER_QUARTER) / ticksToMicroseconds;
+        }
+        return cumulativeSeconds[index]
+            + ((tick - ticks[index]) * microsecondsPerQuarter[index]) / ticksToMicroseconds;
+    }
+
+    /**
+     * Merge-walk converter: for ascending ticks it only ever moves forward through
+     * the tempo changes, so converting a sorted stream is linear overall.
+     * Out-of-order ticks fall back to a binary search.
+     */
+    public class Cursor {
+        private int index = -1;
+        private long lastTick = Long.MIN_VALUE;
+
+        public double ticksToSeconds(long tick) {
+            if (tick < lastTick) {
+                index = indexAt(tick);
+            } else {
+                while (index + 1 < ticks.length && ticks[index + 1] <= tick) {
+                    index++;
+                }
+            }
+            lastTick = tick;
+            return secondsFrom(index, tick);
+        }
+    }
+}
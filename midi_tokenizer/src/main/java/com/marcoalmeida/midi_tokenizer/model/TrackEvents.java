@@ -0,0 +1,274 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar (struct-of-arrays) store for the events of one track.
+ * Each event is a row across parallel primitive arrays instead of an {@link EventOutput}
+ * object, which keeps whole files compact in memory and lets converters scan them
+ * without boxing. Rows are kept in insertion order, matching {@link TrackOutput#getEvents()}.
+ *
+ * <p>Column meaning depends on the event kind:
+ * <ul>
+ *   <li>{@link #KIND_NOTE}: note number, velocity and duration in ticks</li>
+ *   <li>{@link #KIND_CONTROL_CHANGE}: controller number in {@code note}, value in {@code velocity}</li>
+ *   <li>{@link #KIND_PITCH_BEND}: raw LSB in {@code note}, MSB in {@code velocity}</li>
+ *   <li>{@link #KIND_META}: text in a side column, no channel</li>
+ * </ul>
+ *
+ * <p>This is the mutable, on-heap store written by the parser; {@link EventArena} can copy it off-heap.
+ * Seconds are computed lazily from an attached {@link TempoMap}, or taken from the
+ * source events when built with {@link #from(List)}.
+ */
+public class TrackEvents implements EventView {
+
+    public static final byte KIND_NOTE = 0;
+    public static final byte KIND_CONTROL_CHANGE = 1;
+    public static final byte KIND_PITCH_BEND = 2;
+    public static final byte KIND_META = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final byte NO_CHANNEL = -1;
+
+    private int size;
+    private int noteCount;
+    private long[] tick = new long[INITIAL_CAPACITY];
+    private byte[] kind = new byte[INITIAL_CAPACITY];
+    private byte[] channel = new byte[INITIAL_CAPACITY];
+    private byte[] note = new byte[INITIAL_CAPACITY];
+    private byte[] velocity = new byte[INITIAL_CAPACITY];
+    private long[] durationTicks = new long[INITIAL_CAPACITY];
+    private CharSequence[] text;
+
+    // Lazily computed from tempoMap (or copied from source events, with their durations)
+    private TempoMap tempoMap;
+    private double[] seconds;
+    private double[] durationSeconds;
+
+    public void addNote(long tick, int channel, int noteNumber, int velocity, long durationTicks) {
+        int row = append(tick, KIND_NOTE, channel, noteNumber, velocity);
+        this.durationTicks[row] = durationTicks;
+        noteCount++;
+    }
+
+    public void addControlChange(long tick, int channel, int controller, int value) {
+        append(tick, KIND_CONTROL_CHANGE, channel, controller, value);
+    }
+
+    /**
+     * @param pitchBend Pitch bend centered at 0 (-8192 to 8191)
+     */
+    public void addPitchBend(long tick, int channel, int pitchBend) {
+        int raw = pitchBend + 8192;
+        append(tick, KIND_PITCH_BEND, channel, raw & 0x7F, raw >> 7);
+    }
+
+    /**
+     * @param text Meta text, e.g. {@code "lyric: la"}; may be decoded lazily
+     */
+    public void addMeta(long tick, CharSequence text) {
+        int row = append(tick, KIND_META, NO_CHANNEL, 0, 0);
+        if (this.text == null) {
+            this.text = new CharSequence[this.tick.length];
+        }
+        this.text[row] = text;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    @Override
+    public int noteCount() { return noteCount; }
+
+    @Override
+    public long tick(int row) { return tick[row]; }
+
+    @Override
+    public byte kind(int row) { return kind[row]; }
+
+    @Override
+    public int channel(int row) { return channel[row]; }
+
+    @Override
+    public int noteNumber(int row) { return note[row]; }
+
+    @Override
+    public int velocity(int row) { return velocity[row]; }
+
+    @Override
+    public long durationTicks(int row) { return durationTicks[row]; }
+
+    @Override
+    public CharSequence text(int row) { return text != null ? text[row] : null; }
+
+    @Override
+    public TempoMap getTempoMap() { return tempoMap; }
+
+    /**
+     * Attach the tempo map used to compute seconds; clears previously computed seconds.
+     */
+    public void setTempoMap(TempoMap tempoMap) {
+        this.tempoMap = tempoMap;
+        this.seconds = null;
+        this.durationSeconds = null;
+    }
+
+    /**
+     * Use seconds supplied with the events (e.g. read from JSON) instead of a tempo map.
+     * The arrays are copied and must cover every row.
+     */
+    public void setSeconds(double[] seconds, double[] durationSeconds) {
+        this.tempoMap = null;
+        this.seconds = Arrays.copyOf(seconds, size);
+        this.durationSeconds = Arrays.copyOf(durationSeconds, size);
+    }
+
+    /**
+     * Attaches the tempo map in place and returns this store.
+     */
+    @Override
+    public EventView withTempoMap(TempoMap tempoMap) {
+        setTempoMap(tempoMap);
+        return this;
+    }
+
+    @Override
+    public boolean hasSeconds() {
+        return seconds != null || tempoMap != null;
+    }
+
+    @Override
+    public double seconds(int row) {
+        ensureSeconds();
+        return seconds[row];
+    }
+
+    /**
+     * Duration of a note row in seconds (0 for other kinds).
+     * Not stored when a tempo map is attached; the end time is looked up on each call.
+     */
+    @Override
+    public double durationSeconds(int row) {
+        ensureSeconds();
+        if (durationSeconds != null) {
+            return durationSeconds[row];
+        }
+        if (kind[row] != KIND_NOTE) {
+            return 0.0;
+        }
+        return tempoMap.ticksToSeconds(tick[row] + durationTicks[row]) - seconds[row];
+    }
+
+    /**
+     * Shrink the columns to the number of rows, e.g. once a track is complete.
+     */
+    public void trim() {
+        if (tick.length != size) {
+            resize(size);
+        }
+    }
+
+    /**
+     * Decode lazily read meta text into strings, so the rows no longer refer to the buffer
+     * they were parsed from (e.g. a mapped file that must not stay mapped).
+     */
+    public void detachText() {
+        if (text == null) {
+            return;
+        }
+        for (int row = 0; row < size; row++) {
+            if (text[row] != null && !(text[row] instanceof String)) {
+                text[row] = text[row].toString();
+            }
+        }
+    }
+
+    /**
+     * Build columns from event objects (e.g. loaded from JSON). Seconds are copied
+     * when every event carries them; otherwise attach a tempo map with {@link #setTempoMap}.
+     * Events of unknown type are skipped.
+     */
+    public static TrackEvents from(List<EventOutput> events) {
+        TrackEvents columns = new TrackEvents();
+        double[] start = new double[events.size()];
+        double[] duration = new double[events.size()];
+        boolean allTimed = true;
+
+        for (EventOutput event : events) {
+            int channel = event.getChannel() != null ? event.getChannel() : NO_CHANNEL;
+            EventKind kind = event.getKind();
+            if (kind == null) {
+                continue;
+            }
+            switch (kind) {
+                case NOTE -> columns.addNote(event.getTick(), channel, valueOf(event.getNoteNumber()),
+                    valueOf(event.getVelocity()),
+                    event.getDurationTicks() != null ? event.getDurationTicks() : 0);
+                case CONTROL_CHANGE -> columns.addControlChange(event.getTick(), channel,
+                    valueOf(event.getController()), valueOf(event.getValue()));
+                case PITCH_BEND -> columns.addPitchBend(event.getTick(), channel, valueOf(event.getPitchBend()));
+                case META -> columns.addMeta(event.getTick(), event.getText());
+            }
+
+            int row = columns.size - 1;
+            if (event.getTimeSeconds() != null) {
+                start[row] = event.getTimeSeconds();
+                duration[row] = event.getDurationSeconds() != null ? event.getDurationSeconds() : 0.0;
+            } else {
+                allTimed = false;
+            }
+        }
+
+        if (allTimed) {
+            columns.setSeconds(start, duration);
+        }
+        return columns;
+    }
+
+    private int append(long tick, byte kind, int channel, int data1, int data2) {
+        if (size == this.tick.length) {
+            resize(size * 2);
+        }
+        int row = size++;
+        this.tick[row] = tick;
+        this.kind[row] = kind;
+        this.channel[row] = (byte) channel;
+        this.note[row] = (byte) data1;
+        this.velocity[row] = (byte) data2;
+        seconds = null;
+        durationSeconds = null;
+        return row;
+    }
+
+    private void resize(int capacity) {
+        tick = Arrays.copyOf(tick, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        channel = Arrays.copyOf(channel, capacity);
+        note = Arrays.copyOf(note, capacity);
+        velocity = Arrays.copyOf(velocity, capacity);
+        durationTicks = Arrays.copyOf(durationTicks, capacity);
+        if (text != null) {
+            text = Arrays.copyOf(text, capacity);
+        }
+    }
+
+    private void ensureSeconds() {
+        if (seconds != null) {
+            return;
+        }
+        if (tempoMap == null) {
+            throw new IllegalStateException("No tempo map attached and no seconds available");
+        }
+        double[] start = new double[size];
+        TempoMap.Cursor cursor = tempoMap.cursor();
+        for (int row = 0; row < size; row++) {
+            start[row] = cursor.ticksToSeconds(tick[row]);
+        }
+        seconds = start;
+    }
+
+    private static int valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -1,16 +1,27 @@
 package com.marcoalmeida.midi_tokenizer.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Represents a MIDI track in the output.
+ * Events are held either as a list of {@link EventOutput} objects or as an {@link EventView}
+ * (columnar {@link TrackEvents} or off-heap {@link EventArena} storage); the list is
+ * materialized from the view on first access. The note index used for measure ranges is
+ * built on first use and kept with the view.
+ *
+ * <p>Reading a view-backed track never replaces its view, so tracks shared between threads
+ * (e.g. through {@code MidiOutputCache}) can be read concurrently.
  */
 public class TrackOutput {
     private int index;
     private String name;
     private List<ProgramChangeEvent> programChanges = new ArrayList<>();
-    private List<EventOutput> events = new ArrayList<>();
+    private volatile List<EventOutput> events = new ArrayList<>();
+    private volatile EventView trackEvents;
+    private volatile NoteIntervalIndex noteIndex;
     
     public TrackOutput() {}
     
@@ -29,6 +40,68 @@ public class TrackOutput {
         this.programChanges = programChanges; 
     }
     
-    public List<EventOutput> getEvents() { return events; }
-    public void setEvents(List<EventOutput> events) { this.events = events; }
+    /**
+     * Events as objects. For view-backed tracks this is a snapshot materialized on first access
+     * and then reused; the view stays the source of {@link #getTrackEvents()}, so changes to the
+     * snapshot are not seen there. Concurrent first callers may each materialize it.
+     */
+    public List<EventOutput> getEvents() {
+        List<EventOutput> list = events;
+        if (list == null) {
+            list = trackEvents.toEventOutputs();
+            events = list;
+        }
+        return list;
+    }
+    
+    public void setEvents(List<EventOutput> events) { 
+        this.events = events; 
+        this.trackEvents = null;
+        this.noteIndex = null;
+    }
+    
+    /**
+     * Row view of the events. For list-backed tracks this is a snapshot built from the list.
+     */
+    @JsonIgnore
+    public EventView getTrackEvents() {
+        EventView view = trackEvents;
+        return view != null ? view : TrackEvents.from(events);
+    }
+
+    /**
+     * Number of events, without building a row view of a list-backed track.
+     */
+    public int eventCount() {
+        EventView view = trackEvents;
+        return view != null ? view.size() : events.size();
+    }
+    
+    /**
+     * Store events as a row view; {@link #getEvents()} materializes them on demand.
+     */
+    @JsonIgnore
+    public void setTrackEvents(EventView trackEvents) {
+        this.trackEvents = trackEvents;
+        this.events = null;
+        this.noteIndex = null;
+    }
+    
+    /**
+     * Interval index over the notes of {@link #getTrackEvents()}. Row views keep their index,
+     * so tracks held in a cache are indexed once; list-backed tracks are indexed on every call.
+     * The index is immutable, so concurrent callers at worst build it twice.
+     */
+    @JsonIgnore
+    public NoteIntervalIndex getNoteIndex() {
+        NoteIntervalIndex index = noteIndex;
+        if (index == null) {
+            EventView view = trackEvents;
+            index = NoteIntervalIndex.of(view != null ? view : TrackEvents.from(events));
+            if (view != null) {
+                noteIndex = index;
+            }
+        }
+        return index;
+    }
 }
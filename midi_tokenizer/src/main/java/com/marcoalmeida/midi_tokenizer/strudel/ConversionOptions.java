@@ -1,5 +1,9 @@
 package com.marcoalmeida.midi_tokenizer.strudel;
 
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+
+import java.util.List;
+
 /**
  * Options for MIDI to Strudel conversion.
  *
@@ -7,13 +11,105 @@ package com.marcoalmeida.midi_tokenizer.strudel;
  * @param trackIndex      Optional track index to convert (default: 0)
  * @param quantization    Optional quantization level (auto-calculated if null)
  * @param enablePolyphony Enable polyphonic conversion (default: true). False uses non-polyphonic mode.
+ * @param parallelParse   Decode MIDI tracks in parallel (default: false)
+ * @param autoQuantize    Search for the quantization level that fits the notes best (default: null, off).
+ *                        Ignored when {@code quantization} is set.
+ * @param outputBudget    Limit on the size of the note patterns (default: null, unlimited)
+ * @param measureRange    Measures to convert (default: null, the whole file)
  */
 public record ConversionOptions(
     Integer overrideTempo,
     Integer trackIndex,
     Integer quantization,
-    Boolean enablePolyphony
+    Boolean enablePolyphony,
+    Boolean parallelParse,
+    AutoQuantize autoQuantize,
+    OutputBudget outputBudget,
+    MeasureRange measureRange
 ) {
+    /**
+     * Scope of the automatic quantization search ({@link QuantizationSearch}).
+     */
+    public enum AutoQuantize {
+        /** One level for the whole file ({@code --quantize auto}). */
+        GLOBAL,
+        /** A level for each track ({@code --quantize auto-track}). */
+        PER_TRACK
+    }
+
+    /**
+     * Creates options with sequential parsing and nothing else set; use the {@code with...}
+     * methods for the rest.
+     */
+    public ConversionOptions(Integer overrideTempo, Integer trackIndex, Integer quantization, 
+                             Boolean enablePolyphony) {
+        this(overrideTempo, trackIndex, quantization, enablePolyphony, false, null, null, null);
+    }
+
+    /**
+     * Creates options with the quantization given as on the command line.
+     *
+     * @param quantize A quantization level, "auto", "auto-track", or null for the smart default
+     * @throws IllegalArgumentException if {@code quantize} is none of these
+     */
+    public static ConversionOptions of(Integer overrideTempo, Integer trackIndex, String quantize,
+                                       Boolean enablePolyphony, Boolean parallelParse) {
+        ConversionOptions options = new ConversionOptions(overrideTempo, trackIndex, null, enablePolyphony)
+            .withParallelParse(parallelParse);
+        if (quantize == null) {
+            return options;
+        }
+        if (quantize.equalsIgnoreCase("auto")) {
+            return options.withAutoQuantize(AutoQuantize.GLOBAL);
+        }
+        if (quantize.equalsIgnoreCase("auto-track")) {
+            return options.withAutoQuantize(AutoQuantize.PER_TRACK);
+        }
+        try {
+            int level = Integer.parseInt(quantize.trim());
+            if (level > 0) {
+                return new ConversionOptions(overrideTempo, trackIndex, level, enablePolyphony)
+                    .withParallelParse(parallelParse);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(
+            "Invalid quantization: " + quantize + " (expected a positive number, auto or auto-track)");
+    }
+
+    /**
+     * Copy of these options decoding MIDI tracks in parallel or not.
+     */
+    public ConversionOptions withParallelParse(Boolean parallelParse) {
+        return new ConversionOptions(overrideTempo, trackIndex, quantization, enablePolyphony, parallelParse,
+            autoQuantize, outputBudget, measureRange);
+    }
+
+    /**
+     * Copy of these options searching for the quantization level with {@code autoQuantize} (null for off).
+     */
+    public ConversionOptions withAutoQuantize(AutoQuantize autoQuantize) {
+        return new ConversionOptions(overrideTempo, trackIndex, quantization, enablePolyphony, parallelParse,
+            autoQuantize, outputBudget, measureRange);
+    }
+
+    /**
+     * Copy of these options with the note patterns limited to {@code outputBudget} (null for no limit).
+     */
+    public ConversionOptions withOutputBudget(OutputBudget outputBudget) {
+        return new ConversionOptions(overrideTempo, trackIndex, quantization, enablePolyphony, parallelParse,
+            autoQuantize, outputBudget, measureRange);
+    }
+
+    /**
+     * Copy of these options converting only {@code measureRange} (null for the whole file).
+     */
+    public ConversionOptions withMeasureRange(MeasureRange measureRange) {
+        return new ConversionOptions(overrideTempo, trackIndex, quantization, enablePolyphony, parallelParse,
+            autoQuantize, outputBudget, measureRange);
+    }
+
     /**
      * Creates default options (no tempo override, track 0, auto-quantization, polyphonic enabled).
      */
@@ -49,6 +145,21 @@ public record ConversionOptions(
         return enablePolyphony == null || enablePolyphony;
     }
 
+    /**
+     * Checks if the quantization level is searched for, rather than overridden or defaulted.
+     */
+    public boolean isAutoQuantize() {
+        return quantization == null && autoQuantize != null;
+    }
+
+    /**
+     * Checks if MIDI tracks should be decoded in parallel.
+     * Defaults to false if not explicitly set.
+     */
+    public boolean isParallelParse() {
+        return parallelParse != null && parallelParse;
+    }
+
     /**
      * Gets the effective quantization level.
      * Uses override if provided, otherwise calculates smart default based on time signature.
@@ -74,4 +185,27 @@ public record ConversionOptions(
         if (numerator == 2 && denominator == 4) return 16;  // 2/4 march - sixteenth notes
         return 16;  // Default: 4/4 and other time signatures - sixteenth notes
     }
+
+    /**
+     * Gets the effective quantization level for a file that may change time signature.
+     * Every segment is quantized at the same level, so the smart default of the first
+     * signature is only used if it gives a whole number of slices per measure in every
+     * signature; otherwise 16.
+     *
+     * @param timeSignatures Time signatures in timeline order (at least one)
+     * @return Effective quantization level
+     */
+    public int getEffectiveQuantization(List<TimeSignatureEntry> timeSignatures) {
+        TimeSignatureEntry first = timeSignatures.get(0);
+        int effective = getEffectiveQuantization(first.getNumerator(), first.getDenominator());
+        if (quantization != null || timeSignatures.size() == 1) {
+            return effective;
+        }
+        for (TimeSignatureEntry entry : timeSignatures) {
+            if ((effective * entry.getNumerator()) % entry.getDenominator() != 0) {
+                return 16;
+            }
+        }
+        return effective;
+    }
 }
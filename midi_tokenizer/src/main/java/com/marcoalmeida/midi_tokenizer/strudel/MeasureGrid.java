@@ -0,0 +1,532 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.NoteIntervalIndex;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The measures of one track's pattern, each of which can be rendered on a coarser grid than
+ * the others. The size of a measure on any grid is counted from the quantized notes without
+ * building its text, in time proportional to the notes of that measure, so
+ * {@link MeasureSimplifier} can try grids measure by measure.
+ *
+ * <p>A measure is coarsened by a factor that divides its slice count: every {@code factor}
+ * slices become one. Polyphonic notes move to the coarse slice they start in, notes of the
+ * same pitch landing together merge into one (the longest), and durations are rounded to
+ * coarse slices. Non-polyphonic coarse slices hold the note sounding longest in them, if
+ * notes sound for more than half of it, and repeated notes merge. Either way grace notes,
+ * trills and other ornaments collapse into their main note or chord. At factor 1 a measure
+ * renders exactly as in {@link RhythmConverter}.
+ *
+ * <p>Instances keep scratch buffers and are not thread-safe.
+ */
+final class MeasureGrid {
+
+    /**
+     * Measures of one meter segment and their quantized notes: onsets in polyphonic mode,
+     * slice runs otherwise.
+     */
+    private record Block(int firstMeasure, int slicesPerMeasure, String weight,
+                         RhythmConverter.OnsetGrid onsets, RhythmConverter.SliceRuns runs) {}
+
+    private final Block[] blocks;
+    private final int measureCount;
+    private final int startMeasure;
+
+    /** Longest duration per pitch, and pitches in order of appearance, of a merged chord. */
+    private final int[] longest = new int[128];
+    private final int[] pitches = new int[128];
+
+    /** Overlap per pitch in a coarse non-polyphonic slice. */
+    private final long[] held = new long[128];
+
+    private MeasureGrid(Block[] blocks, int measureCount, int startMeasure) {
+        this.blocks = blocks;
+        this.measureCount = measureCount;
+        this.startMeasure = startMeasure;
+    }
+
+    /**
+     * Quantizes the note rows of a track the way {@link RhythmConverter#toQuantizedTickPattern}
+     * (one segment) or {@link RhythmConverter#toSegmentedTickPattern} (several) would.
+     */
+    static MeasureGrid of(EventView events, int division, List<MeterSegment> segments, int quantization,
+                          boolean polyphonic) {
+        int[][] rows = segments.size() == 1 ? new int[][] {null}
+            : RhythmConverter.rowsBySegment(events, division, segments, quantization, polyphonic);
+        return build(events, rows, division, segments, 0, quantization, polyphonic, 0);
+    }
+
+    /**
+     * Quantizes only the notes of a track that sound in {@code measures} measures from measure
+     * {@code firstMeasure} (counted from 0 across {@code segments}), found with the track's
+     * interval index. Each measure renders as in the whole track, except that notes held into
+     * the first measure from before it start there with what remains of them.
+     *
+     * @param segments Meter segments of the whole file (see {@link MeterSegment#partition})
+     */
+    static MeasureGrid window(NoteIntervalIndex index, int division, List<MeterSegment> segments, int quantization,
+                              boolean polyphonic, int firstMeasure, int measures) {
+        List<MeterSegment> window = MeterSegment.window(segments, firstMeasure, measures);
+        int skipped = firstMeasure;
+        for (MeterSegment segment : segments) {
+            if (skipped < segment.measures()) {
+                break;
+            }
+            skipped -= segment.measures();
+        }
+
+        // Ticks of the window, widened by a slice on either side for notes that round into it;
+        // the grids drop whatever rounds outside
+        MeterSegment first = window.get(0);
+        MeterSegment last = window.get(window.size() - 1);
+        long fromSlice = (long) skipped * first.slicesPerMeasure(quantization);
+        long toSlice = (long) ((window.size() == 1 ? skipped : 0) + last.measures())
+            * last.slicesPerMeasure(quantization);
+        long sliceTicks = Math.ceilDiv(4L * division, quantization);
+        long fromTick = first.startTick() + Math.floorDiv(fromSlice * 4 * division, quantization) - sliceTicks;
+        long toTick = last.startTick() + Math.ceilDiv(toSlice * 4 * division, quantization) + sliceTicks;
+        int[] rows = index.overlapping(fromTick, toTick);
+
+        EventView events = index.events();
+        int[][] rowsBySegment = window.size() == 1 ? new int[][] {rows}
+            : RhythmConverter.rowsBySegment(events, rows, division, window, quantization, polyphonic);
+        return build(events, rowsBySegment, division, window, skipped, quantization, polyphonic, firstMeasure);
+    }
+
+    /**
+     * @param rows    Note rows of each segment, or null for all rows of {@code events}
+     * @param skipped Measures of the first segment before the grid
+     */
+    private static MeasureGrid build(EventView events, int[][] rows, int division, List<MeterSegment> segments,
+                                     int skipped, int quantization, boolean polyphonic, int startMeasure) {
+        Block[] blocks = new Block[segments.size()];
+        int measures = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            MeterSegment segment = segments.get(i);
+            int skip = i == 0 ? skipped : 0;
+            String weight = segments.size() == 1 ? "" : "@" + RhythmConverter.formatWeight(segment.beatsPerMeasure());
+            blocks[i] = new Block(measures, segment.slicesPerMeasure(quantization), weight,
+                polyphonic ? RhythmConverter.onsetGrid(events, rows[i], division, segment, skip, segment.measures(),
+                    quantization) : null,
+                polyphonic ? null : RhythmConverter.sliceRuns(events, rows[i], division, segment, skip,
+                    segment.measures(), quantization));
+            measures += segment.measures();
+        }
+        return new MeasureGrid(blocks, measures, startMeasure);
+    }
+
+    int measureCount() {
+        return measureCount;
+    }
+
+    /**
+     * Measures of the file before the first measure of this grid (0 unless it is a window).
+     */
+    int startMeasure() {
+        return startMeasure;
+    }
+
+    int slicesPerMeasure(int measure) {
+        return block(measure).slicesPerMeasure();
+    }
+
+    /**
+     * Whether the measure has no notes (it renders as a single rest on any grid).
+     */
+    boolean isEmpty(int measure) {
+        Block block = block(measure);
+        long start = (long) (measure - block.firstMeasure()) * block.slicesPerMeasure();
+        long end = start + block.slicesPerMeasure();
+        if (block.onsets() != null) {
+            int[] positions = block.onsets().positions;
+            int first = lowerBound(positions, positions.length, start);
+            return first == positions.length || positions[first] >= end;
+        }
+        int[] ends = block.runs().ends;
+        int first = lowerBound(ends, ends.length, start + 1);
+        return first == ends.length || block.runs().starts[first] >= end;
+    }
+
+    /**
+     * Factors the measure can be coarsened by, ascending from 1 (its own grid) to its slice
+     * count (one slice). Each divides the next, removing the smallest prime factor of the
+     * slices left, so sixteenths become eighths, then quarters, and so on.
+     */
+    int[] factors(int measure) {
+        int slices = slicesPerMeasure(measure);
+        int[] factors = new int[32];
+        int count = 0;
+        factors[count++] = 1;
+        int remaining = slices;
+        int factor = 1;
+        for (int prime = 2; remaining > 1; ) {
+            if (remaining % prime == 0) {
+                factor *= prime;
+                remaining /= prime;
+                factors[count++] = factor;
+            } else {
+                prime++;
+            }
+        }
+        return Arrays.copyOf(factors, count);
+    }
+
+    /**
+     * Size of one measure on the grid coarsened by {@code factor}, including its brackets
+     * and weight but not the space after it.
+     */
+    long size(int measure, int factor, OutputBudget.Unit unit) {
+        Count count = new Count();
+        appendMeasure(count, measure, factor);
+        return unit == OutputBudget.Unit.BYTES ? count.bytes : count.tokens;
+    }
+
+    /**
+     * Size of the pattern beyond its measures as written to the file: the angle brackets and
+     * the line break {@link StrudelTemplate} puts before every measure.
+     */
+    long overhead(OutputBudget.Unit unit) {
+        return unit == OutputBudget.Unit.BYTES ? measureCount + 2 : 0;
+    }
+
+    /**
+     * The pattern, wrapped in {@code <>}, on the measures' own grids.
+     */
+    String render() {
+        int[] factors = new int[measureCount];
+        Arrays.fill(factors, 1);
+        return render(factors);
+    }
+
+    /**
+     * The pattern, wrapped in {@code <>}, with every measure coarsened by its entry in {@code factors}.
+     */
+    String render(int[] factors) {
+        StringBuilder pattern = new StringBuilder();
+        Text text = new Text(pattern);
+        pattern.append("<");
+        for (int measure = 0; measure < measureCount; measure++) {
+            if (measure > 0) {
+                pattern.append(" ");
+            }
+            appendMeasure(text, measure, factors[measure]);
+        }
+        pattern.append(">");
+        return pattern.toString();
+    }
+
+    private void appendMeasure(Output out, int measure, int factor) {
+        Block block = block(measure);
+        int slices = block.slicesPerMeasure() / factor;
+        long start = (long) (measure - block.firstMeasure()) * block.slicesPerMeasure();
+        out.symbol('[');
+        if (isEmpty(measure)) {
+            out.measureRest(slices);
+        } else if (block.onsets() != null) {
+            appendPolyphonic(out, block.onsets(), start, block.slicesPerMeasure(), factor);
+        } else if (factor == 1) {
+            appendNonPolyphonic(out, block.runs(), start, block.slicesPerMeasure());
+        } else {
+            appendCoarseNonPolyphonic(out, block.runs(), start, block.slicesPerMeasure(), factor);
+        }
+        out.symbol(']');
+        out.weight(block.weight());
+    }
+
+    /**
+     * Notes and rests of a non-empty polyphonic measure, as in {@code appendPolyphonicMeasures}
+     * but with positions and durations divided by {@code factor}.
+     */
+    private void appendPolyphonic(Output out, RhythmConverter.OnsetGrid grid, long start, int slicesPerMeasure,
+                                  int factor) {
+        int slices = slicesPerMeasure / factor;
+        int next = lowerBound(grid.positions, grid.size(), start);
+        int end = lowerBound(grid.positions, grid.size(), start + slicesPerMeasure);
+        int i = 0;
+        while (i < slices) {
+            if (next < end && (grid.positions[next] - start) / factor == i) {
+                int last = next + 1;
+                while (last < end && (grid.positions[last] - start) / factor == i) {
+                    last++;
+                }
+                if (factor == 1) {
+                    appendChord(out, grid, grid.offsets[next], grid.offsets[last]);
+                } else {
+                    appendMergedChord(out, grid, grid.offsets[next], grid.offsets[last], factor);
+                }
+                next = last;
+                i++;
+            } else {
+                int onset = next < end ? (int) ((grid.positions[next] - start) / factor) : slices;
+                out.rest(onset - i);
+                i = onset;
+            }
+            if (i < slices) {
+                out.symbol(' ');
+            }
+        }
+    }
+
+    private static void appendChord(Output out, RhythmConverter.OnsetGrid grid, int first, int last) {
+        if (last - first > 1) {
+            out.symbol('[');
+        }
+        for (int j = first; j < last; j++) {
+            if (j > first) {
+                out.symbol(',');
+            }
+            out.note(grid.notes[j], grid.durations[j]);
+        }
+        if (last - first > 1) {
+            out.symbol(']');
+        }
+    }
+
+    /**
+     * Notes {@code first..last} as one chord without repeated pitches, each with its longest
+     * duration rounded to coarse slices (at least one).
+     */
+    private void appendMergedChord(Output out, RhythmConverter.OnsetGrid grid, int first, int last, int factor) {
+        int count = 0;
+        for (int j = first; j < last; j++) {
+            int pitch = grid.notes[j];
+            if (longest[pitch] == 0) {
+                pitches[count++] = pitch;
+            }
+            longest[pitch] = Math.max(longest[pitch], grid.durations[j]);
+        }
+        if (count > 1) {
+            out.symbol('[');
+        }
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                out.symbol(',');
+            }
+            int pitch = pitches[k];
+            long duration = (2L * longest[pitch] + factor) / (2L * factor);
+            out.note(pitch, (int) Math.max(duration, 1));
+            longest[pitch] = 0;
+        }
+        if (count > 1) {
+            out.symbol(']');
+        }
+    }
+
+    /**
+     * Notes and rests of a non-empty non-polyphonic measure, as in {@code appendNonPolyphonicMeasures}.
+     */
+    private static void appendNonPolyphonic(Output out, RhythmConverter.SliceRuns runs, long start,
+                                            int slicesPerMeasure) {
+        long end = start + slicesPerMeasure;
+        int next = lowerBound(runs.ends, runs.size(), start + 1);
+        long slice = start;
+        while (slice < end) {
+            if (next < runs.size() && runs.starts[next] <= slice) {
+                int count = (int) (Math.min(runs.ends[next], end) - slice);
+                out.note(runs.notes[next], count);
+                slice += count;
+                if (runs.ends[next] <= slice) {
+                    next++;
+                }
+            } else {
+                long onset = next < runs.size() ? Math.min(runs.starts[next], end) : end;
+                out.rest((int) (onset - slice));
+                slice = onset;
+            }
+            if (slice < end) {
+                out.symbol(' ');
+            }
+        }
+    }
+
+    /**
+     * Notes and rests of a non-empty non-polyphonic measure on the grid coarsened by
+     * {@code factor}, with consecutive coarse slices of the same note merged.
+     */
+    private void appendCoarseNonPolyphonic(Output out, RhythmConverter.SliceRuns runs, long start,
+                                           int slicesPerMeasure, int factor) {
+        int slices = slicesPerMeasure / factor;
+        int next = lowerBound(runs.ends, runs.size(), start + 1);
+        int pending = -1;  // Note (or -1 for rest) of the coarse slices not yet written
+        int length = 0;
+        for (int i = 0; i < slices; i++) {
+            long from = start + (long) i * factor;
+            long to = from + factor;
+
+            // Note sounding longest in this slice; ties go to the earlier one
+            int winner = -1;
+            long total = 0;
+            for (int r = next; r < runs.size() && runs.starts[r] < to; r++) {
+                int pitch = runs.notes[r];
+                long overlap = Math.min(runs.ends[r], to) - Math.max(runs.starts[r], from);
+                held[pitch] += overlap;
+                total += overlap;
+                if (winner < 0 || held[pitch] > held[winner]) {
+                    winner = pitch;
+                }
+            }
+            for (int r = next; r < runs.size() && runs.starts[r] < to; r++) {
+                held[runs.notes[r]] = 0;
+            }
+            while (next < runs.size() && runs.ends[next] <= to) {
+                next++;
+            }
+
+            int note = 2 * total > factor ? winner : -1;
+            if (length > 0 && note != pending) {
+                appendRun(out, pending, length);
+                out.symbol(' ');
+                length = 0;
+            }
+            pending = note;
+            length++;
+        }
+        appendRun(out, pending, length);
+    }
+
+    private static void appendRun(Output out, int note, int length) {
+        if (note < 0) {
+            out.rest(length);
+        } else {
+            out.note(note, length);
+        }
+    }
+
+    private Block block(int measure) {
+        int low = 0;
+        int high = blocks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (blocks[mid].firstMeasure() <= measure) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return blocks[low];
+    }
+
+    /**
+     * Index of the first of {@code values[0..size)} (ascending) at or above {@code key}.
+     */
+    private static int lowerBound(int[] values, int size, long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Receives the text of a measure piece by piece.
+     */
+    private interface Output {
+
+        void symbol(char c);
+
+        void note(int noteNumber, int duration);
+
+        /** A rest inside a measure: "~" or "~@n". */
+        void rest(int slices);
+
+        /** The only rest of an empty measure, always "~@n". */
+        void measureRest(int slices);
+
+        void weight(String weight);
+    }
+
+    /**
+     * Writes the measure text.
+     */
+    private record Text(StringBuilder pattern) implements Output {
+
+        @Override
+        public void symbol(char c) {
+            pattern.append(c);
+        }
+
+        @Override
+        public void note(int noteNumber, int duration) {
+            pattern.append(NoteConverter.toStrudelNoteName(noteNumber));
+            if (duration > 1) {
+                pattern.append("@").append(duration);
+            }
+        }
+
+        @Override
+        public void rest(int slices) {
+            if (slices == 1) {
+                pattern.append("~");
+            } else {
+                pattern.append("~@").append(slices);
+            }
+        }
+
+        @Override
+        public void measureRest(int slices) {
+            pattern.append("~@").append(slices);
+        }
+
+        @Override
+        public void weight(String weight) {
+            pattern.append(weight);
+        }
+    }
+
+    /**
+     * Counts the bytes and tokens of the measure text without building it.
+     */
+    private static final class Count implements Output {
+        long bytes;
+        long tokens;
+
+        @Override
+        public void symbol(char c) {
+            bytes++;
+        }
+
+        @Override
+        public void note(int noteNumber, int duration) {
+            bytes += NoteConverter.toStrudelNoteName(noteNumber).length();
+            if (duration > 1) {
+                bytes += 1 + digits(duration);
+            }
+            tokens++;
+        }
+
+        @Override
+        public void rest(int slices) {
+            bytes += slices == 1 ? 1 : 2 + digits(slices);
+            tokens++;
+        }
+
+        @Override
+        public void measureRest(int slices) {
+            bytes += 2 + digits(slices);
+            tokens++;
+        }
+
+        @Override
+        public void weight(String weight) {
+            bytes += weight.length();
+        }
+
+        private static int digits(int value) {
+            int digits = 1;
+            while (value >= 10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+/**
+ * Measures to convert ({@code --from-measure} and {@code --to-measure}), counted from 1 across
+ * meter changes as in the pattern header. Only the notes sounding in these measures are
+ * quantized, including notes held into the first one.
+ *
+ * @param from First measure
+ * @param to   Last measure, or null for the last measure of the file
+ */
+public record MeasureRange(int from, Integer to) {
+
+    /**
+     * Range from the command line options, either of which may be null.
+     *
+     * @return The range, or null if neither option is set
+     * @throws IllegalArgumentException if a measure is not positive or the range is empty
+     */
+    public static MeasureRange of(Integer fromMeasure, Integer toMeasure) {
+        if (fromMeasure == null && toMeasure == null) {
+            return null;
+        }
+        int from = fromMeasure != null ? fromMeasure : 1;
+        if (from < 1 || (toMeasure != null && toMeasure < 1)) {
+            throw new IllegalArgumentException("Invalid measure: " + (from < 1 ? from : toMeasure)
+                + " (measures are counted from 1)");
+        }
+        if (toMeasure != null && toMeasure < from) {
+            throw new IllegalArgumentException(
+                "Invalid measure range: --from-measure " + from + " is after --to-measure " + toMeasure);
+        }
+        return new MeasureRange(from, toMeasure);
+    }
+
+    /**
+     * Index of the first measure, counted from 0.
+     */
+    public int firstIndex() {
+        return from - 1;
+    }
+
+    /**
+     * Number of measures in the range for a file of {@code totalMeasures}; a range that runs
+     * past the end stops at the last measure.
+     *
+     * @throws IllegalArgumentException if the range starts after the last measure
+     */
+    public int count(int totalMeasures) {
+        if (from > totalMeasures) {
+            throw new IllegalArgumentException(String.format(
+                "Measure %d is past the end of the file (%d measures)", from, totalMeasures));
+        }
+        return (to == null ? totalMeasures : Math.min(to, totalMeasures)) - from + 1;
+    }
+
+    /**
+     * Header description of the measures converted, e.g. "measures 32-48 of 120".
+     */
+    public String describe(int totalMeasures) {
+        int last = from + count(totalMeasures) - 1;
+        return (last == from ? "measure " + from : "measures " + from + "-" + last) + " of " + totalMeasures;
+    }
+}
@@ -0,0 +1,122 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Fits the patterns of a conversion into an {@link OutputBudget} by coarsening the grid of
+ * single measures.
+ *
+ * <p>Every measure is sized once on its own grid. While the total is over budget, one
+ * measure is coarsened by one step, and only that measure is sized again, for its following
+ * grid; the others keep their sizes, so the work is proportional to the notes of the measures
+ * that are simplified, not to the length of the tracks. Measures on the finest grid go first,
+ * the one that saves the most first, so the detail stays even across the piece: no measure
+ * drops to quarter notes while another keeps its sixteenths. Measures that a coarser grid
+ * does not shorten, such as rests and sustained chords, are left alone. Patterns are
+ * rendered once, after the grids are chosen.
+ */
+final class MeasureSimplifier {
+
+    private MeasureSimplifier() {
+    }
+
+    /**
+     * Patterns that fit the budget (or are as small as the grids allow), with the report.
+     *
+     * @param patterns One pattern per track, in the order of the tracks
+     */
+    record Result(List<String> patterns, OutputBudget.Report report) {}
+
+    /**
+     * The next coarser grid of a measure and what it saves.
+     *
+     * @param slices Slices of the measure before the step
+     */
+    private record Step(int track, int measure, int slices, int factorIndex, long size, long saving) {}
+
+    /**
+     * @param grids        Quantized tracks
+     * @param trackIndices MIDI track index of each grid, for the report
+     * @param budget       Budget for all patterns together
+     */
+    static Result fit(List<MeasureGrid> grids, int[] trackIndices, OutputBudget budget) {
+        OutputBudget.Unit unit = budget.unit();
+
+        // Sizes on the tracks' own grids
+        long[][] sizes = new long[grids.size()][];
+        int[][] factorIndices = new int[grids.size()][];
+        long total = 0;
+        int totalMeasures = 0;
+        for (int t = 0; t < grids.size(); t++) {
+            MeasureGrid grid = grids.get(t);
+            sizes[t] = new long[grid.measureCount()];
+            factorIndices[t] = new int[grid.measureCount()];
+            total += grid.overhead(unit);
+            for (int m = 0; m < grid.measureCount(); m++) {
+                sizes[t][m] = grid.size(m, 1, unit);
+                total += sizes[t][m];
+            }
+            totalMeasures += grid.measureCount();
+        }
+        long before = total;
+
+        if (total > budget.limit()) {
+            // Finest grid first, then largest saving; earlier tracks and measures on ties
+            PriorityQueue<Step> steps = new PriorityQueue<>(Comparator.comparingInt(Step::slices).reversed()
+                .thenComparing(Comparator.comparingLong(Step::saving).reversed())
+                .thenComparingInt(Step::track)
+                .thenComparingInt(Step::measure));
+            for (int t = 0; t < grids.size(); t++) {
+                for (int m = 0; m < grids.get(t).measureCount(); m++) {
+                    if (!grids.get(t).isEmpty(m)) {
+                        offerNextStep(steps, grids.get(t), t, m, 0, sizes[t][m], unit);
+                    }
+                }
+            }
+            while (total > budget.limit() && !steps.isEmpty()) {
+                Step step = steps.poll();
+                total -= step.saving();
+                sizes[step.track()][step.measure()] = step.size();
+                factorIndices[step.track()][step.measure()] = step.factorIndex();
+                offerNextStep(steps, grids.get(step.track()), step.track(), step.measure(), step.factorIndex(),
+                    step.size(), unit);
+            }
+        }
+
+        // Render with the chosen grids
+        List<String> patterns = new ArrayList<>();
+        List<OutputBudget.SimplifiedMeasure> simplified = new ArrayList<>();
+        for (int t = 0; t < grids.size(); t++) {
+            MeasureGrid grid = grids.get(t);
+            int[] factors = new int[grid.measureCount()];
+            for (int m = 0; m < factors.length; m++) {
+                factors[m] = grid.factors(m)[factorIndices[t][m]];
+                if (factors[m] > 1) {
+                    simplified.add(new OutputBudget.SimplifiedMeasure(trackIndices[t], grid.startMeasure() + m + 1,
+                        grid.slicesPerMeasure(m) / factors[m]));
+                }
+            }
+            patterns.add(grid.render(factors));
+        }
+        return new Result(patterns, new OutputBudget.Report(budget, before, total, totalMeasures, simplified));
+    }
+
+    /**
+     * Queues the first grid coarser than {@code factorIndex} that makes the measure smaller, if any.
+     */
+    private static void offerNextStep(PriorityQueue<Step> steps, MeasureGrid grid, int track, int measure,
+                                      int factorIndex, long size, OutputBudget.Unit unit) {
+        int[] factors = grid.factors(measure);
+        for (int next = factorIndex + 1; next < factors.length; next++) {
+            long nextSize = grid.size(measure, factors[next], unit);
+            if (nextSize < size) {
+                steps.add(new Step(track, measure, grid.slicesPerMeasure(measure) / factors[factorIndex], next,
+                    nextSize, size - nextSize));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A stretch of the timeline with one time signature. Files that change meter are converted
+ * segment by segment, each on its own grid of measures starting at {@code startTick}.
+ *
+ * @param startTick   First tick of the segment
+ * @param numerator   Time signature numerator
+ * @param denominator Time signature denominator
+ * @param measures    Number of measures rendered for the segment
+ */
+public record MeterSegment(long startTick, int numerator, int denominator, int measures) {
+
+    /**
+     * Slices in one measure of this segment.
+     */
+    public int slicesPerMeasure(int quantization) {
+        return (quantization * numerator) / denominator;
+    }
+
+    /**
+     * Length of one measure in quarter notes, e.g. 3 for 3/4 and 2.5 for 5/8.
+     */
+    public double beatsPerMeasure() {
+        return numerator * 4.0 / denominator;
+    }
+
+    /**
+     * Time signatures in order of their first tick, with changes that restate the current
+     * signature (or are overridden at the same tick) removed. The first one starts at tick 0;
+     * 4/4 is assumed when the file has none.
+     */
+    public static List<TimeSignatureEntry> distinctSignatures(List<TimeSignatureEntry> timeSignatures) {
+        List<TimeSignatureEntry> sorted = new ArrayList<>(timeSignatures);
+        sorted.sort(Comparator.comparingLong(TimeSignatureEntry::getTick));
+
+        List<TimeSignatureEntry> distinct = new ArrayList<>();
+        for (TimeSignatureEntry entry : sorted) {
+            if (!distinct.isEmpty() && distinct.get(distinct.size() - 1).getTick() == entry.getTick()) {
+                // A later entry at the same tick wins
+                distinct.remove(distinct.size() - 1);
+            }
+            if (!distinct.isEmpty() && sameMeter(distinct.get(distinct.size() - 1), entry)) {
+                continue;
+            }
+            distinct.add(entry);
+        }
+        if (distinct.isEmpty()) {
+            distinct.add(new TimeSignatureEntry(0, 4, 4, 24, 8));
+        }
+        return distinct;
+    }
+
+    /**
+     * Split the timeline at time signature changes.
+     * Each segment but the last spans whole measures up to the next change (rounded up if
+     * the change is not on a bar line); the last one spans the measures up to the last note
+     * onset. Segments that start after the last note are dropped.
+     *
+     * @param timeSignatures Signatures as returned by {@link #distinctSignatures}
+     * @param lastNoteTick   Largest note onset tick across the tracks being converted
+     */
+    public static List<MeterSegment> partition(List<TimeSignatureEntry> timeSignatures, int division,
+                                               int quantization, long lastNoteTick) {
+        List<MeterSegment> segments = new ArrayList<>();
+        for (int i = 0; i < timeSignatures.size(); i++) {
+            TimeSignatureEntry entry = timeSignatures.get(i);
+            long start = i == 0 ? 0 : entry.getTick();
+            int numerator = entry.getNumerator();
+            int denominator = entry.getDenominator();
+
+            boolean last = i == timeSignatures.size() - 1 || timeSignatures.get(i + 1).getTick() > lastNoteTick;
+            int measures;
+            if (last) {
+                int slicesPerMeasure = (quantization * numerator) / denominator;
+                long lastSlice = RhythmConverter.tickToSlice(Math.max(lastNoteTick - start, 0), division, quantization);
+                measures = (int) (lastSlice / slicesPerMeasure) + 1;
+            } else {
+                // ticks * denominator / (division * 4 * numerator), rounded up
+                long length = timeSignatures.get(i + 1).getTick() - start;
+                long ticksPerMeasureTimesDenominator = 4L * division * numerator;
+                measures = (int) ((length * denominator + ticksPerMeasureTimesDenominator - 1)
+                    / ticksPerMeasureTimesDenominator);
+            }
+            if (measures > 0) {
+                segments.add(new MeterSegment(start, numerator, denominator, measures));
+            }
+            if (last) {
+                break;
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * The segments that {@code measures} measures from measure {@code firstMeasure} (counted
+     * from 0) fall in, with their measures cut to the window. Each keeps its start tick, the
+     * origin of its grid, so the first one may begin measures into its grid.
+     */
+    public static List<MeterSegment> window(List<MeterSegment> segments, int firstMeasure, int measures) {
+        List<MeterSegment> window = new ArrayList<>();
+        int segmentStart = 0;
+        int windowEnd = firstMeasure + measures;
+        for (MeterSegment segment : segments) {
+            int from = Math.max(firstMeasure, segmentStart);
+            int to = Math.min(windowEnd, segmentStart + segment.measures());
+            if (from < to) {
+                window.add(new MeterSegment(segment.startTick(), segment.numerator(), segment.denominator(), to - from));
+            }
+            segmentStart += segment.measures();
+        }
+        return window;
+    }
+
+    /**
+     * Human-readable summary of the meters, e.g. "4/4, 3/4 from measure 9, 4/4 from measure 17".
+     */
+    public static String describe(List<MeterSegment> segments) {
+        return describe(segments, 1);
+    }
+
+    /**
+     * Human-readable summary of the meters of segments whose first measure is measure
+     * {@code firstMeasure} (counted from 1), e.g. "3/4, 4/4 from measure 17".
+     */
+    public static String describe(List<MeterSegment> segments, int firstMeasure) {
+        StringBuilder description = new StringBuilder();
+        int measure = firstMeasure;
+        for (MeterSegment segment : segments) {
+            if (measure > firstMeasure) {
+                description.append(", ");
+            }
+            description.append(segment.numerator()).append("/").append(segment.denominator());
+            if (measure > firstMeasure) {
+                description.append(" from measure ").append(measure);
+            }
+            measure += segment.measures();
+        }
+        return description.toString();
+    }
+
+    private static boolean sameMeter(TimeSignatureEntry a, TimeSignatureEntry b) {
+        return a.getNumerator() == b.getNumerator() && a.getDenominator() == b.getDenominator();
+    }
+}
@@ -10,11 +10,12 @@ public class NoteConverter {
     /**
      * Converts a MIDI note number to Strudel note name format.
      * Strudel uses lowercase note names (e.g., "c4", "d#5").
+     * Names come from a precomputed table, so no string is built per call.
      *
      * @param noteNumber MIDI note number (0-127)
      * @return Strudel-formatted note name in lowercase
      */
     public static String toStrudelNoteName(int noteNumber) {
-        return NoteUtils.noteNumberToName(noteNumber).toLowerCase();
+        return NoteUtils.noteNumberToStrudelName(noteNumber);
     }
 }
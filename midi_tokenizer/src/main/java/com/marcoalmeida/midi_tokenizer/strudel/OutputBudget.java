@@ -0,0 +1,148 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Upper bound on the size of the note patterns of a conversion ({@code --max-bytes} or
+ * {@code --max-tokens}). Patterns that would exceed it are simplified measure by measure
+ * until they fit (see {@link MeasureSimplifier}).
+ *
+ * <p>The budget covers the note patterns, the text inside {@code note(`...`)}, which is nearly
+ * all of a long file; the header and track lines add a few hundred bytes on top. Tokens are
+ * the notes and rests of the mini-notation, each of which the REPL parses into an event.
+ *
+ * @param unit  What is counted
+ * @param limit Largest allowed total over all patterns
+ */
+public record OutputBudget(Unit unit, long limit) {
+
+    /**
+     * What a budget counts.
+     */
+    public enum Unit {
+        /** Characters of the patterns (all ASCII, so bytes of the file). */
+        BYTES("bytes"),
+        /** Notes and rests of the patterns. */
+        TOKENS("tokens");
+
+        private final String label;
+
+        Unit(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    /**
+     * Budget from the command line options, either of which may be null.
+     *
+     * @return The budget, or null if neither option is set
+     * @throws IllegalArgumentException if both are set or a limit is not positive
+     */
+    public static OutputBudget of(Integer maxBytes, Integer maxTokens) {
+        if (maxBytes != null && maxTokens != null) {
+            throw new IllegalArgumentException("Use either --max-bytes or --max-tokens, not both");
+        }
+        if (maxBytes != null) {
+            return positive(Unit.BYTES, maxBytes);
+        }
+        if (maxTokens != null) {
+            return positive(Unit.TOKENS, maxTokens);
+        }
+        return null;
+    }
+
+    private static OutputBudget positive(Unit unit, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Invalid budget: " + limit + " " + unit.label()
+                + " (expected a positive number)");
+        }
+        return new OutputBudget(unit, limit);
+    }
+
+    @Override
+    public String toString() {
+        return limit + " " + unit.label();
+    }
+
+    /**
+     * A measure rendered on a coarser grid to meet the budget.
+     *
+     * @param track   MIDI track index
+     * @param measure Measure number, counted from 1
+     * @param slices  Slices the measure was rendered with
+     */
+    public record SimplifiedMeasure(int track, int measure, int slices) {}
+
+    /**
+     * Outcome of fitting a conversion into a budget.
+     *
+     * @param budget        The budget
+     * @param before        Size of the patterns as converted
+     * @param after         Size of the patterns written
+     * @param totalMeasures Measures of all patterns
+     * @param simplified    Simplified measures, by track and measure
+     */
+    public record Report(OutputBudget budget, long before, long after, int totalMeasures,
+                         List<SimplifiedMeasure> simplified) {
+
+        /**
+         * Whether the patterns written are within the budget.
+         */
+        public boolean fits() {
+            return after <= budget.limit();
+        }
+
+        /**
+         * One-line summary naming the simplified measures, e.g. "Simplified 4 of 96 measures
+         * to fit 20000 bytes (23512 -> 19870 bytes): track 0 measures 5-7 (8 slices), 12 (4 slices)".
+         */
+        public String summary() {
+            String unit = budget.unit().label();
+            if (simplified.isEmpty()) {
+                return String.format("Patterns use %d of %s; no measures simplified", before, budget);
+            }
+            String outcome = fits()
+                ? String.format("Simplified %d of %d measures to fit %s", simplified.size(), totalMeasures, budget)
+                : String.format("Could not fit %s even on the coarsest grids; simplified %d of %d measures",
+                    budget, simplified.size(), totalMeasures);
+            return outcome + String.format(" (%d -> %d %s): ", before, after, unit) + describeMeasures();
+        }
+
+        /**
+         * Runs of consecutive measures with the same slices, per track:
+         * "track 0 measures 5-7 (8 slices), 12 (4 slices); track 1 measure 3 (8 slices)".
+         */
+        private String describeMeasures() {
+            List<String> tracks = new ArrayList<>();
+            int i = 0;
+            while (i < simplified.size()) {
+                int track = simplified.get(i).track();
+                List<String> runs = new ArrayList<>();
+                int measures = 0;
+                while (i < simplified.size() && simplified.get(i).track() == track) {
+                    SimplifiedMeasure first = simplified.get(i);
+                    int last = i;
+                    while (last + 1 < simplified.size()
+                        && simplified.get(last + 1).track() == track
+                        && simplified.get(last + 1).measure() == simplified.get(last).measure() + 1
+                        && simplified.get(last + 1).slices() == first.slices()) {
+                        last++;
+                    }
+                    int lastMeasure = simplified.get(last).measure();
+                    runs.add((lastMeasure == first.measure() ? String.valueOf(lastMeasure)
+                        : first.measure() + "-" + lastMeasure)
+                        + " (" + first.slices() + (first.slices() == 1 ? " slice)" : " slices)"));
+                    measures += last - i + 1;
+                    i = last + 1;
+                }
+                tracks.add("track " + track + (measures == 1 ? " measure " : " measures ") + String.join(", ", runs));
+            }
+            return String.join("; ", tracks);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Chooses a quantization level for {@code --quantize auto} by trying every candidate grid on
+ * the note onsets and note ends.
+ *
+ * <p>A candidate costs {@link #ERROR_WEIGHT} per squared quarter note of snap error (the
+ * distance an onset moves when rounded to the nearest slice, squared; note ends count half)
+ * plus one per distinct slice that onsets and ends land on, since every such position is a
+ * note or rest in the pattern. Squaring makes notes that belong to a finer grid (a sixteenth
+ * snapped to an eighth) cost far more than performance jitter, which a finer grid would only
+ * trade for a longer pattern. The cheapest candidate wins; ties go to the coarser grid.
+ * Ticks are measured from the start of the meter segment they fall in, on the same grids the
+ * converter renders. Candidates only read a shared {@link Ticks} view, collected once, so they
+ * are scored concurrently.
+ */
+public final class QuantizationSearch {
+
+    /** Quantization levels tried, coarsest first. */
+    public static final int[] CANDIDATES = {6, 8, 12, 16, 24, 32, 48};
+
+    /** Cost of one squared quarter note of snap error, in grid positions. */
+    public static final double ERROR_WEIGHT = 64;
+
+    /** Views with at least this many ticks score candidates in parallel. */
+    private static final int PARALLEL_THRESHOLD_TICKS = 50_000;
+
+    private QuantizationSearch() {
+    }
+
+    /**
+     * Score of one candidate grid.
+     *
+     * @param quantization Quantization level (slices per 4/4 measure)
+     * @param snapError    Sum of squared snap errors in quarter notes, note ends weighted by half
+     * @param positions    Distinct slices the onsets and note ends land on
+     */
+    public record Score(int quantization, double snapError, long positions) {
+
+        public double cost() {
+            return ERROR_WEIGHT * snapError + positions;
+        }
+    }
+
+    /**
+     * Onset and note end ticks of one or more tracks, in no particular order.
+     *
+     * @param maxTick Largest of the ticks (0 if there are none)
+     */
+    public record Ticks(long[] onsets, long[] ends, long maxTick) {
+
+        public static Ticks of(List<? extends EventView> tracks) {
+            int notes = 0;
+            for (EventView events : tracks) {
+                notes += events.noteCount();
+            }
+            long[] onsets = new long[notes];
+            long[] ends = new long[notes];
+            long maxTick = 0;
+            int n = 0;
+            for (EventView events : tracks) {
+                for (int row = 0; row < events.size(); row++) {
+                    if (events.isNote(row)) {
+                        onsets[n] = events.tick(row);
+                        ends[n] = events.tick(row) + events.durationTicks(row);
+                        maxTick = Math.max(maxTick, ends[n++]);
+                    }
+                }
+            }
+            return new Ticks(onsets, ends, maxTick);
+        }
+
+        int size() {
+            return onsets.length + ends.length;
+        }
+    }
+
+    /**
+     * Best candidate for the given onsets and note ends. Only candidates that give a whole
+     * number of slices per measure in every segment are tried (all of them if none do).
+     *
+     * @param division MIDI division (ticks per quarter note)
+     * @param segments Meter segments the notes are rendered in (see {@link MeterSegment#partition});
+     *                 only their start ticks and meters are used
+     * @throws IllegalArgumentException if {@code segments} is empty
+     */
+    public static int choose(Ticks ticks, int division, List<MeterSegment> segments) {
+        Score best = null;
+        for (Score score : score(ticks, division, segments)) {
+            if (best == null || score.cost() < best.cost()) {
+                best = score;
+            }
+        }
+        if (best == null) {
+            throw new IllegalArgumentException("No quantization candidates to choose from");
+        }
+        return best.quantization();
+    }
+
+    /**
+     * Scores of the candidates that fit {@code segments}, coarsest first.
+     *
+     * @throws IllegalArgumentException if {@code segments} is empty
+     */
+    public static List<Score> score(Ticks ticks, int division, List<MeterSegment> segments) {
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("At least one meter segment is required");
+        }
+        int[] candidates = Arrays.stream(CANDIDATES)
+            .filter(quantization -> fits(quantization, segments))
+            .toArray();
+        if (candidates.length == 0) {
+            candidates = CANDIDATES;
+        }
+
+        long[] starts = segments.stream().mapToLong(MeterSegment::startTick).toArray();
+        IntStream stream = Arrays.stream(candidates);
+        if (ticks.size() >= PARALLEL_THRESHOLD_TICKS) {
+            stream = stream.parallel();
+        }
+        return stream.mapToObj(quantization -> score(ticks, division, starts, quantization)).toList();
+    }
+
+    /**
+     * Snap error and distinct positions of every tick on a grid of
+     * {@code division * 4 / quantization}-tick slices, rounded like
+     * {@link RhythmConverter#tickToSlice}. Each segment has its own grid starting at its
+     * start tick, as when it is rendered, and a tick belongs to the last segment whose
+     * start it does not round to before.
+     *
+     * @param starts Start tick of each segment, ascending
+     */
+    static Score score(Ticks ticks, int division, long[] starts, int quantization) {
+        long sliceUnits = 4L * division;
+
+        // Slices are numbered across segments: each segment's grid begins one slice past
+        // the slices spanned by the previous one, so positions in different segments never merge
+        long[] firstSlices = new long[starts.length];
+        for (int i = 1; i < starts.length; i++) {
+            firstSlices[i] = firstSlices[i - 1] + Math.ceilDiv((starts[i] - starts[i - 1]) * quantization, sliceUnits) + 1;
+        }
+        int last = starts.length - 1;
+        long lastSlice = firstSlices[last]
+            + Math.floorDiv(2 * Math.max(ticks.maxTick() - starts[last], 0) * quantization + sliceUnits, 2 * sliceUnits);
+
+        // Occupied slices in a bitmap, or listed and sorted when the ticks are too sparse for one
+        boolean dense = lastSlice < 64L * ticks.size() + (1 << 20);
+        long[] occupied = new long[dense ? (int) (lastSlice >> 6) + 1 : ticks.size()];
+        Grid grid = new Grid(quantization, sliceUnits, starts, firstSlices, dense, occupied);
+        double unitsPerQuarter = (double) quantization * division;
+        double snapError = grid.snap(ticks.onsets(), 0) / unitsPerQuarter / unitsPerQuarter;
+        snapError += 0.5 * grid.snap(ticks.ends(), ticks.onsets().length) / unitsPerQuarter / unitsPerQuarter;
+
+        long positions = 0;
+        if (dense) {
+            for (long word : occupied) {
+                positions += Long.bitCount(word);
+            }
+        } else {
+            Arrays.sort(occupied);
+            for (int i = 0; i < occupied.length; i++) {
+                if (i == 0 || occupied[i] != occupied[i - 1]) {
+                    positions++;
+                }
+            }
+        }
+        return new Score(quantization, snapError, positions);
+    }
+
+    /**
+     * Snap error and distinct positions on a grid of a single segment starting at tick 0.
+     */
+    static Score score(Ticks ticks, int division, int quantization) {
+        return score(ticks, division, new long[] {0}, quantization);
+    }
+
+    /**
+     * The slice grids of one candidate, with ticks scaled by the quantization so a slice is
+     * exactly {@code sliceUnits} wide.
+     */
+    private record Grid(long quantization, long sliceUnits, long[] starts, long[] firstSlices,
+                        boolean dense, long[] occupied) {
+
+        /**
+         * Marks the slice nearest to each tick (sets its bit, or lists it from {@code offset}) and
+         * returns the sum of squared distances to it, in units of 1/quantization ticks.
+         */
+        double snap(long[] ticks, int offset) {
+            double error = 0;
+            for (int i = 0; i < ticks.length; i++) {
+                int segment = segmentOf(ticks[i]);
+                long units = (ticks[i] - starts[segment]) * quantization;
+                long slice = Math.floorDiv(2 * units + sliceUnits, 2 * sliceUnits);
+                long distance = units - slice * sliceUnits;
+                error += (double) distance * distance;
+
+                long position = firstSlices[segment] + slice;
+                if (dense) {
+                    occupied[(int) (position >> 6)] |= 1L << position;
+                } else {
+                    occupied[offset + i] = position;
+                }
+            }
+            return error;
+        }
+
+        /**
+         * Index of the last segment whose start is at or before the slice nearest to
+         * {@code tick} (0 if none), the same rule the converter splits notes by.
+         */
+        private int segmentOf(long tick) {
+            int low = 1;
+            int high = starts.length - 1;
+            int found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (2 * (tick - starts[mid]) * quantization + sliceUnits >= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+
+    private static boolean fits(int quantization, List<MeterSegment> segments) {
+        for (MeterSegment segment : segments) {
+            if ((quantization * segment.numerator()) % segment.denominator() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
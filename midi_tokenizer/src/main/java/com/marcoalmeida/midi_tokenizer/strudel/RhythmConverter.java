@@ -1,27 +1,25 @@
 package com.marcoalmeida.midi_tokenizer.strudel;
 
 import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 /**
  * Converts MIDI note events to Strudel pattern strings with polyphonic support.
  * Phase 1.9: Dual-mode conversion - polyphonic (default) or non-polyphonic (--no-polyphony).
+ *
+ * <p>Notes can be placed on the grid by ticks ({@link #toQuantizedTickPattern}), which is
+ * exact integer arithmetic and independent of tempo, or by seconds at a fixed tempo
+ * ({@link #toQuantizedCyclePattern}). Files that change time signature are converted by
+ * {@link #toSegmentedTickPattern}.
  */
 public class RhythmConverter {
 
-    /**
-     * Internal class to hold note with its duration.
-     */
-    private static class NoteWithDuration {
-        final String noteName;
-        final int duration;  // Integer slices
-
-        NoteWithDuration(String noteName, int duration) {
-            this.noteName = noteName;
-            this.duration = duration;
-        }
-    }
+    /** Tracks with at least this many notes quantize their meter segments in parallel. */
+    public static final int PARALLEL_THRESHOLD_NOTES = 20_000;
 
     /**
      * Converts MIDI note events to Strudel cycle pattern.
@@ -51,10 +49,282 @@ public class RhythmConverter {
             return "";
         }
 
+        return toQuantizedCyclePattern(TrackEvents.from(noteEvents), division, numerator, denominator,
+            quantization, tempo, polyphonic, totalMeasures);
+    }
+
+    /**
+     * Converts the note rows of a track (on-heap or off-heap) to Strudel cycle pattern.
+     * Non-note rows are ignored, so a whole track can be passed as is.
+     *
+     * @param events       Track events with seconds available (see {@link EventView#hasSeconds()})
+     * @see #toQuantizedCyclePattern(List, int, int, int, int, int, boolean, int)
+     */
+    public static String toQuantizedCyclePattern(
+        EventView events,
+        int division,
+        int numerator,
+        int denominator,
+        int quantization,
+        int tempo,
+        boolean polyphonic,
+        int totalMeasures
+    ) {
+        if (events.noteCount() == 0) {
+            return "";
+        }
+
+        // BPM = beats per minute, one beat = quarter note
+        // sliceTimeSeconds = (60 / tempo) * (4 / quantization)
+        double sliceTimeSeconds = (60.0 / tempo) * (4.0 / quantization);
+        return toPattern(events, new SecondsGrid(sliceTimeSeconds), numerator, denominator, quantization,
+            polyphonic, totalMeasures);
+    }
+
+    /**
+     * Converts MIDI note events to Strudel cycle pattern, placing them on the grid by tick.
+     *
+     * @param noteEvents   MIDI note events with tick and durationTicks
+     * @see #toQuantizedTickPattern(EventView, int, int, int, int, boolean, int)
+     */
+    public static String toQuantizedTickPattern(
+        List<EventOutput> noteEvents,
+        int division,
+        int numerator,
+        int denominator,
+        int quantization,
+        boolean polyphonic,
+        int totalMeasures
+    ) {
+        if (noteEvents.isEmpty()) {
+            return "";
+        }
+
+        return toQuantizedTickPattern(TrackEvents.from(noteEvents), division, numerator, denominator,
+            quantization, polyphonic, totalMeasures);
+    }
+
+    /**
+     * Converts the note rows of a track to Strudel cycle pattern, placing them on the grid by
+     * tick. A slice is {@code division * 4 / quantization} ticks wide; positions and durations
+     * are rounded to the nearest slice in integer arithmetic, so they do not drift over long
+     * files, do not depend on the tempo map, and need no seconds.
+     *
+     * @param events       Track events; non-note rows are ignored
+     * @param division     MIDI division (ticks per quarter note)
+     * @param numerator    Time signature numerator
+     * @param denominator  Time signature denominator
+     * @param quantization Quantization level (slices per 4/4 measure)
+     * @param polyphonic   Enable polyphonic mode (true) or non-polyphonic (false)
+     * @param totalMeasures Total number of measures to generate (for multi-track sync)
+     * @return Strudel pattern string wrapped in <>
+     */
+    public static String toQuantizedTickPattern(
+        EventView events,
+        int division,
+        int numerator,
+        int denominator,
+        int quantization,
+        boolean polyphonic,
+        int totalMeasures
+    ) {
+        if (events.noteCount() == 0) {
+            return "";
+        }
+
+        return toPattern(events, new TickGrid(division, quantization, 0), numerator, denominator, quantization,
+            polyphonic, totalMeasures);
+    }
+
+    /**
+     * Nearest slice to {@code tick}, for a grid of {@code quantization} slices per 4/4 measure.
+     */
+    public static long tickToSlice(long tick, int division, int quantization) {
+        return new TickGrid(division, quantization, 0).nearestSlice(tick);
+    }
+
+    /**
+     * Converts the note rows of a track that changes time signature. Each segment is
+     * quantized on its own grid starting at its first tick, with its own slices per measure,
+     * and the measures of all segments are joined into one cycle pattern. A cycle is one
+     * quarter note and every measure is weighted by its length in quarter notes
+     * ({@code [..]@3} for 3/4), so measures keep their length when the meter changes.
+     * Notes belong to the segment their rounded onset falls in; in non-polyphonic mode notes
+     * held past the end of their segment continue into the next, as across a bar line.
+     *
+     * @param events       Track events; non-note rows are ignored
+     * @param division     MIDI division (ticks per quarter note)
+     * @param segments     Meter segments in timeline order (see {@link MeterSegment#partition})
+     * @param quantization Quantization level (slices per 4/4 measure)
+     * @param polyphonic   Enable polyphonic mode (true) or non-polyphonic (false)
+     * @return Strudel pattern string wrapped in <>, or "" if the track has no notes
+     */
+    public static String toSegmentedTickPattern(
+        EventView events,
+        int division,
+        List<MeterSegment> segments,
+        int quantization,
+        boolean polyphonic
+    ) {
+        if (events.noteCount() == 0) {
+            return "";
+        }
+
+        int[][] rows = rowsBySegment(events, division, segments, quantization, polyphonic);
+
+        StringBuilder pattern = new StringBuilder();
+        pattern.append("<");
+        if (events.noteCount() >= PARALLEL_THRESHOLD_NOTES && segments.size() > 1
+            && Runtime.getRuntime().availableProcessors() > 1) {
+            // Segments are independent; large tracks render them in parallel
+            String[] parts = IntStream.range(0, segments.size())
+                .parallel()
+                .mapToObj(i -> {
+                    StringBuilder part = new StringBuilder();
+                    appendSegment(part, events, rows[i], division, segments.get(i), quantization, polyphonic);
+                    return part.toString();
+                })
+                .toArray(String[]::new);
+            pattern.append(String.join(" ", parts));
+        } else {
+            for (int i = 0; i < segments.size(); i++) {
+                if (i > 0) {
+                    pattern.append(" ");
+                }
+                appendSegment(pattern, events, rows[i], division, segments.get(i), quantization, polyphonic);
+            }
+        }
+        pattern.append(">");
+
+        return pattern.toString();
+    }
+
+    /**
+     * Note rows of each segment, in row order within a segment (see
+     * {@link #rowsBySegment(EventView, int[], int, List, int, boolean)}).
+     */
+    static int[][] rowsBySegment(EventView events, int division, List<MeterSegment> segments, int quantization,
+                                 boolean polyphonic) {
+        return rowsBySegment(events, null, division, segments, quantization, polyphonic);
+    }
+
+    /**
+     * Note rows of each segment, in row order within a segment. A note belongs to the segment
+     * its rounded onset falls in, and to the first segment if it starts before the second.
+     * In non-polyphonic mode a note also belongs to every later segment it is still held in,
+     * where it starts the segment with the rest of its duration, as across a bar line.
+     *
+     * @param rows Note rows to split, in ascending order, or null for all rows of {@code events}
+     */
+    static int[][] rowsBySegment(EventView events, int[] rows, int division, List<MeterSegment> segments,
+                                 int quantization, boolean polyphonic) {
+        // Counting sort of the note rows by segment
+        long[] starts = new long[segments.size()];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = segments.get(i).startTick();
+        }
+        TickGrid grid = new TickGrid(division, quantization, 0);
+        int rowCount = rows == null ? events.size() : rows.length;
+        int noteCapacity = rows == null ? events.noteCount() : rows.length;
+        int[] firstSegment = new int[noteCapacity];
+        int[] lastSegment = new int[noteCapacity];
+        int[] offsets = new int[segments.size() + 1];
+        int notes = 0;
+        for (int i = 0; i < rowCount; i++) {
+            int row = rows == null ? i : rows[i];
+            if (events.isNote(row)) {
+                int first = grid.segmentOf(events.tick(row), starts);
+                int last = first;
+                if (!polyphonic) {
+                    long endTick = events.tick(row) + events.durationTicks(row);
+                    while (last + 1 < starts.length && starts[last + 1] < endTick) {
+                        last++;
+                    }
+                }
+                firstSegment[notes] = first;
+                lastSegment[notes] = last;
+                notes++;
+                for (int segment = first; segment <= last; segment++) {
+                    offsets[segment + 1]++;
+                }
+            }
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sorted = new int[offsets[segments.size()]];
+        int[] cursors = Arrays.copyOf(offsets, segments.size());
+        for (int i = 0, note = 0; i < rowCount; i++) {
+            int row = rows == null ? i : rows[i];
+            if (events.isNote(row)) {
+                for (int segment = firstSegment[note]; segment <= lastSegment[note]; segment++) {
+                    sorted[cursors[segment]++] = row;
+                }
+                note++;
+            }
+        }
+
+        int[][] rowsBySegment = new int[segments.size()][];
+        for (int i = 0; i < segments.size(); i++) {
+            rowsBySegment[i] = Arrays.copyOfRange(sorted, offsets[i], offsets[i + 1]);
+        }
+        return rowsBySegment;
+    }
+
+    /**
+     * Polyphonic grid of {@code measures} measures of one meter segment, starting
+     * {@code skipped} measures into it; positions are counted from the first of them.
+     *
+     * @param rows Note rows to place, or null for all rows of {@code events}
+     */
+    static OnsetGrid onsetGrid(EventView events, int[] rows, int division, MeterSegment segment, int skipped,
+                               int measures, int quantization) {
+        int slicesPerMeasure = segment.slicesPerMeasure(quantization);
+        return OnsetGrid.build(events, rows,
+            new TickGrid(division, quantization, segment.startTick(), (long) skipped * slicesPerMeasure),
+            (long) slicesPerMeasure * measures);
+    }
+
+    /**
+     * Non-polyphonic grid of {@code measures} measures of one meter segment, starting
+     * {@code skipped} measures into it; slices are counted from the first of them.
+     *
+     * @param rows Note rows to place, or null for all rows of {@code events}
+     */
+    static SliceRuns sliceRuns(EventView events, int[] rows, int division, MeterSegment segment, int skipped,
+                               int measures, int quantization) {
+        int slicesPerMeasure = segment.slicesPerMeasure(quantization);
+        return SliceRuns.build(events, rows,
+            new TickGrid(division, quantization, segment.startTick(), (long) skipped * slicesPerMeasure),
+            (long) slicesPerMeasure * measures);
+    }
+
+    /**
+     * Appends the measures of one meter segment, each weighted by its length in quarter notes.
+     */
+    private static void appendSegment(StringBuilder pattern, EventView events, int[] rows, int division,
+                                      MeterSegment segment, int quantization, boolean polyphonic) {
+        SliceGrid slices = new TickGrid(division, quantization, segment.startTick());
+        String weight = "@" + formatWeight(segment.beatsPerMeasure());
+        if (polyphonic) {
+            appendPolyphonicMeasures(pattern, events, rows, slices,
+                segment.slicesPerMeasure(quantization), segment.measures(), weight);
+        } else {
+            appendNonPolyphonicMeasures(pattern, events, rows, slices,
+                segment.slicesPerMeasure(quantization), segment.measures(), weight);
+        }
+    }
+
+    static String formatWeight(double beats) {
+        return beats == Math.rint(beats) ? String.valueOf((long) beats) : String.valueOf(beats);
+    }
+
+    private static String toPattern(EventView events, SliceGrid slices, int numerator, int denominator,
+                                    int quantization, boolean polyphonic, int totalMeasures) {
         if (polyphonic) {
-            return toPolyphonicPattern(noteEvents, division, numerator, denominator, quantization, tempo, totalMeasures);
+            return toPolyphonicPattern(events, slices, numerator, denominator, quantization, totalMeasures);
         } else {
-            return toNonPolyphonicPattern(noteEvents, division, numerator, denominator, quantization, tempo, totalMeasures);
+            return toNonPolyphonicPattern(events, slices, numerator, denominator, quantization, totalMeasures);
         }
     }
 
@@ -63,134 +333,240 @@ public class RhythmConverter {
      * - Preserves ALL simultaneous notes as chords [c4,e4,g4]
      * - No conflict resolution, no merging
      * - Integer durations only
-     * - Time-based positioning
+     * - Tick or time-based positioning
      */
     private static String toPolyphonicPattern(
-        List<EventOutput> noteEvents,
-        int division,
+        EventView events,
+        SliceGrid slices,
         int numerator,
         int denominator,
         int quantization,
-        int tempo,
         int totalMeasures
     ) {
         // Calculate grid parameters
         int slicesPerMeasure = (quantization * numerator) / denominator;
-        
-        // Calculate slice time in seconds
-        // BPM = beats per minute, one beat = quarter note
-        // sliceTimeSeconds = (60 / tempo) * (4 / quantization)
-        double sliceTimeSeconds = (60.0 / tempo) * (4.0 / quantization);
-
-        // Populate grid using Map<position, List<NoteWithDuration>>
-        Map<Integer, List<NoteWithDuration>> grid = new HashMap<>();
-        
-        // Find maximum position for measure calculation
-        int maxPosition = 0;
-        
-        for (EventOutput event : noteEvents) {
-            // Calculate grid position using timeSeconds (more accurate than tick division)
-            int gridPosition = (int) Math.round(event.getTimeSeconds() / sliceTimeSeconds);
-            
-            // Calculate duration in slices
-            double durationInSlices = event.getDurationSeconds() / sliceTimeSeconds;
-            int integerDuration = (int) Math.round(durationInSlices);
-            
-            // Minimum duration = 1 (always round up, never drop notes)
-            if (integerDuration < 1) {
-                integerDuration = 1;
-            }
-            
-            String noteName = NoteConverter.toStrudelNoteName(event.getNoteNumber());
-            
-            // Add to grid (allow multiple notes at same position - polyphony)
-            grid.computeIfAbsent(gridPosition, k -> new ArrayList<>())
-                .add(new NoteWithDuration(noteName, integerDuration));
-        }
 
         // Use totalMeasures parameter for multi-track synchronization
-        int numMeasures = totalMeasures;
-
-        // Build pattern measure by measure
         StringBuilder pattern = new StringBuilder();
         pattern.append("<");
+        appendPolyphonicMeasures(pattern, events, null, slices, slicesPerMeasure, totalMeasures, "");
+        pattern.append(">");
+
+        return pattern.toString();
+    }
+
+    /**
+     * Appends {@code numMeasures} space-separated measures, each followed by {@code weight}.
+     *
+     * @param rows Note rows to place, or null for all rows of {@code events}
+     */
+    private static void appendPolyphonicMeasures(StringBuilder pattern, EventView events, int[] rows,
+                                                 SliceGrid slices, int slicesPerMeasure, int numMeasures,
+                                                 String weight) {
+        // Onsets grouped by grid position; positions outside the rendered measures are dropped
+        OnsetGrid grid = OnsetGrid.build(events, rows, slices, (long) slicesPerMeasure * numMeasures);
 
+        // Build pattern measure by measure, walking the sorted positions once
+        int next = 0;  // Index of the first position not yet rendered
         for (int measure = 0; measure < numMeasures; measure++) {
-            int measureStart = measure * slicesPerMeasure;
-            int measureEnd = measureStart + slicesPerMeasure;
+            long measureStart = (long) measure * slicesPerMeasure;
+            long measureEnd = measureStart + slicesPerMeasure;
             
-// Check if entire measure is empty
-            boolean isEmpty = true;
-            for (int i = measureStart; i < measureEnd; i++) {
-                if (grid.containsKey(i)) {
-                    isEmpty = false;
-                    break;
-                }
-            }
-            
-            if (isEmpty) {
+            if (next == grid.size() || grid.positions[next] >= measureEnd) {
                 // Use compact notation for empty measure
-                pattern.append("[~@").append(slicesPerMeasure).append("]");
+                pattern.append("[~@").append(slicesPerMeasure).append("]").append(weight);
             } else {
                 pattern.append("[");
-                int i = measureStart;
+                long i = measureStart;
                 while (i < measureEnd) {
-                    if (grid.containsKey(i)) {
-                        List<NoteWithDuration> notes = grid.get(i);
+                    if (next < grid.size() && grid.positions[next] == i) {
+                        int first = grid.offsets[next];
+                        int last = grid.offsets[next + 1];
                         
                         // Format as chord if multiple notes
-                        if (notes.size() > 1) {
+                        if (last - first > 1) {
                             pattern.append("[");
-                            for (int j = 0; j < notes.size(); j++) {
-                                NoteWithDuration note = notes.get(j);
-                                pattern.append(note.noteName);
-                                if (note.duration > 1) {
-                                    pattern.append("@").append(note.duration);
-                                }
-                                if (j < notes.size() - 1) {
+                            for (int j = first; j < last; j++) {
+                                appendNote(pattern, grid.notes[j], grid.durations[j]);
+                                if (j < last - 1) {
                                     pattern.append(",");  // No spaces in chord notation
                                 }
                             }
                             pattern.append("]");
                         } else {
                             // Single note
-                            NoteWithDuration note = notes.get(0);
-                            pattern.append(note.noteName);
-                            if (note.duration > 1) {
-                                pattern.append("@").append(note.duration);
-                            }
+                            appendNote(pattern, grid.notes[first], grid.durations[first]);
                         }
+                        next++;
                         i++;
                     } else {
-                        // Empty slot - count consecutive rests
-                        int restCount = 1;
-                        while (i + restCount < measureEnd && !grid.containsKey(i + restCount)) {
-                            restCount++;
-                        }
+                        // Empty slots up to the next onset in this measure
+                        long onset = next < grid.size() ? Math.min(grid.positions[next], measureEnd) : measureEnd;
+                        int restCount = (int) (onset - i);
                         
                         if (restCount == 1) {
                             pattern.append("~");
                         } else {
                             pattern.append("~@").append(restCount);
                         }
-                        i += restCount;
+                        i = onset;
                     }
                     
                     if (i < measureEnd) {
                         pattern.append(" ");
                     }
                 }
-                pattern.append("]");
+                pattern.append("]").append(weight);
             }
             
             if (measure < numMeasures - 1) {
                 pattern.append(" ");
             }
         }
+    }
 
-        pattern.append(">");
+    private static void appendNote(StringBuilder pattern, byte noteNumber, int duration) {
+        pattern.append(NoteConverter.toStrudelNoteName(noteNumber));
+        if (duration > 1) {
+            pattern.append("@").append(duration);
+        }
+    }
 
-        return pattern.toString();
+    /**
+     * Note onsets grouped by grid position in compressed sparse row form: the distinct
+     * occupied positions in ascending order, and for each one a range
+     * {@code offsets[i]..offsets[i + 1]} of the flat note and duration arrays.
+     * Notes at the same position keep their event order.
+     */
+    static final class OnsetGrid {
+
+        /** Above this many grid positions per note, sorting the notes beats counting over the grid. */
+        private static final int MAX_COUNTING_SPREAD = 16;
+
+        final int[] positions;
+        final int[] offsets;
+        final byte[] notes;
+        final int[] durations;
+
+        private OnsetGrid(int[] positions, int[] offsets, byte[] notes, int[] durations) {
+            this.positions = positions;
+            this.offsets = offsets;
+            this.notes = notes;
+            this.durations = durations;
+        }
+
+        int size() {
+            return positions.length;
+        }
+
+        /**
+         * Counting sort of the note rows by grid position, or a sort of the notes when the grid is
+         * sparse (long silences, far-out events) so that memory follows the number of notes.
+         * Notes that start before the grid and are still held at its start (a grid that begins
+         * mid-track) are placed at position 0 with what remains of them.
+         *
+         * @param rows     Rows to place, or null for all rows of {@code events}
+         * @param gridSize Positions at or beyond this are not rendered and are dropped
+         */
+        static OnsetGrid build(EventView events, int[] rows, SliceGrid slices, long gridSize) {
+            // Position and duration in slices of every kept note, in event order
+            int capacity = rows == null ? events.noteCount() : rows.length;
+            int[] rowPositions = new int[capacity];
+            int[] rowDurations = new int[capacity];
+            byte[] rowNotes = new byte[capacity];
+            int kept = 0;
+            int rowCount = rows == null ? events.size() : rows.length;
+            for (int i = 0; i < rowCount; i++) {
+                int row = rows == null ? i : rows[i];
+                if (!events.isNote(row)) {
+                    continue;
+                }
+                
+                long gridPosition = slices.startSlice(events, row);
+                // Duration in slices; minimum 1 (always round up, never drop notes)
+                long integerDuration = slices.durationSlices(events, row);
+                if (gridPosition < 0) {
+                    integerDuration = slices.endSlice(events, row);
+                    gridPosition = 0;
+                    if (integerDuration <= 0) {
+                        continue;
+                    }
+                }
+                if (gridPosition >= gridSize) {
+                    continue;
+                }
+                
+                rowPositions[kept] = (int) gridPosition;
+                rowDurations[kept] = (int) Math.min(Math.max(integerDuration, 1), Integer.MAX_VALUE);
+                rowNotes[kept] = (byte) events.noteNumber(row);
+                kept++;
+            }
+
+            if (gridSize > (long) MAX_COUNTING_SPREAD * kept + 1024) {
+                return sorted(rowPositions, rowNotes, rowDurations, kept);
+            }
+
+            // Notes per position, then prefix sums as write cursors
+            int[] starts = new int[(int) gridSize + 1];
+            int distinct = 0;
+            for (int k = 0; k < kept; k++) {
+                if (starts[rowPositions[k] + 1]++ == 0) {
+                    distinct++;
+                }
+            }
+            int[] positions = new int[distinct];
+            int[] offsets = new int[distinct + 1];
+            int d = 0;
+            for (int position = 0; position < gridSize; position++) {
+                int count = starts[position + 1];
+                starts[position + 1] = starts[position] + count;
+                if (count > 0) {
+                    positions[d] = position;
+                    offsets[d] = starts[position];
+                    d++;
+                }
+            }
+            offsets[distinct] = kept;
+
+            byte[] notes = new byte[kept];
+            int[] durations = new int[kept];
+            for (int k = 0; k < kept; k++) {
+                int slot = starts[rowPositions[k]]++;
+                notes[slot] = rowNotes[k];
+                durations[slot] = rowDurations[k];
+            }
+            return new OnsetGrid(positions, offsets, notes, durations);
+        }
+
+        /**
+         * Builds the grid by sorting (position, event order) keys of the kept notes.
+         */
+        private static OnsetGrid sorted(int[] rowPositions, byte[] rowNotes, int[] rowDurations, int kept) {
+            long[] keys = new long[kept];
+            for (int k = 0; k < kept; k++) {
+                keys[k] = (long) rowPositions[k] << 32 | k;
+            }
+            Arrays.sort(keys);
+
+            int[] positions = new int[kept];
+            int[] offsets = new int[kept + 1];
+            byte[] notes = new byte[kept];
+            int[] durations = new int[kept];
+            int distinct = 0;
+            for (int slot = 0; slot < kept; slot++) {
+                int k = (int) keys[slot];
+                if (distinct == 0 || positions[distinct - 1] != rowPositions[k]) {
+                    positions[distinct] = rowPositions[k];
+                    offsets[distinct] = slot;
+                    distinct++;
+                }
+                notes[slot] = rowNotes[k];
+                durations[slot] = rowDurations[k];
+            }
+            offsets[distinct] = kept;
+            return new OnsetGrid(Arrays.copyOf(positions, distinct), Arrays.copyOf(offsets, distinct + 1),
+                notes, durations);
+        }
     }
 
     /**
@@ -198,161 +574,384 @@ public class RhythmConverter {
      * - 50% occupancy rule: note must occupy >50% of slice
      * - Conflict resolution: longest duration wins
      * - Consecutive identical notes merged with @N notation
-     * - Uses timeSeconds for positioning (Phase 1.8 improvement)
+     * - Uses tick or timeSeconds for positioning
      * - Integer durations only (Phase 1.8 improvement)
      */
     private static String toNonPolyphonicPattern(
-        List<EventOutput> noteEvents,
-        int division,
+        EventView events,
+        SliceGrid slices,
         int numerator,
         int denominator,
         int quantization,
-        int tempo,
         int totalMeasures
     ) {
         // Calculate grid parameters (same as polyphonic)
         int slicesPerMeasure = (quantization * numerator) / denominator;
-        double sliceTimeSeconds = (60.0 / tempo) * (4.0 / quantization);
         
         // Use totalMeasures parameter for multi-track synchronization
-        int numMeasures = totalMeasures;
-        
-        // Create grid to hold note names (single note per slice)
-        String[] slices = new String[slicesPerMeasure * numMeasures];
-        Arrays.fill(slices, "");
-        
-        // Place notes in grid using 50% occupancy rule + conflict resolution
-        for (EventOutput event : noteEvents) {
-            double noteStartTime = event.getTimeSeconds();
-            double noteEndTime = noteStartTime + event.getDurationSeconds();
-            String noteName = NoteConverter.toStrudelNoteName(event.getNoteNumber());
-            
-            // Calculate which slices this note occupies >50%
-            int startSlice = (int) Math.round(noteStartTime / sliceTimeSeconds);
-            int endSlice = (int) Math.round(noteEndTime / sliceTimeSeconds);
-            
-            for (int sliceIdx = startSlice; sliceIdx < endSlice && sliceIdx < slices.length; sliceIdx++) {
-                // Calculate how much of this slice the note occupies
-                double sliceStart = sliceIdx * sliceTimeSeconds;
-                double sliceEnd = (sliceIdx + 1) * sliceTimeSeconds;
-                
-                // Calculate overlap
-                double overlapStart = Math.max(noteStartTime, sliceStart);
-                double overlapEnd = Math.min(noteEndTime, sliceEnd);
-                double overlapDuration = overlapEnd - overlapStart;
-                
-                // 50% occupancy rule: note must occupy >50% of slice
-                if (overlapDuration > sliceTimeSeconds / 2) {
-                    // Conflict resolution: if slot already taken, longest duration wins
-                    if (slices[sliceIdx].isEmpty()) {
-                        slices[sliceIdx] = noteName;
-                    } else {
-                        // Find duration of existing note
-                        double existingDuration = findNoteDuration(slices[sliceIdx], noteEvents);
-                        if (event.getDurationSeconds() > existingDuration) {
-                            slices[sliceIdx] = noteName;
-                        }
-                    }
-                }
-            }
-        }
-        
-        // Build pattern with consecutive note merging
         StringBuilder pattern = new StringBuilder();
         pattern.append("<");
+        appendNonPolyphonicMeasures(pattern, events, null, slices, slicesPerMeasure, totalMeasures, "");
+        pattern.append(">");
+        return pattern.toString();
+    }
+
+    /**
+     * Appends {@code numMeasures} space-separated measures, each followed by {@code weight}.
+     *
+     * @param rows Note rows to place, or null for all rows of {@code events}
+     */
+    private static void appendNonPolyphonicMeasures(StringBuilder pattern, EventView events, int[] rows,
+                                                    SliceGrid slices, int slicesPerMeasure, int numMeasures,
+                                                    String weight) {
+        // Runs of slices held by one note; empty slices and measures are never materialized
+        SliceRuns runs = SliceRuns.build(events, rows, slices, (long) slicesPerMeasure * numMeasures);
         
+        // Build pattern with consecutive note merging
+        int next = 0;  // Index of the first run not yet fully rendered
         for (int measure = 0; measure < numMeasures; measure++) {
-            int measureStart = measure * slicesPerMeasure;
-            int measureEnd = measureStart + slicesPerMeasure;
-            
-            // Check if entire measure is empty
-            boolean isEmpty = true;
-            for (int i = measureStart; i < measureEnd; i++) {
-                if (!slices[i].isEmpty()) {
-                    isEmpty = false;
-                    break;
-                }
-            }
+            long measureStart = (long) measure * slicesPerMeasure;
+            long measureEnd = measureStart + slicesPerMeasure;
             
-            if (isEmpty) {
+            if (next == runs.size() || runs.starts[next] >= measureEnd) {
                 // Compact rest notation
-                pattern.append("[~@").append(slicesPerMeasure).append("]");
+                pattern.append("[~@").append(slicesPerMeasure).append("]").append(weight);
             } else {
                 pattern.append("[");
                 
-                int sliceIdx = 0;
-                while (sliceIdx < slicesPerMeasure) {
-                    int absoluteSliceIdx = measureStart + sliceIdx;
-                    
-                    if (absoluteSliceIdx >= slices.length) {
-                        break;
-                    }
-                    
-                    String currentNote = slices[absoluteSliceIdx];
-                    
-                    if (currentNote.isEmpty()) {
-                        // Rest - count consecutive
-                        int restCount = 1;
-                        while (sliceIdx + restCount < slicesPerMeasure) {
-                            int nextAbsIdx = measureStart + sliceIdx + restCount;
-                            if (nextAbsIdx >= slices.length || !slices[nextAbsIdx].isEmpty()) {
-                                break;
-                            }
-                            restCount++;
+                long sliceIdx = measureStart;
+                while (sliceIdx < measureEnd) {
+                    if (next < runs.size() && runs.starts[next] <= sliceIdx) {
+                        // Note - the run's slices within this measure
+                        int count = (int) (Math.min(runs.ends[next], measureEnd) - sliceIdx);
+                        pattern.append(NoteConverter.toStrudelNoteName(runs.notes[next]));
+                        if (count > 1) {
+                            pattern.append("@").append(count);
                         }
-                        
+                        sliceIdx += count;
+                        if (runs.ends[next] <= sliceIdx) {
+                            next++;
+                        }
+                    } else {
+                        // Rest - up to the next run in this measure
+                        long onset = next < runs.size() ? Math.min(runs.starts[next], measureEnd) : measureEnd;
+                        int restCount = (int) (onset - sliceIdx);
                         if (restCount == 1) {
                             pattern.append("~");
                         } else {
                             pattern.append("~@").append(restCount);
                         }
-                        sliceIdx += restCount;
-                    } else {
-                        // Note - count consecutive identical (merging)
-                        int noteCount = 1;
-                        while (sliceIdx + noteCount < slicesPerMeasure) {
-                            int nextAbsIdx = measureStart + sliceIdx + noteCount;
-                            if (nextAbsIdx >= slices.length || !currentNote.equals(slices[nextAbsIdx])) {
-                                break;
-                            }
-                            noteCount++;
-                        }
-                        
-                        if (noteCount == 1) {
-                            pattern.append(currentNote);
-                        } else {
-                            pattern.append(currentNote).append("@").append(noteCount);
-                        }
-                        sliceIdx += noteCount;
+                        sliceIdx = onset;
                     }
                     
-                    if (sliceIdx < slicesPerMeasure) {
+                    if (sliceIdx < measureEnd) {
                         pattern.append(" ");
                     }
                 }
                 
-                pattern.append("]");
+                pattern.append("]").append(weight);
             }
             
             if (measure < numMeasures - 1) {
                 pattern.append(" ");
             }
         }
-        
-        pattern.append(">");
-        return pattern.toString();
     }
-    
+
+    /**
+     * The non-polyphonic grid as maximal runs {@code starts[i]..ends[i]} (end exclusive) of
+     * slices held by the same note, in ascending order. Slices outside every run are rests.
+     *
+     * <p>A note holds the slices it occupies by more than half; where notes compete for a
+     * slice the longest one wins, and the earliest row on ties. Since only a note's first
+     * and last slice can fail the occupancy rule, each note claims one contiguous range.
+     * Claims are applied best first over the distinct range boundaries, skipping segments
+     * already claimed, so time and memory depend on the number of notes, not on the length
+     * of the grid.
+     */
+    static final class SliceRuns {
+        final int[] starts;
+        final int[] ends;
+        final byte[] notes;
+
+        private SliceRuns(int[] starts, int[] ends, byte[] notes) {
+            this.starts = starts;
+            this.ends = ends;
+            this.notes = notes;
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        /**
+         * @param rows     Rows to place, or null for all rows of {@code events}
+         * @param gridSize Slices at or beyond this are not rendered and are dropped
+         */
+        static SliceRuns build(EventView events, int[] rows, SliceGrid slices, long gridSize) {
+            // Claimed slice range, duration and note of every note that holds a slice, in event order
+            int capacity = rows == null ? events.noteCount() : rows.length;
+            int[] claimStarts = new int[capacity];
+            int[] claimEnds = new int[capacity];
+            double[] durations = new double[capacity];
+            byte[] claimNotes = new byte[capacity];
+            int kept = 0;
+            int rowCount = rows == null ? events.size() : rows.length;
+            for (int i = 0; i < rowCount; i++) {
+                int row = rows == null ? i : rows[i];
+                if (!events.isNote(row)) {
+                    continue;
+                }
+                
+                // Slices this note may cover; only the first and last can fail the 50% rule
+                long startSlice = Math.max(slices.startSlice(events, row), 0);
+                long endSlice = Math.min(slices.endSlice(events, row), gridSize);
+                if (startSlice < endSlice && !slices.occupies(events, row, startSlice)) {
+                    startSlice++;
+                }
+                if (startSlice < endSlice && !slices.occupies(events, row, endSlice - 1)) {
+                    endSlice--;
+                }
+                if (startSlice >= endSlice) {
+                    continue;
+                }
+                
+                claimStarts[kept] = (int) startSlice;
+                claimEnds[kept] = (int) endSlice;
+                durations[kept] = slices.length(events, row);
+                claimNotes[kept] = (byte) events.noteNumber(row);
+                kept++;
+            }
+
+            // Claims best first: longest duration, then earliest row
+            double[] distinctDurations = distinct(Arrays.copyOf(durations, kept));
+            long[] order = new long[kept];
+            for (int k = 0; k < kept; k++) {
+                long longerThan = distinctDurations.length - 1 - Arrays.binarySearch(distinctDurations, durations[k]);
+                order[k] = longerThan << 32 | k;
+            }
+            Arrays.sort(order);
+
+            // Elementary segments between consecutive claim boundaries
+            int[] boundaries = new int[kept * 2];
+            System.arraycopy(claimStarts, 0, boundaries, 0, kept);
+            System.arraycopy(claimEnds, 0, boundaries, kept, kept);
+            Arrays.sort(boundaries);
+            int boundaryCount = distinct(boundaries);
+            int segments = Math.max(boundaryCount - 1, 0);
+
+            // owners[s] is the claim holding segment s (-1 for none); free[s] leads to the first
+            // unclaimed segment at or after s
+            int[] owners = new int[segments];
+            Arrays.fill(owners, -1);
+            int[] free = new int[segments + 1];
+            for (int s = 0; s <= segments; s++) {
+                free[s] = s;
+            }
+            for (long key : order) {
+                int k = (int) key;
+                int last = Arrays.binarySearch(boundaries, 0, boundaryCount, claimEnds[k]);
+                int s = firstFree(free, Arrays.binarySearch(boundaries, 0, boundaryCount, claimStarts[k]));
+                while (s < last) {
+                    owners[s] = k;
+                    free[s] = s + 1;
+                    s = firstFree(free, s + 1);
+                }
+            }
+
+            // Merge adjacent segments held by the same note into runs
+            int[] runStarts = new int[segments];
+            int[] runEnds = new int[segments];
+            byte[] runNotes = new byte[segments];
+            int runs = 0;
+            for (int s = 0; s < segments; s++) {
+                if (owners[s] < 0) {
+                    continue;
+                }
+                byte note = claimNotes[owners[s]];
+                if (runs > 0 && runEnds[runs - 1] == boundaries[s] && runNotes[runs - 1] == note) {
+                    runEnds[runs - 1] = boundaries[s + 1];
+                } else {
+                    runStarts[runs] = boundaries[s];
+                    runEnds[runs] = boundaries[s + 1];
+                    runNotes[runs] = note;
+                    runs++;
+                }
+            }
+            return new SliceRuns(Arrays.copyOf(runStarts, runs), Arrays.copyOf(runEnds, runs),
+                Arrays.copyOf(runNotes, runs));
+        }
+
+        private static int firstFree(int[] free, int s) {
+            int root = s;
+            while (free[root] != root) {
+                root = free[root];
+            }
+            // Path compression
+            while (free[s] != root) {
+                int next = free[s];
+                free[s] = root;
+                s = next;
+            }
+            return root;
+        }
+
+        /**
+         * Sorted distinct values of {@code values}.
+         */
+        private static double[] distinct(double[] values) {
+            Arrays.sort(values);
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (count == 0 || Double.compare(values[count - 1], values[i]) != 0) {
+                    values[count++] = values[i];
+                }
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+        /**
+         * Moves the distinct values of the sorted {@code values} to its front and returns their count.
+         */
+        private static int distinct(int[] values) {
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (count == 0 || values[count - 1] != values[i]) {
+                    values[count++] = values[i];
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Where note rows fall on the grid. Starts, ends and durations are rounded to the nearest slice.
+     */
+    private interface SliceGrid {
+
+        long startSlice(EventView events, int row);
+
+        long endSlice(EventView events, int row);
+
+        long durationSlices(EventView events, int row);
+
+        /**
+         * 50% occupancy rule: the note must occupy more than half of the slice.
+         */
+        boolean occupies(EventView events, int row, long slice);
+
+        /**
+         * Note length compared when notes compete for a slice.
+         */
+        double length(EventView events, int row);
+    }
+
+    /**
+     * Grid of fixed-length slices in seconds, for one tempo.
+     */
+    private record SecondsGrid(double sliceTimeSeconds) implements SliceGrid {
+
+        @Override
+        public long startSlice(EventView events, int row) {
+            return Math.round(events.seconds(row) / sliceTimeSeconds);
+        }
+
+        @Override
+        public long endSlice(EventView events, int row) {
+            return Math.round((events.seconds(row) + events.durationSeconds(row)) / sliceTimeSeconds);
+        }
+
+        @Override
+        public long durationSlices(EventView events, int row) {
+            return Math.round(events.durationSeconds(row) / sliceTimeSeconds);
+        }
+
+        @Override
+        public boolean occupies(EventView events, int row, long slice) {
+            double noteStartTime = events.seconds(row);
+            double noteEndTime = noteStartTime + events.durationSeconds(row);
+            double sliceStart = slice * sliceTimeSeconds;
+            double sliceEnd = (slice + 1) * sliceTimeSeconds;
+            double overlapDuration = Math.min(noteEndTime, sliceEnd) - Math.max(noteStartTime, sliceStart);
+            return overlapDuration > sliceTimeSeconds / 2;
+        }
+
+        @Override
+        public double length(EventView events, int row) {
+            return events.durationSeconds(row);
+        }
+    }
+
     /**
-     * Helper method to find the duration of a note by name.
+     * Grid of {@code division * 4 / quantization}-tick slices starting at {@code originTick},
+     * numbered from slice {@code firstSlice} on (earlier slices are negative).
+     * Ticks are scaled by the quantization so that a slice is exactly {@code division * 4}
+     * units wide whether or not the division is a multiple of the slice count.
      */
-    private static double findNoteDuration(String noteName, List<EventOutput> noteEvents) {
-        for (EventOutput event : noteEvents) {
-            if (NoteConverter.toStrudelNoteName(event.getNoteNumber()).equals(noteName)) {
-                return event.getDurationSeconds();
+    private record TickGrid(long quantization, long sliceUnits, long originTick, long firstSlice)
+            implements SliceGrid {
+
+        TickGrid(int division, int quantization, long originTick) {
+            this(division, quantization, originTick, 0);
+        }
+
+        TickGrid(int division, int quantization, long originTick, long firstSlice) {
+            this(quantization, 4L * division, originTick, firstSlice);
+        }
+
+        long nearestSlice(long tick) {
+            return Math.floorDiv(2 * (tick - originTick) * quantization + sliceUnits, 2 * sliceUnits) - firstSlice;
+        }
+
+        /**
+         * Index of the last of {@code starts} (ascending ticks) at or before the slice nearest
+         * to {@code tick}; 0 if there is none.
+         */
+        int segmentOf(long tick, long[] starts) {
+            int low = 1;
+            int high = starts.length - 1;
+            int found = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (2 * (tick - starts[mid]) * quantization + sliceUnits >= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
             }
+            return found;
+        }
+
+        @Override
+        public long startSlice(EventView events, int row) {
+            return nearestSlice(events.tick(row));
+        }
+
+        @Override
+        public long endSlice(EventView events, int row) {
+            return nearestSlice(events.tick(row) + events.durationTicks(row));
+        }
+
+        @Override
+        public long durationSlices(EventView events, int row) {
+            return Math.floorDiv(2 * events.durationTicks(row) * quantization + sliceUnits, 2 * sliceUnits);
+        }
+
+        @Override
+        public boolean occupies(EventView events, int row, long slice) {
+            long noteStart = (events.tick(row) - originTick) * quantization;
+            long noteEnd = noteStart + events.durationTicks(row) * quantization;
+            long gridSlice = slice + firstSlice;
+            long overlap = Math.min(noteEnd, (gridSlice + 1) * sliceUnits)
+                - Math.max(noteStart, gridSlice * sliceUnits);
+            return 2 * overlap > sliceUnits;
+        }
+
+        @Override
+        public double length(EventView events, int row) {
+            return events.durationTicks(row);
         }
-        return 0.0;
     }
 }
 
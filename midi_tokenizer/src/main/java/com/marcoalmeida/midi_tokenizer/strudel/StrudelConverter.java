@@ -1,19 +1,29 @@
 package com.marcoalmeida.midi_tokenizer.strudel;
 
+import com.marcoalmeida.midi_tokenizer.io.MidiOutputCache;
+import com.marcoalmeida.midi_tokenizer.io.MtokReader;
+import com.marcoalmeida.midi_tokenizer.io.ParseCache;
+import com.marcoalmeida.midi_tokenizer.midi.MidiJsonReader;
 import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
-import com.marcoalmeida.midi_tokenizer.model.EventOutput;
 import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.NoteIntervalIndex;
 import com.marcoalmeida.midi_tokenizer.model.ProgramChangeEvent;
-import com.marcoalmeida.midi_tokenizer.model.TempoEntry;
+import com.marcoalmeida.midi_tokenizer.model.TempoMap;
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+import com.marcoalmeida.midi_tokenizer.model.TimeSignatureEntry;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
 import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Main service for converting MIDI files to Strudel patterns.
@@ -22,36 +32,98 @@ import java.util.stream.Collectors;
 public class StrudelConverter {
 
     private final MidiParser midiParser;
+    private final ParseCache parseCache;
+    private final MidiOutputCache outputCache;
+    private final MidiJsonReader jsonReader = new MidiJsonReader();
+    private final TrackPatternCache patternCache = new TrackPatternCache(TrackPatternCache.DEFAULT_MAX_CHARS);
 
+    /**
+     * Converter that parses MIDI input on every call.
+     */
     public StrudelConverter(MidiParser midiParser) {
+        this(midiParser, null, null);
+    }
+
+    /**
+     * Converter that reuses parse results from {@code parseCache} (may be null).
+     */
+    public StrudelConverter(MidiParser midiParser, ParseCache parseCache) {
+        this(midiParser, parseCache, null);
+    }
+
+    /**
+     * Converter that keeps loaded files in {@code outputCache} for the rest of the session and
+     * falls back to {@code parseCache} on a miss (either may be null).
+     */
+    @Autowired
+    public StrudelConverter(MidiParser midiParser, ParseCache parseCache, MidiOutputCache outputCache) {
         this.midiParser = midiParser;
+        this.parseCache = parseCache;
+        this.outputCache = outputCache;
     }
 
     /**
      * Converts a MIDI file to a Strudel pattern.
      *
-     * @param inputPath Path to MIDI (.mid) or JSON (.json) file
+     * @param inputPath Path to MIDI (.mid), JSON (.json) or binary token (.mtok) file
      * @param options   Conversion options
      * @return Strudel pattern file content
      * @throws IOException              if file reading fails
      * @throws IllegalArgumentException if track is empty or invalid
      */
     public String convert(String inputPath, ConversionOptions options) throws IOException {
+        return convertWithReport(inputPath, options).content();
+    }
+
+    /**
+     * Converts a MIDI file to a Strudel pattern, reporting how it was fitted into the size
+     * budget of the options, if any.
+     *
+     * @see #convert(String, ConversionOptions)
+     */
+    public Conversion convertWithReport(String inputPath, ConversionOptions options) throws IOException {
         // Parse MIDI or load JSON
-        MidiOutput midiOutput = loadMidiData(inputPath);
+        MidiOutput midiOutput = loadMidiData(inputPath, options);
+        return convertWithReport(midiOutput, inputPath, options);
+    }
+
+    /**
+     * Converts an already loaded file to a Strudel pattern.
+     *
+     * @param midiOutput Parsed or loaded file
+     * @param inputPath  Path of the source file; its name appears in the pattern header
+     * @param options    Conversion options
+     * @return Strudel pattern file content
+     * @throws IllegalArgumentException if track is empty or invalid
+     */
+    public String convert(MidiOutput midiOutput, String inputPath, ConversionOptions options) throws IOException {
+        return convertWithReport(midiOutput, inputPath, options).content();
+    }
+
+    /**
+     * Converts an already loaded file to a Strudel pattern, reporting how it was fitted into
+     * the size budget of the options, if any.
+     *
+     * @see #convert(MidiOutput, String, ConversionOptions)
+     */
+    public Conversion convertWithReport(MidiOutput midiOutput, String inputPath, ConversionOptions options)
+            throws IOException {
+        // Index the tempo map once for tempo lookups
+        TempoMap tempoMap = TempoMap.of(midiOutput.getMetadata().getTempoMap(), 
+            midiOutput.getFile().getDivision());
 
         // Check if should process all tracks or single track
         if (options.shouldProcessAllTracks()) {
-            return convertAllTracks(midiOutput, inputPath, options);
+            return convertAllTracks(midiOutput, tempoMap, inputPath, options);
         } else {
-            return convertSingleTrack(midiOutput, inputPath, options);
+            return convertSingleTrack(midiOutput, tempoMap, inputPath, options);
         }
     }
 
     /**
      * Convert a single track (Phase 1.9 behavior).
      */
-    private String convertSingleTrack(MidiOutput midiOutput, String inputPath, ConversionOptions options) throws IOException {
+    private Conversion convertSingleTrack(MidiOutput midiOutput, TempoMap tempoMap, String inputPath, ConversionOptions options) throws IOException {
         // Select track
         int trackIndex = options.getEffectiveTrackIndex();
         if (trackIndex >= midiOutput.getTracks().size()) {
@@ -63,12 +135,13 @@ public class StrudelConverter {
 
         TrackOutput track = midiOutput.getTracks().get(trackIndex);
 
-        // Extract note events
-        List<EventOutput> noteEvents = track.getEvents().stream()
-            .filter(event -> "note".equals(event.getType()))
-            .collect(Collectors.toList());
+        // Note events, read straight from the columnar store; a measure range reads them
+        // through the track's interval index
+        MeasureRange range = options.measureRange();
+        NoteIntervalIndex noteIndex = range != null ? track.getNoteIndex() : null;
+        EventView noteEvents = noteIndex != null ? noteIndex.events() : track.getTrackEvents();
 
-        if (noteEvents.isEmpty()) {
+        if (noteEvents.noteCount() == 0) {
             throw new IllegalArgumentException(
                 String.format("Track %d (%s) has no note events.",
                     trackIndex, track.getName())
@@ -76,15 +149,17 @@ public class StrudelConverter {
         }
 
         // Determine tempo
-        double bpm = determineTempo(midiOutput, options);
+        double bpm = determineTempo(tempoMap, options);
 
-        // Get time signature and validate
-        TimeSignatureInfo timeSig = validateAndGetTimeSignature(midiOutput);
-        int timeSignatureNumerator = timeSig.numerator();
-        int timeSignatureDenominator = timeSig.denominator();
+        // Get time signatures
+        List<TimeSignatureEntry> timeSignatures = getTimeSignatures(midiOutput);
+        int timeSignatureNumerator = timeSignatures.get(0).getNumerator();
+        int timeSignatureDenominator = timeSignatures.get(0).getDenominator();
 
-        // Get effective quantization (override or smart default)
-        int quantization = options.getEffectiveQuantization(timeSignatureNumerator, timeSignatureDenominator);
+        // Get effective quantization (override, smart default or searched)
+        int division = midiOutput.getFile().getDivision();
+        long lastNoteTick = noteIndex != null ? noteIndex.lastOnsetTick() : maxNoteTick(noteEvents);
+        int quantization = chooseQuantization(options, timeSignatures, division, List.of(noteEvents), lastNoteTick);
         
         // Calculate slices per measure
         int slicesPerMeasure = (quantization * timeSignatureNumerator) / timeSignatureDenominator;
@@ -92,20 +167,61 @@ public class StrudelConverter {
         // Convert to quantized cycle-based pattern (Phase 1.9: with polyphony toggle)
         boolean polyphonicMode = options.isPolyphonicMode();
         
-        // Calculate measures needed for this track
-        int totalMeasures = calculateMeasuresNeeded(noteEvents, 
-            (int) Math.round(bpm), quantization, timeSignatureNumerator, timeSignatureDenominator);
+        // Split the timeline at meter changes; measures needed for this track
+        List<MeterSegment> segments = MeterSegment.partition(timeSignatures, division, quantization, lastNoteTick);
         
-        String pattern = RhythmConverter.toQuantizedCyclePattern(
-            noteEvents,
-            midiOutput.getFile().getDivision(),
-            timeSignatureNumerator,
-            timeSignatureDenominator,
-            quantization,
-            (int) Math.round(bpm),
-            polyphonicMode,  // Phase 1.9: polyphony flag
-            totalMeasures
-        );
+        // Only the notes sounding in the range are quantized
+        List<MeterSegment> rendered = segments;
+        MeasureGrid grid = null;
+        if (range != null) {
+            int count = range.count(totalMeasures(segments));
+            grid = MeasureGrid.window(noteIndex, division, segments, quantization, polyphonicMode,
+                range.firstIndex(), count);
+            rendered = MeterSegment.window(segments, range.firstIndex(), count);
+            slicesPerMeasure = rendered.get(0).slicesPerMeasure(quantization);
+        } else if (options.outputBudget() != null) {
+            grid = MeasureGrid.of(noteEvents, division, segments, quantization, polyphonicMode);
+        }
+        
+        String pattern;
+        String timeSignatureLabel;
+        // Calculate beats per cycle (for 4/4 time = 4 beats, for 3/4 time = 3 beats, etc.)
+        int beatsPerCycle;
+        OutputBudget.Report budgetReport = null;
+        if (options.outputBudget() != null) {
+            // Measure by measure, coarsening dense measures until the pattern fits
+            MeasureSimplifier.Result fitted = MeasureSimplifier.fit(List.of(grid), new int[] {trackIndex},
+                options.outputBudget());
+            pattern = fitted.patterns().get(0);
+            budgetReport = fitted.report();
+        } else if (grid != null) {
+            pattern = grid.render();
+        } else if (segments.size() == 1) {
+            pattern = RhythmConverter.toQuantizedTickPattern(
+                noteEvents,
+                division,
+                timeSignatureNumerator,
+                timeSignatureDenominator,
+                quantization,
+                polyphonicMode,  // Phase 1.9: polyphony flag
+                segments.get(0).measures()
+            );
+        } else {
+            // Mixed meter: one cycle per quarter note, measures weighted by their length
+            pattern = RhythmConverter.toSegmentedTickPattern(
+                noteEvents, division, segments, quantization, polyphonicMode);
+        }
+        if (rendered.size() == 1) {
+            MeterSegment meter = rendered.get(0);
+            timeSignatureLabel = meter.numerator() + "/" + meter.denominator();
+            beatsPerCycle = meter.numerator() * (4 / meter.denominator());
+        } else {
+            timeSignatureLabel = MeterSegment.describe(rendered, range != null ? range.from() : 1);
+            beatsPerCycle = 1;
+        }
+        if (range != null) {
+            timeSignatureLabel += " (" + range.describe(totalMeasures(segments)) + ")";
+        }
 
         // Determine instrument
         String instrument = determineInstrument(track);
@@ -113,25 +229,22 @@ public class StrudelConverter {
         // Generate pattern name from track index
         String patternName = "track_" + trackIndex;
 
-        // Calculate beats per cycle (for 4/4 time = 4 beats, for 3/4 time = 3 beats, etc.)
-        int beatsPerCycle = timeSignatureNumerator * (4 / timeSignatureDenominator);
-
         // Calculate grid meaning description
         String gridMeaning = generateGridMeaning(quantization, slicesPerMeasure);
         
-        // Determine if quantization is default or override
-        String quantizationSource = options.quantization() != null ? "override" : "default";
+        // Determine if quantization is default, override or searched
+        String quantizationSource = options.quantization() != null ? "override"
+            : options.isAutoQuantize() ? "auto" : "default";
 
         // Render template (Phase 1.9: with polyphonic mode)
-        return StrudelTemplate.render(
+        String content = StrudelTemplate.render(
             patternName,
             Path.of(inputPath).getFileName().toString(),
             bpm,
             beatsPerCycle,
             trackIndex,
             track.getName(),
-            timeSignatureNumerator,
-            timeSignatureDenominator,
+            timeSignatureLabel,
             quantization,
             quantizationSource,
             gridMeaning,
@@ -140,46 +253,41 @@ public class StrudelConverter {
             instrument,
             polyphonicMode  // Phase 1.9: polyphonic mode flag
         );
+        return new Conversion(content, budgetReport);
     }
 
     /**
      * Convert all non-empty tracks (Phase 2 behavior).
      */
-    private String convertAllTracks(MidiOutput midiOutput, String inputPath, ConversionOptions options) throws IOException {
-        // Validate single time signature (existing validation)
-        TimeSignatureInfo timeSig = validateAndGetTimeSignature(midiOutput);
+    private Conversion convertAllTracks(MidiOutput midiOutput, TempoMap tempoMap, String inputPath, ConversionOptions options) throws IOException {
+        // Get time signatures
+        List<TimeSignatureEntry> timeSignatures = getTimeSignatures(midiOutput);
         
         // Determine tempo
-        double bpm = determineTempo(midiOutput, options);
-        
-        // Get effective quantization
-        int quantization = options.getEffectiveQuantization(timeSig.numerator(), timeSig.denominator());
+        double bpm = determineTempo(tempoMap, options);
         
-        // First pass: collect all track note events and calculate global measure count
-        int globalMeasures = 0;
+        // First pass: collect all track note events and find the last onset across tracks
+        int division = midiOutput.getFile().getDivision();
+        MeasureRange range = options.measureRange();
+        long lastNoteTick = 0;
         List<TrackNoteData> trackDataList = new ArrayList<>();
         
         for (int i = 0; i < midiOutput.getTracks().size(); i++) {
             TrackOutput track = midiOutput.getTracks().get(i);
             
-            // Extract note events
-            List<EventOutput> noteEvents = track.getEvents().stream()
-                .filter(event -> "note".equals(event.getType()))
-                .collect(Collectors.toList());
+            // Note events, read straight from the columnar store; a measure range reads them
+            // through the track's interval index
+            NoteIntervalIndex noteIndex = range != null ? track.getNoteIndex() : null;
+            EventView noteEvents = noteIndex != null ? noteIndex.events() : track.getTrackEvents();
             
-            if (noteEvents.isEmpty()) {
+            if (noteEvents.noteCount() == 0) {
                 continue;  // Skip empty tracks
             }
             
-            // Calculate measures needed for this track
-            int trackMeasures = calculateMeasuresNeeded(noteEvents, 
-                (int) Math.round(bpm), quantization, timeSig.numerator(), timeSig.denominator());
-            
-            if (trackMeasures > globalMeasures) {
-                globalMeasures = trackMeasures;
-            }
+            lastNoteTick = Math.max(lastNoteTick,
+                noteIndex != null ? noteIndex.lastOnsetTick() : maxNoteTick(noteEvents));
             
-            trackDataList.add(new TrackNoteData(i, track, noteEvents));
+            trackDataList.add(new TrackNoteData(i, track, noteEvents, noteIndex));
         }
         
         // Error if all tracks empty
@@ -190,52 +298,170 @@ public class StrudelConverter {
             );
         }
         
-        // Second pass: convert all tracks with global measure count
-        List<StrudelTemplate.TrackPattern> trackPatterns = new ArrayList<>();
-        for (TrackNoteData trackData : trackDataList) {
+        // Get effective quantization for the whole file, or for each track when searching per track
+        int[] quantizations = new int[trackDataList.size()];
+        if (options.isAutoQuantize() && options.autoQuantize() == ConversionOptions.AutoQuantize.PER_TRACK) {
+            for (int i = 0; i < quantizations.length; i++) {
+                quantizations[i] = chooseQuantization(options, timeSignatures, division,
+                    List.of(trackDataList.get(i).noteEvents), lastNoteTick);
+            }
+        } else {
+            Arrays.fill(quantizations, chooseQuantization(options, timeSignatures, division,
+                trackDataList.stream().map(TrackNoteData::noteEvents).toList(), lastNoteTick));
+        }
+        
+        // Split the timeline at meter changes; every track uses the same segments and measure
+        // counts so that they stay synchronized. Levels can round the last note into different
+        // measures, so take the layout with the most
+        List<MeterSegment> segments = null;
+        for (int quantization : Arrays.stream(quantizations).distinct().toArray()) {
+            List<MeterSegment> candidate = MeterSegment.partition(timeSignatures, division, quantization, lastNoteTick);
+            if (segments == null || totalMeasures(candidate) > totalMeasures(segments)) {
+                segments = candidate;
+            }
+        }
+        List<MeterSegment> layout = segments;
+        
+        // A measure range quantizes only the notes sounding in it, the same measures of every track
+        List<MeterSegment> rendered = segments;
+        List<MeasureGrid> grids = null;
+        if (range != null) {
+            int count = range.count(totalMeasures(segments));
+            grids = new ArrayList<>();
+            for (int t = 0; t < trackDataList.size(); t++) {
+                grids.add(MeasureGrid.window(trackDataList.get(t).noteIndex, division, layout, quantizations[t],
+                    options.isPolyphonicMode(), range.firstIndex(), count));
+            }
+            rendered = MeterSegment.window(segments, range.firstIndex(), count);
+        } else if (options.outputBudget() != null) {
+            grids = new ArrayList<>();
+            for (int t = 0; t < trackDataList.size(); t++) {
+                grids.add(MeasureGrid.of(trackDataList.get(t).noteEvents, division, layout, quantizations[t],
+                    options.isPolyphonicMode()));
+            }
+        }
+        MeterSegment single = rendered.size() == 1 ? rendered.get(0) : null;
+        
+        // With a budget, tracks share it, so they are fitted together rather than memoized one by one;
+        // ranges are quick to convert and are not memoized either
+        List<String> fittedPatterns = null;
+        OutputBudget.Report budgetReport = null;
+        if (options.outputBudget() != null) {
+            MeasureSimplifier.Result fitted = MeasureSimplifier.fit(grids,
+                trackDataList.stream().mapToInt(TrackNoteData::index).toArray(), options.outputBudget());
+            fittedPatterns = fitted.patterns();
+            budgetReport = fitted.report();
+        } else if (grids != null) {
+            fittedPatterns = grids.stream().map(MeasureGrid::render).toList();
+        }
+        
+        // Second pass: convert all tracks, reusing tracks whose notes and parameters match an
+        // earlier conversion
+        List<StrudelTemplate.RenderedTrack> renderedTracks = new ArrayList<>();
+        for (int t = 0; t < trackDataList.size(); t++) {
+            TrackNoteData trackData = trackDataList.get(t);
+            int quantization = quantizations[t];
             // Determine instrument from program change
             String instrument = determineInstrumentWithMapper(trackData.track);
             
-            // Convert pattern with global measure count for synchronization
-            String pattern = RhythmConverter.toQuantizedCyclePattern(
-                trackData.noteEvents,
-                midiOutput.getFile().getDivision(),
-                timeSig.numerator(),
-                timeSig.denominator(),
-                quantization,
-                (int) Math.round(bpm),
-                options.isPolyphonicMode(),
-                globalMeasures  // All tracks use same measure count
-            );
+            if (fittedPatterns != null) {
+                renderedTracks.add(new StrudelTemplate.RenderedTrack(trackData.index,
+                    StrudelTemplate.renderTrack(new StrudelTemplate.TrackPattern(
+                        trackData.index, trackData.track.getName(), instrument, fittedPatterns.get(t)))));
+                continue;
+            }
             
-            trackPatterns.add(new StrudelTemplate.TrackPattern(
-                trackData.index, trackData.track.getName(), instrument, pattern));
+            TrackPatternCache.Hasher hasher = new TrackPatternCache.Hasher()
+                .addNotes(trackData.noteEvents)
+                .add(trackData.index)
+                .add(trackData.track.getName())
+                .add(instrument)
+                .add(division)
+                .add(quantization)
+                .add(options.isPolyphonicMode());
+            for (MeterSegment segment : segments) {
+                hasher.add(segment.startTick())
+                    .add(segment.numerator())
+                    .add(segment.denominator())
+                    .add(segment.measures());
+            }
+            
+            String definition = patternCache.get(hasher.build(), () -> {
+                String pattern;
+                if (single != null) {
+                    // Convert pattern with global measure count for synchronization
+                    pattern = RhythmConverter.toQuantizedTickPattern(
+                        trackData.noteEvents,
+                        division,
+                        single.numerator(),
+                        single.denominator(),
+                        quantization,
+                        options.isPolyphonicMode(),
+                        single.measures()  // All tracks use same measure count
+                    );
+                } else {
+                    pattern = RhythmConverter.toSegmentedTickPattern(
+                        trackData.noteEvents, division, layout, quantization, options.isPolyphonicMode());
+                }
+                return StrudelTemplate.renderTrack(new StrudelTemplate.TrackPattern(
+                    trackData.index, trackData.track.getName(), instrument, pattern));
+            });
+            renderedTracks.add(new StrudelTemplate.RenderedTrack(trackData.index, definition));
+        }
+        
+        // Header lines; mixed meter plays one cycle per quarter note
+        MeterSegment first = rendered.get(0);
+        String timeSignature = single != null
+            ? single.numerator() + "/" + single.denominator()
+            : MeterSegment.describe(rendered, range != null ? range.from() : 1);
+        if (range != null) {
+            timeSignature += " (" + range.describe(totalMeasures(segments)) + ")";
+        }
+        int beatsPerCycle = single != null ? single.numerator() * (4 / single.denominator()) : 1;
+        String quantizationLine;
+        String gridMeaning;
+        if (Arrays.stream(quantizations).distinct().count() == 1) {
+            quantizationLine = quantizations[0] + (options.isAutoQuantize() ? " (auto)" : " (default)");
+            gridMeaning = generateGridMeaning(quantizations[0], first.slicesPerMeasure(quantizations[0]));
+        } else {
+            String perTrack = IntStream.range(0, quantizations.length)
+                .mapToObj(i -> "track " + trackDataList.get(i).index + ": " + quantizations[i])
+                .collect(Collectors.joining(", "));
+            quantizationLine = "auto per track (" + perTrack + ")";
+            gridMeaning = "varies by track (see Quantization)";
         }
         
         // Render multi-track template
-        return StrudelTemplate.renderMultiTrack(
+        String content = StrudelTemplate.renderMultiTrackBlocks(
             Path.of(inputPath).getFileName().toString(),
             bpm,
-            timeSig.numerator(),
-            timeSig.denominator(),
-            quantization,
+            timeSignature,
+            beatsPerCycle,
+            quantizationLine,
+            gridMeaning,
             midiOutput.getTracks().size(),
-            trackPatterns,
+            renderedTracks,
             options.isPolyphonicMode()
         );
+        return new Conversion(content, budgetReport);
     }
 
-    private MidiOutput loadMidiData(String inputPath) throws IOException {
+    /**
+     * Memo of rendered track definitions used by multi-track conversion.
+     */
+    public TrackPatternCache getPatternCache() {
+        return patternCache;
+    }
+
+    private MidiOutput loadMidiData(String inputPath, ConversionOptions options) throws IOException {
         try {
             File inputFile = new File(inputPath);
-            if (inputPath.endsWith(".json")) {
-                // Load from JSON file
-                return new com.fasterxml.jackson.databind.ObjectMapper()
-                    .readValue(inputFile, MidiOutput.class);
-            } else {
-                // Parse MIDI file
-                return midiParser.parse(inputFile, true, true);
+            if (outputCache != null && outputCache.isEnabled()) {
+                // Cached outputs are shared across conversions, so load every track
+                return outputCache.get(inputFile, "convert", file -> readMidiData(file, null, options));
             }
+            Integer trackIndex = options.shouldProcessAllTracks() ? null : options.getEffectiveTrackIndex();
+            return readMidiData(inputFile, trackIndex, options);
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
@@ -243,50 +469,61 @@ public class StrudelConverter {
         }
     }
 
-    private double determineTempo(MidiOutput midiOutput, ConversionOptions options) {
-        if (options.overrideTempo() != null) {
-            return options.overrideTempo();
+    /**
+     * @param trackIndex Only track whose events are needed, or null for all tracks
+     */
+    private MidiOutput readMidiData(File inputFile, Integer trackIndex, ConversionOptions options) throws Exception {
+        String inputPath = inputFile.getPath();
+        if (inputPath.endsWith(".json")) {
+            // Load only what conversion uses from the JSON file
+            return jsonReader.readForConversion(inputFile);
+        } else if (inputPath.endsWith(MtokReader.FILE_EXTENSION)) {
+            // Binary token file: a single-track conversion only decodes that track's events.
+            // Read rather than mapped, as loaded outputs may outlive this call in the session cache
+            MtokReader reader = MtokReader.load(inputFile);
+            if (trackIndex == null) {
+                return reader.read();
+            }
+            return reader.read(i -> i == trackIndex);
+        } else {
+            // Parse MIDI file, reusing a cached parse of identical content. Notes are placed
+            // by tick, so seconds are not computed
+            MidiOutput output = parseCache != null
+                ? parseCache.parse(inputFile, false, true, options.isParallelParse())
+                : midiParser.parse(inputFile, false, true, options.isParallelParse());
+            return detachFromInput(output);
         }
+    }
 
-        // Get first tempo from tempo map
-        if (!midiOutput.getMetadata().getTempoMap().isEmpty()) {
-            TempoEntry firstTempo = midiOutput.getMetadata().getTempoMap().get(0);
-            return firstTempo.getBpm();
+    /**
+     * Copy meta text out of the parsed file's mapping. Outputs are kept in the session cache,
+     * and a file that stays mapped cannot be saved over on Windows (or faults when truncated
+     * on Linux).
+     */
+    private static MidiOutput detachFromInput(MidiOutput output) {
+        for (TrackOutput track : output.getTracks()) {
+            if (track.getTrackEvents() instanceof TrackEvents events) {
+                events.detachText();
+            }
         }
+        return output;
+    }
 
-        // Default to 120 BPM
-        return 120.0;
+    private double determineTempo(TempoMap tempoMap, ConversionOptions options) {
+        if (options.overrideTempo() != null) {
+            return options.overrideTempo();
+        }
+
+        // First tempo from tempo map (120 BPM if the file has none)
+        return tempoMap.initialBpm();
     }
 
     /**
-     * Validate single time signature and return time signature info.
+     * Time signatures of the file in timeline order, without changes that restate the current
+     * meter (4/4 if the file has none).
      */
-    private TimeSignatureInfo validateAndGetTimeSignature(MidiOutput midiOutput) {
-        int numerator = 4;
-        int denominator = 4;
-        
-        if (!midiOutput.getMetadata().getTimeSignatures().isEmpty()) {
-            // Validate single time signature only
-            if (midiOutput.getMetadata().getTimeSignatures().size() > 1) {
-                List<Long> tickPositions = midiOutput.getMetadata().getTimeSignatures().stream()
-                    .map(ts -> ts.getTick())
-                    .collect(Collectors.toList());
-                throw new UnsupportedOperationException(
-                    String.format(
-                        "Multiple time signatures detected (%d changes at ticks: %s). " +
-                        "Only single time signature files are supported. " +
-                        "Split your MIDI file by time signature before conversion.",
-                        midiOutput.getMetadata().getTimeSignatures().size(),
-                        tickPositions.stream().map(String::valueOf).collect(Collectors.joining(", "))
-                    )
-                );
-            }
-            var timeSignature = midiOutput.getMetadata().getTimeSignatures().get(0);
-            numerator = timeSignature.getNumerator();
-            denominator = timeSignature.getDenominator();
-        }
-        
-        return new TimeSignatureInfo(numerator, denominator);
+    private List<TimeSignatureEntry> getTimeSignatures(MidiOutput midiOutput) {
+        return MeterSegment.distinctSignatures(midiOutput.getMetadata().getTimeSignatures());
     }
 
     /**
@@ -354,41 +591,54 @@ public class StrudelConverter {
     }
 
     /**
-     * Calculate number of measures needed for a track based on its note events.
+     * Quantization level from the options: the override, a level searched on the notes of
+     * {@code tracks}, or the smart default for the time signatures.
+     *
+     * @param lastNoteTick Largest note onset tick of the tracks the meter segments are laid out for
      */
-    private int calculateMeasuresNeeded(
-        List<EventOutput> noteEvents, 
-        int tempo, 
-        int quantization,
-        int numerator,
-        int denominator
-    ) {
-        if (noteEvents.isEmpty()) {
-            return 1;
+    private int chooseQuantization(ConversionOptions options, List<TimeSignatureEntry> timeSignatures,
+                                   int division, List<EventView> tracks, long lastNoteTick) {
+        int effective = options.getEffectiveQuantization(timeSignatures);
+        if (options.isAutoQuantize()) {
+            // Segment start ticks do not depend on the level, so any level lays them out
+            List<MeterSegment> segments = MeterSegment.partition(timeSignatures, division, effective, lastNoteTick);
+            return QuantizationSearch.choose(QuantizationSearch.Ticks.of(tracks), division, segments);
         }
-        
-        int slicesPerMeasure = (quantization * numerator) / denominator;
-        double sliceTimeSeconds = (60.0 / tempo) * (4.0 / quantization);
-        
-        // Find maximum position
-        int maxPosition = 0;
-        for (EventOutput event : noteEvents) {
-            int gridPosition = (int) Math.round(event.getTimeSeconds() / sliceTimeSeconds);
-            if (gridPosition > maxPosition) {
-                maxPosition = gridPosition;
+        return effective;
+    }
+
+    private static int totalMeasures(List<MeterSegment> segments) {
+        int measures = 0;
+        for (MeterSegment segment : segments) {
+            measures += segment.measures();
+        }
+        return measures;
+    }
+
+    /**
+     * Largest note onset tick of a track (0 if it has no notes).
+     */
+    private long maxNoteTick(EventView noteEvents) {
+        // Rows are not in onset order, so scan them all
+        long maxTick = 0;
+        for (int row = 0; row < noteEvents.size(); row++) {
+            if (noteEvents.isNote(row) && noteEvents.tick(row) > maxTick) {
+                maxTick = noteEvents.tick(row);
             }
         }
-        
-        return (maxPosition / slicesPerMeasure) + 1;
+        return maxTick;
     }
 
     /**
-     * Helper record to hold track data during two-pass processing.
+     * A converted file.
+     *
+     * @param content      Strudel pattern file content
+     * @param budgetReport How the patterns were fitted into the size budget, or null without one
      */
-    private record TrackNoteData(int index, TrackOutput track, List<EventOutput> noteEvents) {}
+    public record Conversion(String content, OutputBudget.Report budgetReport) {}
 
     /**
-     * Time signature information.
+     * Helper record to hold track data during two-pass processing.
      */
-    record TimeSignatureInfo(int numerator, int denominator) {}
+    private record TrackNoteData(int index, TrackOutput track, EventView noteEvents, NoteIntervalIndex noteIndex) {}
 }
@@ -48,6 +48,34 @@ public class StrudelTemplate {
         String pattern,
         String instrument,
         boolean polyphonicMode
+    ) {
+        return render(patternName, sourceFile, bpm, beatsPerCycle, trackIndex, trackName,
+            timeSignatureNumerator + "/" + timeSignatureDenominator, quantization, quantizationSource,
+            gridMeaning, slicesPerMeasure, pattern, instrument, polyphonicMode);
+    }
+
+    /**
+     * Renders a complete Strudel pattern file whose time signature is described by a label,
+     * e.g. "4/4, 3/4 from measure 9" for a file that changes meter.
+     *
+     * @param timeSignature Time signature shown in the metadata block
+     * @see #render(String, String, double, int, int, String, int, int, int, String, String, int, String, String, boolean)
+     */
+    public static String render(
+        String patternName,
+        String sourceFile,
+        double bpm,
+        int beatsPerCycle,
+        int trackIndex,
+        String trackName,
+        String timeSignature,
+        int quantization,
+        String quantizationSource,
+        String gridMeaning,
+        int slicesPerMeasure,
+        String pattern,
+        String instrument,
+        boolean polyphonicMode
     ) {
         String convertedDate = LocalDateTime.now().format(DATE_FORMATTER);
 
@@ -63,7 +91,7 @@ public class StrudelTemplate {
         sb.append("/**\n");
         sb.append("Source: ").append(sourceFile).append("\n");
         sb.append("Tempo: ").append((int) bpm).append(" BPM\n");
-        sb.append("Time Signature: ").append(timeSignatureNumerator).append("/").append(timeSignatureDenominator).append("\n");
+        sb.append("Time Signature: ").append(timeSignature).append("\n");
         sb.append("Quantization: ").append(quantization).append(" (").append(quantizationSource).append(")\n");
         sb.append("Grid: ").append(gridMeaning).append("\n");
         sb.append("Mode: ").append(polyphonicMode ? "Polyphonic" : "Non-polyphonic").append("\n");
@@ -95,7 +123,7 @@ public class StrudelTemplate {
 
     /**
      * Formats a pattern string by adding line breaks between cycles.
-     * Each cycle is a bracketed section like [notes].
+     * Each cycle is a bracketed section like [notes], optionally weighted like [notes]@3.
      */
     private static String formatPatternWithLineBreaks(String pattern) {
         StringBuilder result = new StringBuilder();
@@ -115,8 +143,11 @@ public class StrudelTemplate {
             result.append(c);
             
             if (c == ']' && depth == 1) {
-                // End of a top-level cycle
+                // End of a top-level cycle, keeping its weight
                 depth--;
+                while (i + 1 < pattern.length() && isWeightChar(pattern.charAt(i + 1))) {
+                    result.append(pattern.charAt(++i));
+                }
                 // Skip trailing space if present
                 if (i + 1 < pattern.length() && pattern.charAt(i + 1) == ' ') {
                     i++;
@@ -129,6 +160,10 @@ public class StrudelTemplate {
         return result.toString();
     }
 
+    private static boolean isWeightChar(char c) {
+        return c == '@' || c == '.' || Character.isDigit(c);
+    }
+
     /**
      * Renders a multi-track Strudel pattern file (Phase 2).
      *
@@ -151,18 +186,64 @@ public class StrudelTemplate {
         int totalTracks,
         List<TrackPattern> trackPatterns,
         boolean polyphonicMode
+    ) {
+        List<RenderedTrack> renderedTracks = trackPatterns.stream()
+            .map(tp -> new RenderedTrack(tp.index(), renderTrack(tp)))
+            .toList();
+        return renderMultiTrackBlocks(sourceFile, bpm, numerator, denominator, quantization,
+            totalTracks, renderedTracks, polyphonicMode);
+    }
+
+    /**
+     * Renders a multi-track Strudel pattern file from track definitions that were already
+     * rendered with {@link #renderTrack}, e.g. reused from an earlier conversion.
+     *
+     * @param renderedTracks Non-empty tracks with their rendered definitions
+     * @see #renderMultiTrack
+     */
+    public static String renderMultiTrackBlocks(
+        String sourceFile,
+        double bpm,
+        int numerator,
+        int denominator,
+        int quantization,
+        int totalTracks,
+        List<RenderedTrack> renderedTracks,
+        boolean polyphonicMode
+    ) {
+        // One cycle per measure (4 beats for 4/4, 3 for 3/4, ...)
+        int beatsPerCycle = numerator * (4 / denominator);
+        return renderMultiTrackBlocks(sourceFile, bpm, numerator + "/" + denominator, beatsPerCycle,
+            defaultQuantization(quantization), generateGridMeaning(quantization, numerator, denominator),
+            totalTracks, renderedTracks, polyphonicMode);
+    }
+
+    /**
+     * Renders a multi-track Strudel pattern file with the header lines given as text, e.g.
+     * for quantization levels chosen per track.
+     *
+     * @param timeSignature Time signature line, e.g. "4/4" or "4/4, 3/4 from measure 9"
+     * @param beatsPerCycle Quarter notes per cycle; the tempo is set to {@code bpm / beatsPerCycle}
+     * @param quantization  Quantization line, e.g. "16 (default)"
+     * @param gridMeaning   Grid line
+     * @see #renderMultiTrackBlocks(String, double, int, int, int, int, List, boolean)
+     */
+    public static String renderMultiTrackBlocks(
+        String sourceFile,
+        double bpm,
+        String timeSignature,
+        int beatsPerCycle,
+        String quantization,
+        String gridMeaning,
+        int totalTracks,
+        List<RenderedTrack> renderedTracks,
+        boolean polyphonicMode
     ) {
         String convertedDate = LocalDateTime.now().format(DATE_FORMATTER);
         
         // Strip file extension for title
         String title = stripExtension(sourceFile);
         
-        // Determine quantization source
-        String quantizationSource = "default";  // In Phase 2, always using smart defaults
-        
-        // Generate grid meaning description
-        String gridMeaning = generateGridMeaning(quantization, numerator, denominator);
-        
         StringBuilder sb = new StringBuilder();
         
         // Title comment
@@ -172,15 +253,15 @@ public class StrudelTemplate {
         sb.append("/**\n");
         sb.append("Source: ").append(sourceFile).append("\n");
         sb.append("Tempo: ").append((int) Math.round(bpm)).append(" BPM\n");
-        sb.append("Time Signature: ").append(numerator).append("/").append(denominator).append("\n");
-        sb.append("Quantization: ").append(quantization).append(" (").append(quantizationSource).append(")\n");
+        sb.append("Time Signature: ").append(timeSignature).append("\n");
+        sb.append("Quantization: ").append(quantization).append("\n");
         sb.append("Grid: ").append(gridMeaning).append("\n");
         sb.append("Mode: ").append(polyphonicMode ? "Polyphonic" : "Non-polyphonic").append("\n");
-        sb.append("Tracks: ").append(trackPatterns.size()).append(" non-empty");
+        sb.append("Tracks: ").append(renderedTracks.size()).append(" non-empty");
         
         // Show which tracks if not all tracks
-        if (totalTracks != trackPatterns.size()) {
-            String indices = trackPatterns.stream()
+        if (totalTracks != renderedTracks.size()) {
+            String indices = renderedTracks.stream()
                 .map(tp -> String.valueOf(tp.index()))
                 .collect(Collectors.joining(", "));
             sb.append(" (").append(indices).append(" from ").append(totalTracks).append(" total)");
@@ -190,29 +271,15 @@ public class StrudelTemplate {
         sb.append("**/\n\n");
         
         // Set tempo: cycles per minute = bpm / beatsPerCycle
-        int beatsPerCycle = numerator * (4 / denominator);
         sb.append("setcpm(").append((int) Math.round(bpm)).append("/").append(beatsPerCycle).append(")\n\n");
         
         // Track definitions with instruments
-        for (TrackPattern tp : trackPatterns) {
-            String trackName = (tp.name() != null && !tp.name().trim().isEmpty()) ? 
-                tp.name().replaceAll("[\u0000-\u001F\u007F]", "") : "Track " + tp.index();
-            
-            sb.append("// Track ").append(tp.index());
-            if (!trackName.isEmpty() && !trackName.equals("Track " + tp.index())) {
-                sb.append(": ").append(trackName);
-            }
-            sb.append("\n");
-            
-            String formattedPattern = formatPatternWithLineBreaks(tp.pattern());
-            sb.append("let track").append(tp.index())
-              .append(" = note(`").append(formattedPattern).append("`)")
-              .append(".sound(\"").append(tp.instrument()).append("\")")
-              .append(".room(0.2)\n\n");
+        for (RenderedTrack track : renderedTracks) {
+            sb.append(track.definition());
         }
         
         // Stack call with all tracks
-        String trackNames = trackPatterns.stream()
+        String trackNames = renderedTracks.stream()
             .map(tp -> "track" + tp.index())
             .collect(Collectors.joining(", "));
         sb.append("// Play all tracks together (customize as needed)\n");
@@ -221,6 +288,34 @@ public class StrudelTemplate {
         return sb.toString();
     }
 
+    /**
+     * Renders one track's definition in a multi-track file: a comment with the track name
+     * and a {@code let trackN = note(...)} line.
+     */
+    public static String renderTrack(TrackPattern tp) {
+        StringBuilder sb = new StringBuilder();
+        String trackName = (tp.name() != null && !tp.name().trim().isEmpty()) ? 
+            tp.name().replaceAll("[\u0000-\u001F\u007F]", "") : "Track " + tp.index();
+        
+        sb.append("// Track ").append(tp.index());
+        if (!trackName.isEmpty() && !trackName.equals("Track " + tp.index())) {
+            sb.append(": ").append(trackName);
+        }
+        sb.append("\n");
+        
+        String formattedPattern = formatPatternWithLineBreaks(tp.pattern());
+        sb.append("let track").append(tp.index())
+          .append(" = note(`").append(formattedPattern).append("`)")
+          .append(".sound(\"").append(tp.instrument()).append("\")")
+          .append(".room(0.2)\n\n");
+        return sb.toString();
+    }
+
+    private static String defaultQuantization(int quantization) {
+        // In Phase 2, always using smart defaults
+        return quantization + " (default)";
+    }
+
     /**
      * Strip file extension from filename.
      */
@@ -262,4 +357,9 @@ public class StrudelTemplate {
      * Track pattern information for multi-track rendering.
      */
     public record TrackPattern(int index, String name, String instrument, String pattern) {}
+
+    /**
+     * Track definition rendered by {@link #renderTrack}, for multi-track rendering.
+     */
+    public record RenderedTrack(int index, String definition) {}
 }
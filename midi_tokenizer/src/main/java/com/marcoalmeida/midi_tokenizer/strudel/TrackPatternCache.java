@@ -0,0 +1,151 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.EventView;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Memo of rendered multi-track definitions keyed by a fingerprint of everything that
+ * determines them: the track's note rows (start and duration ticks, note number), its
+ * index, name and instrument, and the conversion parameters. When one track of a large
+ * arrangement changes, re-converting the file only re-quantizes and re-renders that track;
+ * the others are fingerprinted and reused.
+ *
+ * <p>Fingerprints are 128-bit, so distinct inputs colliding is not a practical concern.
+ * The memo is bounded by the total length of cached definitions and evicts least recently
+ * used entries.
+ */
+public class TrackPatternCache {
+
+    /** Default bound: 16M characters of rendered track definitions. */
+    public static final long DEFAULT_MAX_CHARS = 16L * 1024 * 1024;
+
+    private final long maxChars;
+    private final LinkedHashMap<Fingerprint, String> definitions = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxChars Total length of cached definitions; 0 disables the memo
+     */
+    public TrackPatternCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Return the memoized definition for {@code fingerprint}, or render and remember it.
+     */
+    public String get(Fingerprint fingerprint, Supplier<String> render) {
+        synchronized (this) {
+            String definition = definitions.get(fingerprint);
+            if (definition != null) {
+                hits++;
+                return definition;
+            }
+            misses++;
+        }
+
+        String definition = render.get();
+        put(fingerprint, definition);
+        return definition;
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized int entryCount() { return definitions.size(); }
+
+    public synchronized void clear() {
+        definitions.clear();
+        totalChars = 0;
+    }
+
+    private synchronized void put(Fingerprint fingerprint, String definition) {
+        if (definition.length() > maxChars) {
+            return;
+        }
+        String previous = definitions.put(fingerprint, definition);
+        if (previous != null) {
+            totalChars -= previous.length();
+        }
+        totalChars += definition.length();
+
+        Iterator<String> eldest = definitions.values().iterator();
+        while (totalChars > maxChars && eldest.hasNext()) {
+            totalChars -= eldest.next().length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * 128-bit content fingerprint.
+     */
+    public record Fingerprint(long high, long low) {
+    }
+
+    /**
+     * Incremental builder for {@link Fingerprint}s: two independently seeded 64-bit
+     * streams, each value passed through the SplitMix64 finalizer.
+     */
+    public static final class Hasher {
+        private long high = 0x9E3779B97F4A7C15L;
+        private long low = 0xC2B2AE3D27D4EB4FL;
+
+        public Hasher add(long value) {
+            high = Long.rotateLeft(high ^ mix(value), 27) * 0x9E3779B97F4A7C15L + 0x52DCE729L;
+            low = Long.rotateLeft(low ^ mix(value + 0x632BE59BD9B4E019L), 31) * 0x94D049BB133111EBL + 0x2545F491L;
+            return this;
+        }
+
+        public Hasher add(double value) {
+            return add(Double.doubleToLongBits(value));
+        }
+
+        public Hasher add(boolean value) {
+            return add(value ? 1L : 0L);
+        }
+
+        /**
+         * Null and empty strings hash differently.
+         */
+        public Hasher add(String value) {
+            if (value == null) {
+                return add(-1L);
+            }
+            add(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                add(value.charAt(i));
+            }
+            return this;
+        }
+
+        /**
+         * Note rows of {@code events}, in row order, with the fields quantization reads.
+         */
+        public Hasher addNotes(EventView events) {
+            add(events.noteCount());
+            for (int row = 0; row < events.size(); row++) {
+                if (events.isNote(row)) {
+                    add(events.tick(row));
+                    add(events.durationTicks(row));
+                    add(events.noteNumber(row));
+                }
+            }
+            return this;
+        }
+
+        public Fingerprint build() {
+            return new Fingerprint(mix(high), mix(low));
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
@@ -3,11 +3,16 @@ package com.marcoalmeida.midi_tokenizer;
 import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
 import com.marcoalmeida.midi_tokenizer.midi.NoteUtils;
 import com.marcoalmeida.midi_tokenizer.model.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import javax.sound.midi.*;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -128,6 +133,38 @@ class MidiParserTest {
         assertEquals(3, noteCount, "Should have 3 note events");
     }
     
+    @Test
+    void testOverlappingSameNote(@TempDir Path tempDir) throws Exception {
+        File midiFile = tempDir.resolve("test_overlap.mid").toFile();
+        
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track track = sequence.createTrack();
+        
+        // Second C4 starts before the first one ends (sustained piano re-strike)
+        addNoteToTrack(track, 0, 0, 60, 100, 960);
+        addNoteToTrack(track, 0, 480, 60, 70, 960);
+        
+        addTempoToTrack(track, 0, 500000);
+        addEndOfTrack(track, 1440);
+        
+        MidiSystem.write(sequence, 1, midiFile);
+        
+        MidiParser parser = new MidiParser();
+        MidiOutput output = parser.parse(midiFile, true, true);
+        
+        var notes = output.getTracks().get(0).getEvents().stream()
+            .filter(e -> "note".equals(e.getType()))
+            .toList();
+        
+        assertEquals(2, notes.size(), "Stacked same-pitch notes must both be kept");
+        assertEquals(0, notes.get(0).getTick());
+        assertEquals(100, notes.get(0).getVelocity());
+        assertEquals(960L, notes.get(0).getDurationTicks());
+        assertEquals(480, notes.get(1).getTick());
+        assertEquals(70, notes.get(1).getVelocity());
+        assertEquals(960L, notes.get(1).getDurationTicks());
+    }
+    
     @Test
     void testProgramChange(@TempDir Path tempDir) throws Exception {
         File midiFile = tempDir.resolve("test_program.mid").toFile();
@@ -258,6 +295,112 @@ class MidiParserTest {
         assertTrue(json.contains("C4"));
     }
     
+    @Test
+    void testParseFromByteBuffer(@TempDir Path tempDir) throws Exception {
+        File midiFile = tempDir.resolve("test_buffer.mid").toFile();
+        
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track track = sequence.createTrack();
+        
+        MetaMessage lyric = new MetaMessage();
+        lyric.setMessage(0x05, "la".getBytes(), 2);
+        track.add(new MidiEvent(lyric, 0));
+        addNoteToTrack(track, 0, 0, 60, 100, 480);
+        addTempoToTrack(track, 0, 500000);
+        addEndOfTrack(track, 480);
+        
+        MidiSystem.write(sequence, 1, midiFile);
+        
+        // Same bytes, held in a heap buffer with a non-zero position
+        byte[] bytes = java.nio.file.Files.readAllBytes(midiFile.toPath());
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+        
+        MidiParser parser = new MidiParser();
+        MidiOutput fromFile = parser.parse(midiFile, true, true);
+        MidiOutput fromBuffer = parser.parse(buffer, "test_buffer.mid", true, true);
+        
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(fromFile), mapper.writeValueAsString(fromBuffer));
+        assertEquals(3, buffer.position(), "Buffer position must not be modified");
+        assertTrue(mapper.writeValueAsString(fromBuffer).contains("lyric: la"));
+    }
+    
+    @Test
+    void testParallelParseMatchesSequential(@TempDir Path tempDir) throws Exception {
+        File midiFile = tempDir.resolve("test_parallel.mid").toFile();
+        
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track conductor = sequence.createTrack();
+        for (int beat = 0; beat < 500; beat++) {
+            addTempoToTrack(conductor, beat * 480L, 450000 + (beat % 7) * 10000);
+        }
+        for (int t = 0; t < 6; t++) {
+            Track track = sequence.createTrack();
+            for (int i = 0; i < 2000; i++) {
+                addNoteToTrack(track, t, i * 120L, 40 + (i + t) % 48, 60 + i % 60, 100);
+            }
+        }
+        
+        MidiSystem.write(sequence, 1, midiFile);
+        assertTrue(midiFile.length() >= MidiParser.PARALLEL_THRESHOLD_BYTES, 
+            "Test file must be large enough to take the parallel path");
+        
+        MidiParser parser = new MidiParser();
+        String sequential = parser.parseToJson(midiFile, true, true, false);
+        String parallel = parser.parseToJson(midiFile, true, true, true);
+        
+        assertEquals(sequential, parallel);
+        assertEquals(7, parser.parse(midiFile, true, true, true).getTracks().size());
+    }
+    
+    @Test
+    void testStreamingJsonMatchesObjectMapper() throws Exception {
+        File sample = new File("samples/in_blue.mid");
+        MidiParser parser = new MidiParser();
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        
+        String expected = mapper.writeValueAsString(parser.parse(sample, true, true));
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        parser.parseToJson(sample, streamed, true, true, false, true);
+        
+        assertEquals(expected, streamed.toString(StandardCharsets.UTF_8));
+        assertEquals(expected, parser.parseToJson(sample, true, true));
+        
+        String compact = parser.parseToJson(sample, true, true, false, false);
+        assertFalse(compact.contains("\n  "));
+        assertEquals(mapper.readTree(expected), mapper.readTree(compact));
+    }
+
+    @Test
+    void testTrackByTrackJsonUsesTempoFromLaterTracks(@TempDir Path tempDir) throws Exception {
+        File midiFile = tempDir.resolve("test_late_tempo.mid").toFile();
+
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track melody = sequence.createTrack();
+        addNoteToTrack(melody, 0, 0, 60, 100, 480);
+        addNoteToTrack(melody, 0, 960, 64, 100, 480);
+        addEndOfTrack(melody, 1920);
+        // Tempo change in the second track still has to reach the first track's seconds
+        Track conductor = sequence.createTrack();
+        addTempoToTrack(conductor, 480, 250000);
+        addEndOfTrack(conductor, 2400);
+        MidiSystem.write(sequence, 1, midiFile);
+
+        MidiParser parser = new MidiParser();
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        for (boolean seconds : new boolean[] {true, false}) {
+            MidiOutput output = parser.parse(midiFile, seconds, true);
+            ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+            parser.parseToJson(midiFile, streamed, seconds, true, false, true);
+
+            assertEquals(mapper.writeValueAsString(output), streamed.toString(StandardCharsets.UTF_8));
+            assertEquals(2400, output.getFile().getDurationTicks());
+        }
+    }
+
     // Helper methods
     
     private void addNoteToTrack(Track track, int channel, long tick, int noteNumber, 
@@ -0,0 +1,104 @@
+package com.marcoalmeida.midi_tokenizer.bench;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.EventArena;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+
+import java.io.File;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Memory footprint of parsed files kept in memory: event objects, columnar TrackEvents
+ * and off-heap EventArena storage.
+ * Run with: ./gradlew benchmark -Pbench=EventStoreBenchmark [-Pcopies=1000]
+ */
+public class EventStoreBenchmark {
+
+    private enum Storage { OBJECTS, COLUMNAR, OFF_HEAP }
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        File[] samples = new File("samples").listFiles((dir, name) -> name.endsWith(".mid"));
+        Arrays.sort(samples);
+        MidiParser parser = new MidiParser();
+
+        long eventsPerCopy = 0;
+        for (File sample : samples) {
+            for (TrackOutput track : parser.parse(sample, true, true).getTracks()) {
+                eventsPerCopy += track.getTrackEvents().size();
+            }
+        }
+
+        System.out.printf("%d sample files x %d copies, %,d events%n",
+            samples.length, copies, eventsPerCopy * copies);
+
+        // Event objects need ~160 bytes each; measure a tenth of the copies so they fit the heap
+        int objectCopies = Math.max(1, copies / 10);
+        report("EventOutput lists", measure(parser, samples, objectCopies, Storage.OBJECTS),
+            eventsPerCopy * objectCopies);
+        report("TrackEvents", measure(parser, samples, copies, Storage.COLUMNAR), eventsPerCopy * copies);
+        report("EventArena", measure(parser, samples, copies, Storage.OFF_HEAP), eventsPerCopy * copies);
+    }
+
+    private static long[] measure(MidiParser parser, File[] samples, int copies, Storage storage) throws Exception {
+        long heapBefore = usedHeap();
+        long directBefore = directBytes();
+        List<MidiOutput> corpus = new ArrayList<>();
+        EventArena arena = storage == Storage.OFF_HEAP ? EventArena.open() : null;
+
+        for (int copy = 0; copy < copies; copy++) {
+            for (File sample : samples) {
+                MidiOutput output = parser.parse(sample, true, true);
+                for (TrackOutput track : output.getTracks()) {
+                    if (storage == Storage.OBJECTS) {
+                        track.getEvents();
+                    } else if (storage == Storage.COLUMNAR && track.getTrackEvents().size() > 0) {
+                        // Force the lazily computed seconds so both sides hold the same data
+                        track.getTrackEvents().seconds(0);
+                    }
+                }
+                if (arena != null) {
+                    arena.moveOffHeap(output);
+                }
+                corpus.add(output);
+            }
+        }
+
+        long heap = usedHeap() - heapBefore;
+        long direct = directBytes() - directBefore;
+        if (corpus.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        corpus.clear();
+        if (arena != null) {
+            arena.close();
+        }
+        return new long[] {heap, direct};
+    }
+
+    private static void report(String name, long[] bytes, long events) {
+        System.out.printf("%-18s heap %,14d bytes (%6.1f B/event)  off-heap %,14d bytes (%6.1f B/event)%n",
+            name, bytes[0], (double) bytes[0] / events, bytes[1], (double) bytes[1] / events);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long directBytes() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> pool.getName().equals("direct"))
+            .mapToLong(BufferPoolMXBean::getMemoryUsed)
+            .sum();
+    }
+}
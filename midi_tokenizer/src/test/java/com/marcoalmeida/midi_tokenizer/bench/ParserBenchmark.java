@@ -0,0 +1,79 @@
+package com.marcoalmeida.midi_tokenizer.bench;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.midi.SmfDecoder;
+import com.marcoalmeida.midi_tokenizer.midi.SmfEventHandler;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures MidiParser.parse on samples/in_blue.mid and on a synthetic file with
+ * about one million events, next to the cost of a single decoder traversal.
+ * The parser walks the file once; tick-to-seconds runs as a post-pass over the
+ * collected events.
+ *
+ * Run with: ./gradlew benchmark -Pbench=ParserBenchmark
+ */
+public class ParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        MidiParser parser = new MidiParser();
+
+        byte[] inBlue = Files.readAllBytes(Path.of("samples/in_blue.mid"));
+        run("in_blue.mid", inBlue, parser, 200);
+
+        // 4 note tracks x 125k notes x 2 events ~= 1M events, tempo change on every beat (live-recorded tempo map)
+        byte[] synthetic = SyntheticMidi.create(4, 125_000, 480, 1);
+        run("synthetic-1M", synthetic, parser, 3);
+    }
+
+    private static void run(String name, byte[] data, MidiParser parser, int iterations) throws Exception {
+        long[] events = new long[1];
+        SmfEventHandler counter = new SmfEventHandler() {
+            @Override
+            public void channelMessage(long tick, int status, int data1, int data2) {
+                events[0]++;
+            }
+
+            @Override
+            public void metaMessage(long tick, int type, ByteBuffer buffer, int offset, int length) {
+                events[0]++;
+            }
+        };
+
+        // Warm-up
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            SmfDecoder.decode(data, counter);
+            parser.parse(ByteBuffer.wrap(data), name, true, true);
+            parser.parse(ByteBuffer.wrap(data), name, true, true, true);
+        }
+
+        events[0] = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            SmfDecoder.decode(data, counter);
+        }
+        double traversalMs = (System.nanoTime() - start) / 1e6 / iterations;
+        long eventCount = events[0] / iterations;
+
+        start = System.nanoTime();
+        MidiOutput output = null;
+        for (int i = 0; i < iterations; i++) {
+            output = parser.parse(ByteBuffer.wrap(data), name, true, true);
+        }
+        double parseMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parser.parse(ByteBuffer.wrap(data), name, true, true, true);
+        }
+        double parallelMs = (System.nanoTime() - start) / 1e6 / iterations;
+
+        System.out.printf("%-14s %,10d events  %,9d bytes  traversal %8.2f ms  parse %8.2f ms  "
+                + "parallel %8.2f ms  tracks=%d%n",
+            name, eventCount, data.length, traversalMs, parseMs, parallelMs, output.getTracks().size());
+    }
+}
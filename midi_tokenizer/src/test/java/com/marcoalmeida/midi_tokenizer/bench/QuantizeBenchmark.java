@@ -0,0 +1,80 @@
+package com.marcoalmeida.midi_tokenizer.bench;
+
+import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.strudel.RhythmConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures non-polyphonic quantization of dense tracks (overlapping notes, so most slices
+ * are contested) at growing note counts: random pitches, and a sweep that climbs the piano
+ * range over the track so most pitches first appear late. Time per note should stay flat as
+ * the track grows.
+ *
+ * Run with: ./gradlew benchmark -Pbench=QuantizeBenchmark
+ */
+public class QuantizeBenchmark {
+
+    private static final int QUANTIZATION = 16;
+    private static final int TEMPO = 120;
+
+    public static void main(String[] args) {
+        int[] sizes = {1_000, 10_000, 50_000, 100_000};
+
+        // Warm-up
+        for (int i = 0; i < 5; i++) {
+            run(track(10_000, false));
+            run(track(10_000, true));
+        }
+
+        for (boolean sweep : new boolean[] {false, true}) {
+            for (int size : sizes) {
+                TrackEvents events = track(size, sweep);
+                int iterations = Math.max(3, 200_000 / size);
+
+                // Best of five rounds
+                double best = Double.MAX_VALUE;
+                for (int round = 0; round < 5; round++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < iterations; i++) {
+                        run(events);
+                    }
+                    best = Math.min(best, (System.nanoTime() - start) / 1e6 / iterations);
+                }
+
+                System.out.printf("%-7s %,8d notes  %8.2f ms  %6.1f ns/note%n",
+                    sweep ? "sweep" : "random", size, best, best * 1e6 / size);
+            }
+        }
+    }
+
+    private static String run(TrackEvents events) {
+        double seconds = events.seconds(events.size() - 1) + events.durationSeconds(events.size() - 1);
+        int measures = (int) Math.ceil(seconds / (60.0 / TEMPO * 4)) + 1;
+        return RhythmConverter.toQuantizedCyclePattern(events, 480, 4, 4, QUANTIZATION, TEMPO, false, measures);
+    }
+
+    /**
+     * Four notes per beat, each held for one to four beats, so every slice sees several candidates.
+     */
+    private static TrackEvents track(int notes, boolean sweep) {
+        Random random = new Random(42);
+        List<EventOutput> events = new ArrayList<>(notes);
+        for (int i = 0; i < notes; i++) {
+            int beats = 1 + random.nextInt(4);
+            EventOutput event = new EventOutput();
+            event.setType("note");
+            event.setNoteNumber(sweep ? 21 + (int) ((long) i * 88 / notes) : 36 + random.nextInt(60));
+            event.setVelocity(64);
+            event.setTick(i * 120L);
+            event.setDurationTicks(480L * beats);
+            event.setTimeSeconds(i * 0.125);
+            event.setDurationSeconds(0.5 * beats);
+            events.add(event);
+        }
+        return TrackEvents.from(events);
+    }
+}
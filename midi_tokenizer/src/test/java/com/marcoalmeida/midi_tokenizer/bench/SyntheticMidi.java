@@ -0,0 +1,99 @@
+package com.marcoalmeida.midi_tokenizer.bench;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Builds large Standard MIDI Files in memory for benchmarks.
+ */
+public class SyntheticMidi {
+
+    /**
+     * Creates a type 1 file with a conductor track (a slightly drifting tempo)
+     * and {@code noteTracks} tracks of back-to-back eighth notes.
+     *
+     * @param noteTracks    Number of note tracks
+     * @param notesPerTrack Notes per track (each note is a note-on and a note-off event)
+     * @param division      Ticks per quarter note
+     * @param beatsPerTempo Quarter notes between tempo changes (1 = live-recorded style)
+     * @return SMF bytes
+     */
+    public static byte[] create(int noteTracks, int notesPerTrack, int division, int beatsPerTempo) {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        writeChunkHeader(file, "MThd", 6);
+        writeShort(file, 1);
+        writeShort(file, noteTracks + 1);
+        writeShort(file, division);
+
+        long totalTicks = (long) notesPerTrack * (division / 2);
+
+        // Conductor track: 4/4 and a tempo change every beatsPerTempo quarter notes
+        ByteArrayOutputStream conductor = new ByteArrayOutputStream();
+        writeVarLen(conductor, 0);
+        conductor.writeBytes(new byte[]{(byte) 0xFF, 0x58, 4, 4, 2, 24, 8});
+        long tempoInterval = (long) division * beatsPerTempo;
+        for (long tick = 0; tick < totalTicks; tick += tempoInterval) {
+            int microsecondsPerQuarter = 500000 + (int) ((tick / tempoInterval) % 16) * 250;
+            writeVarLen(conductor, tick == 0 ? 0 : tempoInterval);
+            conductor.writeBytes(new byte[]{(byte) 0xFF, 0x51, 3,
+                (byte) (microsecondsPerQuarter >> 16), (byte) (microsecondsPerQuarter >> 8), (byte) microsecondsPerQuarter});
+        }
+        writeEndOfTrack(conductor);
+        writeTrack(file, conductor);
+
+        for (int t = 0; t < noteTracks; t++) {
+            ByteArrayOutputStream track = new ByteArrayOutputStream();
+            int channel = t % 16;
+            writeVarLen(track, 0);
+            track.writeBytes(new byte[]{(byte) (0xC0 | channel), (byte) (t % 128)});
+            for (int n = 0; n < notesPerTrack; n++) {
+                int note = 48 + (n * 7 + t) % 36;
+                writeVarLen(track, 0);
+                track.writeBytes(new byte[]{(byte) (0x90 | channel), (byte) note, 96});
+                writeVarLen(track, division / 2);
+                track.writeBytes(new byte[]{(byte) (0x80 | channel), (byte) note, 0});
+            }
+            writeEndOfTrack(track);
+            writeTrack(file, track);
+        }
+        return file.toByteArray();
+    }
+
+    private static void writeTrack(ByteArrayOutputStream file, ByteArrayOutputStream track) {
+        writeChunkHeader(file, "MTrk", track.size());
+        file.writeBytes(track.toByteArray());
+    }
+
+    private static void writeEndOfTrack(ByteArrayOutputStream track) {
+        writeVarLen(track, 0);
+        track.writeBytes(new byte[]{(byte) 0xFF, 0x2F, 0});
+    }
+
+    private static void writeChunkHeader(ByteArrayOutputStream out, String type, int length) {
+        out.writeBytes(type.getBytes());
+        out.write(length >>> 24);
+        out.write(length >>> 16);
+        out.write(length >>> 8);
+        out.write(length);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void writeVarLen(ByteArrayOutputStream out, long value) {
+        int buffer = (int) (value & 0x7F);
+        while ((value >>= 7) > 0) {
+            buffer <<= 8;
+            buffer |= (int) ((value & 0x7F) | 0x80);
+        }
+        while (true) {
+            out.write(buffer & 0xFF);
+            if ((buffer & 0x80) != 0) {
+                buffer >>>= 8;
+            } else {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.marcoalmeida.midi_tokenizer.cli;
+
+import com.marcoalmeida.midi_tokenizer.io.MidiOutputCache;
+import com.marcoalmeida.midi_tokenizer.io.ParseCache;
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path corpus;
+    private MidiShellCommands commands;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        corpus = tempDir.resolve("corpus");
+        Files.createDirectories(corpus.resolve("jazz"));
+        Files.copy(Path.of("samples/in_blue.mid"), corpus.resolve("jazz/in_blue.mid"));
+        Files.copy(Path.of("samples/shape.mid"), corpus.resolve("shape.mid"));
+        Files.writeString(corpus.resolve("broken.mid"), "not a midi file");
+        Files.writeString(corpus.resolve("notes.txt"), "ignored");
+
+        MidiParser parser = new MidiParser();
+        commands = new MidiShellCommands(parser, new StrudelConverter(parser),
+            new ParseCache(parser, tempDir.resolve("cache"), 0), new MidiOutputCache(0));
+    }
+
+    @Test
+    void testConvertBatchMatchesSingleConvert() throws Exception {
+        Path output = tempDir.resolve("out");
+        String report = commands.convertBatch(corpus.toString(), output.toString(), null, null, false, 4);
+
+        assertTrue(report.startsWith("Converted 2 of 3 file(s)"), report);
+        assertTrue(report.contains("Failed (1):"), report);
+        assertTrue(report.contains("broken.mid"), report);
+
+        Path single = tempDir.resolve("single.txt");
+        commands.convert(corpus.resolve("jazz/in_blue.mid").toString(), single.toString(), null, null, null, false, false, null, null, null, null);
+        assertEquals(withoutTimestamp(Files.readString(single)),
+            withoutTimestamp(Files.readString(output.resolve("jazz/in_blue.txt"))));
+        assertTrue(Files.exists(output.resolve("shape.txt")));
+    }
+
+    @Test
+    void testParseBatchWithGlob() throws Exception {
+        Path output = tempDir.resolve("out");
+        String report = commands.parseBatch(corpus + "/**/*.mid", output.toString(), "bin", "seconds", true, false, 2);
+
+        // ** also matches no directory, so files directly in the corpus are included
+        assertTrue(report.startsWith("Parsed 2 of 3 file(s)"), report);
+        assertTrue(Files.exists(output.resolve("jazz/in_blue.mtok")));
+        assertTrue(Files.exists(output.resolve("shape.mtok")));
+    }
+
+    @Test
+    void testCollidingOutputsAreFailures() throws Exception {
+        Files.copy(Path.of("samples/shape.mid"), corpus.resolve("shape.midi"));
+        Path output = tempDir.resolve("out");
+        String report = commands.convertBatch(corpus.toString(), output.toString(), null, null, false, 4);
+
+        assertTrue(report.startsWith("Converted 1 of 4 file(s)"), report);
+        assertTrue(report.contains("Failed (3):"), report);
+        assertTrue(report.contains("is also the output of " + corpus.resolve("shape.midi")), report);
+        assertFalse(Files.exists(output.resolve("shape.txt")));
+        assertTrue(Files.exists(output.resolve("jazz/in_blue.txt")));
+    }
+
+    @Test
+    void testErrorsInTransformAreFailures() throws Exception {
+        BatchRunner.Inputs inputs = BatchRunner.resolveInputs(corpus.toString(), List.of(".mid"));
+        BatchRunner.Summary summary = new BatchRunner(2).run(inputs, tempDir.resolve("out"), ".txt",
+            (input, data) -> {
+                throw new StackOverflowError();
+            });
+
+        assertEquals(0, summary.succeeded());
+        assertEquals(3, summary.failures().size());
+        assertEquals("StackOverflowError", summary.failures().get(0).message());
+    }
+
+    @Test
+    void testResolveInputs() throws Exception {
+        List<String> extensions = List.of(".mid", ".midi");
+
+        BatchRunner.Inputs directory = BatchRunner.resolveInputs(corpus.toString(), extensions);
+        assertEquals(corpus, directory.root());
+        assertEquals(List.of(corpus.resolve("broken.mid"), corpus.resolve("jazz/in_blue.mid"), corpus.resolve("shape.mid")),
+            directory.files());
+
+        BatchRunner.Inputs glob = BatchRunner.resolveInputs(corpus + "/s*.mid", extensions);
+        assertEquals(corpus, glob.root());
+        assertEquals(List.of(corpus.resolve("shape.mid")), glob.files());
+
+        BatchRunner.Inputs nested = BatchRunner.resolveInputs(corpus + "/**/*_blue.mid", extensions);
+        assertEquals(List.of(corpus.resolve("jazz/in_blue.mid")), nested.files());
+
+        assertEquals(Path.of("out/jazz/in_blue.txt"),
+            BatchRunner.outputPath(corpus.resolve("jazz/in_blue.mid"), corpus, Path.of("out"), ".txt"));
+    }
+
+    @Test
+    void testEmptyInputReportsError() {
+        String report = commands.convertBatch(tempDir.resolve("missing").toString(), tempDir.toString(), null, null, false, 4);
+        assertTrue(report.startsWith("Error: No MIDI files found"), report);
+    }
+
+    private static String withoutTimestamp(String pattern) {
+        return pattern.replaceAll("Converted: .*", "");
+    }
+}
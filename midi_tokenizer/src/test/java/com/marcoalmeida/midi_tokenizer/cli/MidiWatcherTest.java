@@ -0,0 +1,96 @@
+package com.marcoalmeida.midi_tokenizer.cli;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.strudel.ConversionOptions;
+import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MidiWatcherTest {
+
+    private static final long DEBOUNCE_MILLIS = 100;
+
+    private final MidiParser parser = new MidiParser();
+    private final StrudelConverter converter = new StrudelConverter(parser);
+    private final ConversionOptions options = new ConversionOptions(null, null, null, true);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBurstOfChangesConvertsOnce() throws Exception {
+        try (MidiWatcher watcher = new MidiWatcher(tempDir, parser, converter, options, DEBOUNCE_MILLIS)) {
+            Path song = tempDir.resolve("song.mid");
+            Files.copy(Path.of("samples/in_blue.mid"), song);
+            for (int i = 0; i < 10; i++) {
+                watcher.onChange(song.toAbsolutePath());
+            }
+
+            awaitTrue(() -> watcher.convertedCount() == 1);
+            Thread.sleep(DEBOUNCE_MILLIS * 3);
+            assertEquals(1, watcher.convertedCount());
+            assertEquals(0, watcher.failedCount());
+            assertEquals(0, watcher.pendingCount(), "Finished conversions should not stay pending");
+
+            String expected = converter.convert(song.toString(), options);
+            String written = Files.readString(tempDir.resolve("song.txt")).substring(1); // BOM
+            assertEquals(withoutTimestamp(expected), withoutTimestamp(written));
+        }
+    }
+
+    @Test
+    void testUnchangedContentIsNotConverted() throws Exception {
+        Path song = tempDir.resolve("song.mid");
+        Files.copy(Path.of("samples/shape.mid"), song);
+
+        try (MidiWatcher watcher = new MidiWatcher(tempDir, parser, converter, options, DEBOUNCE_MILLIS)) {
+            // Same bytes as when the watch started
+            Files.write(song, Files.readAllBytes(song));
+            watcher.onChange(song.toAbsolutePath());
+            awaitTrue(() -> watcher.unchangedCount() > 0);
+            assertEquals(0, watcher.convertedCount());
+            assertFalse(Files.exists(tempDir.resolve("song.txt")));
+
+            Files.copy(Path.of("samples/azul.mid"), song, StandardCopyOption.REPLACE_EXISTING);
+            watcher.onChange(song.toAbsolutePath());
+            awaitTrue(() -> watcher.convertedCount() == 1);
+        }
+    }
+
+    @Test
+    void testFailureIsLogged() throws Exception {
+        try (MidiWatcher watcher = new MidiWatcher(tempDir, parser, converter, options, DEBOUNCE_MILLIS)) {
+            Path broken = tempDir.resolve("broken.mid");
+            Files.writeString(broken, "not a midi file");
+            watcher.onChange(broken.toAbsolutePath());
+
+            awaitTrue(() -> watcher.failedCount() > 0);
+            assertTrue(watcher.recentLog().get(0).contains("Failed broken.mid"), watcher.recentLog().toString());
+        }
+    }
+
+    @Test
+    void testTextFileFor() {
+        assertEquals(Path.of("dir/song.txt"), MidiWatcher.textFileFor(Path.of("dir/song.mid")));
+        assertEquals(Path.of("song.txt"), MidiWatcher.textFileFor(Path.of("song.midi")));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the watcher");
+            Thread.sleep(20);
+        }
+    }
+
+    private static String withoutTimestamp(String pattern) {
+        return pattern.replaceAll("Converted: .*", "");
+    }
+}
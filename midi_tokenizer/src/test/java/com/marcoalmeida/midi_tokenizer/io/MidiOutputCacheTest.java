@@ -0,0 +1,107 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.strudel.ConversionOptions;
+import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MidiOutputCacheTest {
+
+    private final MidiParser parser = new MidiParser();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRepeatedConversionsParseOnce() throws Exception {
+        AtomicInteger parses = new AtomicInteger();
+        MidiParser countingParser = new MidiParser() {
+            @Override
+            public MidiOutput parse(File file, boolean includeTimeSeconds, boolean includeMeta,
+                                    boolean parallel) throws Exception {
+                parses.incrementAndGet();
+                return super.parse(file, includeTimeSeconds, includeMeta, parallel);
+            }
+        };
+        MidiOutputCache cache = new MidiOutputCache(1_000_000);
+        StrudelConverter cached = new StrudelConverter(countingParser, null, cache);
+        StrudelConverter uncached = new StrudelConverter(parser);
+        String input = "samples/in_blue.mid";
+
+        for (ConversionOptions options : new ConversionOptions[]{
+                new ConversionOptions(null, null, 8, true),
+                new ConversionOptions(null, null, 16, true),
+                new ConversionOptions(null, 1, null, false)}) {
+            assertEquals(withoutTimestamp(uncached.convert(input, options)),
+                withoutTimestamp(cached.convert(input, options)));
+        }
+
+        assertEquals(1, parses.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void testModifiedFileMisses() throws Exception {
+        MidiOutputCache cache = new MidiOutputCache(1_000_000);
+        File file = tempDir.resolve("song.mid").toFile();
+        Files.copy(Path.of("samples/shape.mid"), file.toPath());
+
+        MidiOutput first = cache.get(file, "", f -> parser.parse(f, true, true));
+        assertSame(first, cache.get(file, "", f -> parser.parse(f, true, true)));
+
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(file.lastModified() + 2000));
+        assertNotSame(first, cache.get(file, "", f -> parser.parse(f, true, true)));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testEvictsByEventCount() throws Exception {
+        File small = new File("samples/shape.mid");
+        File large = new File("samples/in_blue.mid");
+        long smallEvents = weightOf(small);
+        long largeEvents = weightOf(large);
+
+        // Room for either file but not both
+        MidiOutputCache cache = new MidiOutputCache(Math.max(smallEvents, largeEvents) + 1);
+        cache.get(small, "", f -> parser.parse(f, true, true));
+        cache.get(large, "", f -> parser.parse(f, true, true));
+
+        assertEquals(1, cache.entryCount());
+        assertEquals(largeEvents, cache.eventCount());
+        assertEquals(1, cache.getEvictions());
+
+        cache.get(small, "", f -> parser.parse(f, true, true));
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() throws Exception {
+        MidiOutputCache cache = new MidiOutputCache(0);
+        File sample = new File("samples/shape.mid");
+        MidiOutput first = cache.get(sample, "", f -> parser.parse(f, true, true));
+
+        assertNotSame(first, cache.get(sample, "", f -> parser.parse(f, true, true)));
+        assertEquals(0, cache.entryCount());
+    }
+
+    private long weightOf(File file) throws Exception {
+        MidiOutputCache probe = new MidiOutputCache(Long.MAX_VALUE);
+        probe.get(file, "", f -> parser.parse(f, true, true));
+        return probe.eventCount();
+    }
+
+    private static String withoutTimestamp(String pattern) {
+        return pattern.replaceAll("Converted: .*", "");
+    }
+}
@@ -0,0 +1,137 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+import com.marcoalmeida.midi_tokenizer.strudel.ConversionOptions;
+import com.marcoalmeida.midi_tokenizer.strudel.StrudelConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MtokFormatTest {
+
+    private final MidiParser parser = new MidiParser();
+    private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripMatchesJson() throws Exception {
+        File[] samples = new File("samples").listFiles((dir, name) -> name.endsWith(".mid"));
+        assertTrue(samples.length > 0);
+
+        for (File sample : samples) {
+            for (boolean includeTimeSeconds : new boolean[]{true, false}) {
+                String expected = parser.parseToJson(sample, includeTimeSeconds, true);
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                new MtokWriter().write(parser.parse(sample, includeTimeSeconds, true), bytes);
+                MtokReader reader = MtokReader.of(ByteBuffer.wrap(bytes.toByteArray()));
+
+                assertEquals(includeTimeSeconds, reader.isTimed());
+                assertEquals(expected, mapper.writeValueAsString(reader.read()), sample.getName());
+                assertTrue(bytes.size() * 10 < expected.length(), sample.getName() + " should be far smaller than JSON");
+            }
+        }
+    }
+
+    @Test
+    void testFixedWidthRoundTripMatchesJson() throws Exception {
+        File[] samples = new File("samples").listFiles((dir, name) -> name.endsWith(".mid"));
+        assertTrue(samples.length > 0);
+
+        for (File sample : samples) {
+            for (boolean includeTimeSeconds : new boolean[]{true, false}) {
+                String expected = parser.parseToJson(sample, includeTimeSeconds, true);
+
+                Path file = tempDir.resolve(sample.getName() + "-" + includeTimeSeconds + ".mtok");
+                new MtokWriter(true).write(parser.parse(sample, includeTimeSeconds, true), file);
+                MidiOutput read = MtokReader.open(file.toFile()).read();
+
+                assertEquals(expected, mapper.writeValueAsString(read), sample.getName());
+            }
+        }
+    }
+
+    @Test
+    void testNoteTooLongForFixedWidthRecords() throws Exception {
+        MidiOutput output = parser.parse(new File("samples/shape.mid"), false, true);
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 36, 100, 5_000_000_000L);
+        output.getTracks().get(0).setTrackEvents(events);
+
+        // Fixed-width records refuse the note; the varint encoding keeps it
+        assertThrows(IOException.class, () -> new MtokWriter(true).write(output, new ByteArrayOutputStream()));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new MtokWriter().write(output, bytes);
+        MidiOutput read = MtokReader.of(ByteBuffer.wrap(bytes.toByteArray())).read();
+        assertEquals(5_000_000_000L, read.getTracks().get(0).getTrackEvents().durationTicks(0));
+    }
+
+    @Test
+    void testReadSingleTrack() throws Exception {
+        File sample = new File("samples/in_blue.mid");
+        MidiOutput parsed = parser.parse(sample, true, true);
+        Path file = tempDir.resolve("in_blue.mtok");
+        new MtokWriter().write(parsed, file);
+
+        MtokReader reader = MtokReader.open(file.toFile());
+        assertEquals(parsed.getTracks().size(), reader.trackCount());
+
+        MidiOutput partial = reader.read(i -> i == 1);
+        for (int i = 0; i < reader.trackCount(); i++) {
+            TrackOutput expected = parsed.getTracks().get(i);
+            TrackOutput actual = partial.getTracks().get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getProgramChanges().size(), actual.getProgramChanges().size());
+            int expectedEvents = i == 1 ? expected.getTrackEvents().size() : 0;
+            assertEquals(expectedEvents, actual.getTrackEvents().size());
+        }
+    }
+
+    @Test
+    void testConvertFromMtokMatchesMidi() throws Exception {
+        File sample = new File("samples/in_blue.mid");
+        Path file = tempDir.resolve("in_blue.mtok");
+        new MtokWriter().write(parser.parse(sample, false, true), file);
+
+        StrudelConverter converter = new StrudelConverter(parser);
+        for (ConversionOptions options : Arrays.asList(
+                new ConversionOptions(null, null, null, true),
+                new ConversionOptions(null, 1, 8, false))) {
+            String fromMidi = converter.convert(sample.getPath(), options);
+            String fromMtok = converter.convert(file.toString(), options);
+            assertEquals(withoutHeaderVariance(fromMidi), withoutHeaderVariance(fromMtok));
+        }
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws Exception {
+        Path json = tempDir.resolve("song.mtok");
+        Files.writeString(json, "{ \"schemaVersion\" : \"1.0\" }");
+        assertThrows(IOException.class, () -> MtokReader.open(json.toFile()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new MtokWriter().write(parser.parse(new File("samples/in_blue.mid"), true, true), bytes);
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), 40);
+        assertThrows(IOException.class, () -> MtokReader.of(ByteBuffer.wrap(truncated)).read());
+    }
+
+    private static String withoutHeaderVariance(String pattern) {
+        return pattern.replaceAll("Converted: .*", "").replaceAll("in_blue\\.(mid|mtok)", "in_blue");
+    }
+}
@@ -0,0 +1,143 @@
+package com.marcoalmeida.midi_tokenizer.io;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    private final MidiParser parser = new MidiParser();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testHitMatchesParse() throws Exception {
+        ParseCache cache = new ParseCache(parser, tempDir.resolve("cache"), 64L * 1024 * 1024);
+        File sample = new File("samples/in_blue.mid");
+        String expected = mapper.writeValueAsString(parser.parse(sample, true, true));
+
+        assertEquals(expected, mapper.writeValueAsString(cache.parse(sample, true, true, false)));
+        assertEquals(1, cache.entryCount());
+        assertEquals(expected, mapper.writeValueAsString(cache.parse(sample, true, true, false)));
+        assertEquals(1, cache.entryCount());
+
+        // Different parse flags are separate entries
+        cache.parse(sample, false, false, false);
+        assertEquals(2, cache.entryCount());
+    }
+
+    @Test
+    void testKeyedByContent() throws Exception {
+        ParseCache cache = new ParseCache(parser, tempDir.resolve("cache"), 64L * 1024 * 1024);
+        File copy = tempDir.resolve("renamed.mid").toFile();
+        Files.copy(Path.of("samples/shape.mid"), copy.toPath());
+
+        cache.parse(new File("samples/shape.mid"), true, true, false);
+        MidiOutput fromCopy = cache.parse(copy, true, true, false);
+
+        assertEquals(1, cache.entryCount());
+        assertEquals("renamed.mid", fromCopy.getFile().getFilename());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        File small = new File("samples/shape.mid");
+        File large = new File("samples/in_blue.mid");
+
+        ParseCache probe = new ParseCache(parser, directory, 64L * 1024 * 1024);
+        probe.parse(large, true, true, false);
+        long largeEntry = probe.sizeBytes();
+        probe.clear();
+
+        // Room for either entry, but not both
+        ParseCache cache = new ParseCache(parser, directory, largeEntry + 1);
+        cache.parse(small, true, true, false);
+        Thread.sleep(20);
+        cache.parse(large, true, true, false);
+
+        assertEquals(1, cache.entryCount());
+        assertEquals(largeEntry, cache.sizeBytes(), "The most recently used entry should be kept");
+        assertEquals(1, cache.clear());
+        assertEquals(0, cache.entryCount());
+    }
+
+    @Test
+    void testHitOutlivesClearedEntry() throws Exception {
+        ParseCache cache = new ParseCache(parser, tempDir.resolve("cache"), 64L * 1024 * 1024);
+        File sample = new File("samples/shape.mid");
+        String expected = mapper.writeValueAsString(parser.parse(sample, false, true));
+
+        cache.parse(sample, false, true, false);
+        MidiOutput hit = cache.parse(sample, false, true, false);
+        assertEquals(1, cache.clear());
+
+        // The hit was read into memory, so it does not depend on the deleted entry
+        assertEquals(0, cache.entryCount());
+        assertEquals(expected, mapper.writeValueAsString(hit));
+    }
+
+    @Test
+    void testCorruptEntryIsReparsed() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        ParseCache cache = new ParseCache(parser, directory, 64L * 1024 * 1024);
+        File sample = new File("samples/opus85.mid");
+        cache.parse(sample, true, true, false);
+
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(directory)) {
+            entries = files.toList();
+        }
+        assertEquals(1, entries.size());
+        Files.write(entries.get(0), new byte[] {'M', 'T', 'O', 'K', 1});
+
+        String expected = mapper.writeValueAsString(parser.parse(sample, true, true));
+        assertEquals(expected, mapper.writeValueAsString(cache.parse(sample, true, true, false)));
+    }
+
+    @Test
+    void testEntryFailingWithRuntimeExceptionIsReparsed() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        ParseCache cache = new ParseCache(parser, directory, 64L * 1024 * 1024);
+        File sample = new File("samples/shape.mid");
+        cache.parse(sample, false, true, false);
+
+        Path entry;
+        try (Stream<Path> files = Files.list(directory)) {
+            entry = files.findFirst().orElseThrow();
+        }
+        // Valid header, then a string count that decodes negative (NegativeArraySizeException)
+        ByteArrayOutputStream corrupt = new ByteArrayOutputStream();
+        corrupt.write(MtokFormat.MAGIC);
+        corrupt.write(MtokFormat.VERSION);
+        corrupt.write(0);
+        corrupt.write(new byte[] {-1, -1, -1, -1, -1, -1, -1, -1, -1, 1});
+        Files.write(entry, corrupt.toByteArray());
+
+        String expected = mapper.writeValueAsString(parser.parse(sample, false, true));
+        assertEquals(expected, mapper.writeValueAsString(cache.parse(sample, false, true, false)));
+        assertEquals(1, cache.entryCount());
+        assertNotEquals(corrupt.size(), Files.size(entry), "The corrupt entry should have been replaced");
+    }
+
+    @Test
+    void testDisabledCacheWritesNothing() throws Exception {
+        Path directory = tempDir.resolve("cache");
+        ParseCache cache = new ParseCache(parser, directory, 0);
+        cache.parse(new File("samples/shape.mid"), true, true, false);
+        assertFalse(Files.exists(directory));
+    }
+}
@@ -0,0 +1,87 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActiveNoteTrackerTest {
+
+    @Test
+    void testPairsNoteOnWithNoteOff() {
+        ActiveNoteTracker tracker = new ActiveNoteTracker();
+        tracker.noteOn(9, 36, 1000, 110);
+
+        long packed = tracker.noteOff(9, 36);
+        assertEquals(1000, ActiveNoteTracker.tick(packed));
+        assertEquals(110, ActiveNoteTracker.velocity(packed));
+        assertEquals(ActiveNoteTracker.NONE, tracker.noteOff(9, 36));
+    }
+
+    @Test
+    void testUnmatchedNoteOff() {
+        ActiveNoteTracker tracker = new ActiveNoteTracker();
+        tracker.noteOn(0, 60, 0, 100);
+
+        assertEquals(ActiveNoteTracker.NONE, tracker.noteOff(1, 60), "Other channel");
+        assertEquals(ActiveNoteTracker.NONE, tracker.noteOff(0, 61), "Other note");
+    }
+
+    @Test
+    void testStackedNotesCloseOldestFirst() {
+        ActiveNoteTracker tracker = new ActiveNoteTracker();
+        // Deeper than the initial per-key capacity
+        for (int i = 0; i < 10; i++) {
+            tracker.noteOn(0, 60, i * 10L, 100 + i);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            long packed = tracker.noteOff(0, 60);
+            assertEquals(i * 10L, ActiveNoteTracker.tick(packed));
+            assertEquals(100 + i, ActiveNoteTracker.velocity(packed));
+        }
+        assertEquals(ActiveNoteTracker.NONE, tracker.noteOff(0, 60));
+    }
+
+    @Test
+    void testClearDropsPendingNotes() {
+        ActiveNoteTracker tracker = new ActiveNoteTracker();
+        tracker.noteOn(3, 64, 480, 90);
+        tracker.clear();
+
+        assertEquals(ActiveNoteTracker.NONE, tracker.noteOff(3, 64));
+    }
+
+    @Test
+    void testNoAllocationPerNote() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ActiveNoteTracker tracker = new ActiveNoteTracker();
+
+        // Warm up so the measured loop runs compiled code
+        long checksum = pairNotes(tracker, 200_000);
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        checksum += pairNotes(tracker, 1_000_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(checksum > 0);
+        assertTrue(allocated < 1024,
+            "Expected no allocation for 1M notes but " + allocated + " bytes were allocated");
+    }
+
+    private static long pairNotes(ActiveNoteTracker tracker, int notes) {
+        long checksum = 0;
+        for (int i = 0; i < notes; i++) {
+            int channel = i & 0x0F;
+            int note = (i * 7) & 0x7F;
+            // Two overlapping strikes of the same key, then both releases
+            tracker.noteOn(channel, note, i, 1 + (i % 127));
+            tracker.noteOn(channel, note, i + 1, 64);
+            checksum += ActiveNoteTracker.tick(tracker.noteOff(channel, note));
+            checksum += ActiveNoteTracker.velocity(tracker.noteOff(channel, note));
+        }
+        return checksum;
+    }
+}
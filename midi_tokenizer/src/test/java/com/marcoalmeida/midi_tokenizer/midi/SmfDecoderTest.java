@@ -0,0 +1,156 @@
+package com.marcoalmeida.midi_tokenizer.midi;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.midi.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests for the native SMF decoder against javax.sound.midi.
+ */
+class SmfDecoderTest {
+
+    @Test
+    void testMatchesJavaSoundForAllSamples() throws Exception {
+        File[] samples = new File("samples").listFiles((dir, name) -> name.endsWith(".mid"));
+        assertNotNull(samples, "samples/ directory not found");
+        assertTrue(samples.length > 0, "No sample MIDI files found");
+
+        for (File sample : samples) {
+            byte[] data = Files.readAllBytes(sample.toPath());
+            assertEquals(describeWithJavaSound(data), describeWithDecoder(data),
+                "Decoded events differ for " + sample.getName());
+        }
+    }
+
+    @Test
+    void testSysexAndRunningStatus() throws Exception {
+        Sequence sequence = new Sequence(Sequence.PPQ, 96);
+        Track track = sequence.createTrack();
+
+        SysexMessage sysex = new SysexMessage();
+        byte[] sysexData = {(byte) 0xF0, 0x7E, 0x7F, 0x09, 0x01, (byte) 0xF7};
+        sysex.setMessage(sysexData, sysexData.length);
+        track.add(new MidiEvent(sysex, 0));
+
+        // Consecutive note-ons on the same channel are written with running status
+        for (int i = 0; i < 4; i++) {
+            ShortMessage noteOn = new ShortMessage();
+            noteOn.setMessage(ShortMessage.NOTE_ON, 3, 60 + i, 90);
+            track.add(new MidiEvent(noteOn, i * 24L));
+        }
+        ShortMessage program = new ShortMessage();
+        program.setMessage(ShortMessage.PROGRAM_CHANGE, 3, 12, 0);
+        track.add(new MidiEvent(program, 100));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MidiSystem.write(sequence, 0, out);
+        byte[] data = out.toByteArray();
+
+        assertEquals(describeWithJavaSound(data), describeWithDecoder(data));
+    }
+
+    @Test
+    void testRejectsNonMidiData() {
+        byte[] data = "RIFF0000WAVEfmt ".getBytes();
+        assertThrows(InvalidMidiDataException.class, () -> SmfDecoder.decode(data, new SmfEventHandler() {}));
+    }
+
+    @Test
+    void testRejectsTruncatedTrack() {
+        byte[] data = {
+            'M', 'T', 'h', 'd', 0, 0, 0, 6, 0, 0, 0, 1, 0, 96,
+            'M', 'T', 'r', 'k', 0, 0, 0, 3, 0, (byte) 0x90, 60
+        };
+        assertThrows(InvalidMidiDataException.class, () -> SmfDecoder.decode(data, new SmfEventHandler() {}));
+    }
+
+    /**
+     * Renders every event of every track via javax.sound.midi, one line per event.
+     * End of Track is reported as the track's end tick only, since javax synthesizes it.
+     */
+    private List<String> describeWithJavaSound(byte[] data) throws Exception {
+        Sequence sequence = MidiSystem.getSequence(new ByteArrayInputStream(data));
+        List<String> lines = new ArrayList<>();
+        lines.add("resolution " + sequence.getResolution() + " tracks " + sequence.getTracks().length);
+
+        Track[] tracks = sequence.getTracks();
+        for (int t = 0; t < tracks.length; t++) {
+            lines.add("track " + t);
+            for (int i = 0; i < tracks[t].size(); i++) {
+                MidiEvent event = tracks[t].get(i);
+                MidiMessage message = event.getMessage();
+                if (message instanceof ShortMessage sm) {
+                    lines.add(event.getTick() + " short " + sm.getStatus() + " " + sm.getData1() + " " + sm.getData2());
+                } else if (message instanceof MetaMessage meta) {
+                    if (meta.getType() != 0x2F) {
+                        lines.add(event.getTick() + " meta " + meta.getType() + " " + HexFormat.of().formatHex(meta.getData()));
+                    }
+                } else if (message instanceof SysexMessage sysex) {
+                    lines.add(event.getTick() + " sysex " + sysex.getStatus() + " " + HexFormat.of().formatHex(sysex.getData()));
+                }
+            }
+            lines.add("end " + tracks[t].ticks());
+        }
+        return lines;
+    }
+
+    private List<String> describeWithDecoder(byte[] data) throws Exception {
+        List<String> lines = new ArrayList<>();
+        int[] trackCount = new int[1];
+        int[] resolution = new int[1];
+        List<String> body = new ArrayList<>();
+
+        SmfDecoder.decode(data, new SmfEventHandler() {
+            @Override
+            public void header(int format, int declaredTracks, int division) {
+                resolution[0] = division >= 0 ? division : division & 0xFF;
+            }
+
+            @Override
+            public void startTrack(int trackIndex) {
+                body.add("track " + trackIndex);
+            }
+
+            @Override
+            public void channelMessage(long tick, int status, int data1, int data2) {
+                body.add(tick + " short " + status + " " + data1 + " " + data2);
+            }
+
+            @Override
+            public void metaMessage(long tick, int type, ByteBuffer buffer, int offset, int length) {
+                if (type != 0x2F) {
+                    byte[] payload = new byte[length];
+                    buffer.get(offset, payload);
+                    body.add(tick + " meta " + type + " " + HexFormat.of().formatHex(payload));
+                }
+            }
+
+            @Override
+            public void sysexMessage(long tick, int status, ByteBuffer buffer, int offset, int length) {
+                byte[] payload = new byte[length];
+                buffer.get(offset, payload);
+                body.add(tick + " sysex " + status + " " + HexFormat.of().formatHex(payload));
+            }
+
+            @Override
+            public void endTrack(int trackIndex, long endTick) {
+                body.add("end " + endTick);
+                trackCount[0]++;
+            }
+        });
+
+        lines.add("resolution " + resolution[0] + " tracks " + trackCount[0]);
+        lines.addAll(body);
+        return lines;
+    }
+}
@@ -0,0 +1,80 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventArenaTest {
+
+    @Test
+    void testOffHeapTracksSerializeIdentically() throws Exception {
+        MidiParser parser = new MidiParser();
+        File sample = new File("samples/in_blue.mid");
+        ObjectMapper mapper = new ObjectMapper();
+
+        String onHeap = mapper.writeValueAsString(parser.parse(sample, true, true));
+
+        try (EventArena arena = EventArena.open()) {
+            MidiOutput output = parser.parse(sample, true, true);
+            arena.moveOffHeap(output);
+
+            assertTrue(arena.usedBytes() > 0);
+            assertEquals(onHeap, mapper.writeValueAsString(output));
+        }
+    }
+
+    @Test
+    void testViewsFailAfterClose() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 60, 100, 480);
+
+        EventArena arena = EventArena.open();
+        EventView view = arena.copyOf(events);
+        assertEquals(60, view.noteNumber(0));
+
+        arena.close();
+        assertThrows(IllegalStateException.class, () -> view.noteNumber(0));
+        assertThrows(IllegalStateException.class, () -> arena.copyOf(events));
+    }
+
+    @Test
+    void testNoteLongerThanRecordField() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 36, 100, 5_000_000_000L);
+        events.addNote(480, 0, 60, 100, 480);
+
+        try (EventArena arena = EventArena.open()) {
+            EventView view = arena.copyOf(events);
+            assertEquals(5_000_000_000L, view.durationTicks(0));
+            assertEquals(480, view.durationTicks(1));
+        }
+    }
+
+    @Test
+    void testSuppliedSecondsAreStored() {
+        EventOutput note = new EventOutput();
+        note.setType("note");
+        note.setTick(480);
+        note.setChannel(0);
+        note.setNoteNumber(64);
+        note.setVelocity(90);
+        note.setDurationTicks(240L);
+        note.setTimeSeconds(0.625);
+        note.setDurationSeconds(0.3125);
+
+        try (EventArena arena = EventArena.open()) {
+            EventView view = arena.copyOf(TrackEvents.from(List.of(note)));
+
+            assertTrue(view.hasSeconds());
+            assertNull(view.getTempoMap());
+            assertEquals(0.625, view.seconds(0));
+            assertEquals(0.3125, view.durationSeconds(0));
+            assertEquals(1, view.noteCount());
+        }
+    }
+}
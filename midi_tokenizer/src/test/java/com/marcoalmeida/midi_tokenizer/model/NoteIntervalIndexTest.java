@@ -0,0 +1,71 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteIntervalIndexTest {
+
+    @Test
+    void testOverlapping_IncludesNotesHeldIntoRange() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 36, 100, 7680);     // Pedal point over four measures
+        events.addMeta(100, "marker: intro");
+        for (int i = 0; i < 64; i++) {
+            events.addNote(i * 120L, 0, 60 + i % 12, 100, 120);
+        }
+        events.addNote(3840, 0, 72, 100, 0);     // Zero-length note at the start of measure 3
+
+        NoteIntervalIndex index = NoteIntervalIndex.of(events);
+        assertEquals(66, index.noteCount());
+        assertEquals(7560, index.lastOnsetTick());
+
+        // Measure 3: the pedal point, the sixteenths starting in it and the zero-length note;
+        // the sixteenth ending at 3840 is not held into it
+        int[] expected = IntStream.concat(IntStream.concat(IntStream.of(0), IntStream.rangeClosed(34, 49)),
+            IntStream.of(66)).toArray();
+        assertArrayEquals(expected, index.overlapping(3840, 5760));
+        assertArrayEquals(new int[0], index.overlapping(7680, 9000));
+    }
+
+    @Test
+    void testOverlapping_MatchesScanOverRandomNotes() {
+        // Rows appended out of onset order, as at note-off, with some long notes
+        Random random = new Random(11);
+        TrackEvents events = new TrackEvents();
+        for (int i = 0; i < 5000; i++) {
+            long tick = random.nextInt(200_000);
+            long duration = random.nextInt(50) == 0 ? random.nextInt(100_000) : random.nextInt(960);
+            events.addNote(tick, 0, 60, 100, duration);
+        }
+        NoteIntervalIndex index = NoteIntervalIndex.of(events);
+
+        for (int query = 0; query < 200; query++) {
+            long from = random.nextInt(210_000);
+            long to = from + random.nextInt(8000);
+            int[] expected = IntStream.range(0, events.size())
+                .filter(row -> events.tick(row) < to
+                    && events.tick(row) + Math.max(events.durationTicks(row), 1) > from)
+                .toArray();
+            assertArrayEquals(expected, index.overlapping(from, to), "ticks " + from + "-" + to);
+        }
+    }
+
+    @Test
+    void testTrackOutputKeepsIndexOfRowView() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 60, 100, 480);
+        TrackOutput track = new TrackOutput(0);
+        track.setTrackEvents(events);
+
+        NoteIntervalIndex index = track.getNoteIndex();
+        assertSame(index, track.getNoteIndex());
+        assertSame(events, index.events());
+
+        track.setTrackEvents(new TrackEvents());
+        assertEquals(0, track.getNoteIndex().noteCount());
+    }
+}
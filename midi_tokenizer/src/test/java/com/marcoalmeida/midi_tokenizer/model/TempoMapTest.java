@@ -0,0 +1,73 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TempoMapTest {
+
+    private static final int DIVISION = 480;
+
+    @Test
+    void testSingleTempo() {
+        TempoMap tempoMap = TempoMap.of(List.of(new TempoEntry(0, 500000, 120.0)), DIVISION);
+
+        assertEquals(0.0, tempoMap.ticksToSeconds(0), 1e-9);
+        assertEquals(0.5, tempoMap.ticksToSeconds(480), 1e-9);
+        assertEquals(2.0, tempoMap.ticksToSeconds(1920), 1e-9);
+    }
+
+    @Test
+    void testTempoChange() {
+        // 120 BPM for one beat, then 60 BPM
+        TempoMap tempoMap = TempoMap.of(List.of(
+            new TempoEntry(0, 500000, 120.0),
+            new TempoEntry(480, 1000000, 60.0)
+        ), DIVISION);
+
+        assertEquals(0.5, tempoMap.ticksToSeconds(480), 1e-9);
+        assertEquals(1.5, tempoMap.ticksToSeconds(960), 1e-9);
+        assertEquals(1.0, tempoMap.ticksToSeconds(720), 1e-9);
+    }
+
+    @Test
+    void testDefaultTempoBeforeFirstChange() {
+        TempoMap tempoMap = TempoMap.of(List.of(new TempoEntry(960, 1000000, 60.0)), DIVISION);
+
+        assertEquals(0.5, tempoMap.ticksToSeconds(480), 1e-9);
+        assertEquals(1.0, tempoMap.ticksToSeconds(960), 1e-9);
+        assertEquals(2.0, tempoMap.ticksToSeconds(1440), 1e-9);
+        assertEquals(60.0, tempoMap.initialBpm(), 1e-9);
+    }
+
+    @Test
+    void testEmptyTempoMapUses120Bpm() {
+        TempoMap tempoMap = TempoMap.of(List.of(), DIVISION);
+
+        assertEquals(1.0, tempoMap.ticksToSeconds(960), 1e-9);
+        assertEquals(120.0, tempoMap.initialBpm(), 1e-9);
+    }
+
+    @Test
+    void testCursorMatchesBinarySearch() {
+        // Drifting tempo on every beat, like a live recording
+        List<TempoEntry> entries = new ArrayList<>();
+        for (int beat = 0; beat < 200; beat++) {
+            long microseconds = 450000 + (beat * 7919L) % 100000;
+            entries.add(new TempoEntry(beat * (long) DIVISION, microseconds, 60000000.0 / microseconds));
+        }
+        TempoMap tempoMap = TempoMap.of(entries, DIVISION);
+
+        TempoMap.Cursor cursor = tempoMap.cursor();
+        for (long tick = 0; tick < 200 * DIVISION; tick += 37) {
+            assertEquals(tempoMap.ticksToSeconds(tick), cursor.ticksToSeconds(tick));
+        }
+
+        // Going backwards falls back to a lookup
+        assertEquals(tempoMap.ticksToSeconds(1000), cursor.ticksToSeconds(1000));
+        assertEquals(tempoMap.ticksToSeconds(5000), cursor.ticksToSeconds(5000));
+    }
+}
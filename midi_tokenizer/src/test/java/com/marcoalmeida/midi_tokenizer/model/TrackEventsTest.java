@@ -0,0 +1,128 @@
+package com.marcoalmeida.midi_tokenizer.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackEventsTest {
+
+    private static final int DIVISION = 480;
+
+    @Test
+    void testColumnsPerKind() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 9, 36, 110, 240);
+        events.addControlChange(10, 0, 64, 127);
+        events.addPitchBend(20, 1, -8192);
+        events.addPitchBend(30, 1, 8191);
+        events.addMeta(40, "marker: verse");
+
+        assertEquals(5, events.size());
+        assertEquals(1, events.noteCount());
+
+        assertTrue(events.isNote(0));
+        assertEquals(9, events.channel(0));
+        assertEquals(36, events.noteNumber(0));
+        assertEquals(110, events.velocity(0));
+        assertEquals(240, events.durationTicks(0));
+
+        assertEquals(TrackEvents.KIND_CONTROL_CHANGE, events.kind(1));
+        assertEquals(64, events.controller(1));
+        assertEquals(127, events.value(1));
+
+        assertEquals(-8192, events.pitchBend(2));
+        assertEquals(8191, events.pitchBend(3));
+
+        assertEquals(TrackEvents.KIND_META, events.kind(4));
+        assertEquals("marker: verse", events.text(4).toString());
+    }
+
+    @Test
+    void testDetachTextCopiesLazyText() {
+        StringBuilder source = new StringBuilder("lyric: la");
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 60, 100, 480);
+        events.addMeta(0, source);
+        events.addMeta(480, "marker: verse");
+
+        events.detachText();
+        source.setLength(0);
+
+        assertInstanceOf(String.class, events.text(1));
+        assertEquals("lyric: la", events.text(1));
+        assertEquals("marker: verse", events.text(2));
+        assertNull(events.text(0));
+    }
+
+    @Test
+    void testSecondsAreComputedLazily() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(480, 0, 60, 100, 960);
+        assertFalse(events.hasSeconds());
+        assertThrows(IllegalStateException.class, () -> events.seconds(0));
+
+        events.setTempoMap(TempoMap.of(List.of(new TempoEntry(0, 500000, 120.0)), DIVISION));
+        assertTrue(events.hasSeconds());
+        assertEquals(0.5, events.seconds(0), 1e-9);
+        assertEquals(1.0, events.durationSeconds(0), 1e-9);
+    }
+
+    @Test
+    void testRoundTripThroughEventOutputs() throws Exception {
+        TrackEvents events = new TrackEvents();
+        for (int i = 0; i < 200; i++) {
+            events.addNote(i * 120L, i % 16, 21 + i % 88, 1 + i % 127, 60 + i);
+            if (i % 10 == 0) {
+                events.addControlChange(i * 120L, 0, 7, i % 128);
+                events.addPitchBend(i * 120L, 0, i * 40 - 4000);
+                events.addMeta(i * 120L, "lyric: " + i);
+            }
+        }
+        events.trim();
+        events.setTempoMap(TempoMap.of(List.of(
+            new TempoEntry(0, 500000, 120.0),
+            new TempoEntry(4800, 400000, 150.0)
+        ), DIVISION));
+
+        List<EventOutput> materialized = events.toEventOutputs();
+        TrackEvents rebuilt = TrackEvents.from(materialized);
+
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(materialized),
+            mapper.writeValueAsString(rebuilt.toEventOutputs()));
+        assertEquals(events.noteCount(), rebuilt.noteCount());
+    }
+
+    @Test
+    void testTrackOutputMaterializesOnDemand() {
+        TrackEvents events = new TrackEvents();
+        events.addNote(0, 0, 60, 100, 480);
+
+        TrackOutput track = new TrackOutput(0);
+        track.setTrackEvents(events);
+        assertSame(events, track.getTrackEvents());
+        NoteIntervalIndex index = track.getNoteIndex();
+
+        List<EventOutput> list = track.getEvents();
+        assertEquals(1, list.size());
+        assertEquals("C4", list.get(0).getNoteName());
+        assertNull(list.get(0).getTimeSeconds());
+        assertSame(list, track.getEvents());
+
+        // Materializing the list leaves the view and its index in place for other readers
+        assertSame(events, track.getTrackEvents());
+        assertSame(index, track.getNoteIndex());
+        assertEquals(1, track.eventCount());
+    }
+
+    @Test
+    void testEventCountOfListBackedTrack() {
+        TrackOutput track = new TrackOutput(0);
+        track.setEvents(new ArrayList<>(List.of(new EventOutput(), new EventOutput())));
+        assertEquals(2, track.eventCount());
+    }
+}
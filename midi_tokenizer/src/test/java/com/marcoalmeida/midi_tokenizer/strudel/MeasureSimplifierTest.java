@@ -0,0 +1,148 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.NoteIntervalIndex;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MeasureSimplifierTest {
+
+    private static final List<MeterSegment> TWO_MEASURES = List.of(new MeterSegment(0, 4, 4, 2));
+
+    @Test
+    void testFit_WithinBudgetMatchesRhythmConverter() {
+        TrackEvents events = TrackEvents.from(List.of(
+            note(60, 960, 1920),    // C4 held across the bar line
+            note(64, 960, 240),
+            note(62, 1900, 500)));
+        List<MeterSegment> mixed = List.of(new MeterSegment(0, 4, 4, 1), new MeterSegment(1920, 5, 8, 1));
+
+        for (boolean polyphonic : new boolean[] {true, false}) {
+            String single = RhythmConverter.toQuantizedTickPattern(events, 480, 4, 4, 16, polyphonic, 2);
+            String segmented = RhythmConverter.toSegmentedTickPattern(events, 480, mixed, 16, polyphonic);
+
+            // Sizes are counted as written, with a line break before each measure instead of a space between
+            MeasureSimplifier.Result fitted = fit(events, TWO_MEASURES, polyphonic, OutputBudget.Unit.BYTES, 1000);
+            assertEquals(single, fitted.patterns().get(0));
+            assertEquals(single.length() + 1, fitted.report().before());
+            assertTrue(fitted.report().simplified().isEmpty());
+
+            fitted = fit(events, mixed, polyphonic, OutputBudget.Unit.BYTES, 1000);
+            assertEquals(segmented, fitted.patterns().get(0));
+            assertEquals(segmented.length() + 1, fitted.report().after());
+        }
+    }
+
+    @Test
+    void testFit_CoarsensMeasureThatSavesMost() {
+        // Sixteen repeated sixteenths, then a whole note
+        List<EventOutput> notes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            notes.add(note(60, i * 120L, 120));
+        }
+        notes.add(note(60, 1920, 1920));
+
+        // "<\n[c4 c4 ... c4]\n[c4@16 ~@15]>" is 65 bytes
+        MeasureSimplifier.Result fitted = fit(TrackEvents.from(notes), TWO_MEASURES, true,
+            OutputBudget.Unit.BYTES, 64);
+
+        // Repeated notes in one eighth merge; the whole note would only save two bytes and is kept
+        assertEquals("<[c4 c4 c4 c4 c4 c4 c4 c4] [c4@16 ~@15]>", fitted.patterns().get(0));
+        assertEquals(List.of(new OutputBudget.SimplifiedMeasure(3, 1, 8)), fitted.report().simplified());
+        assertEquals(65, fitted.report().before());
+        assertEquals(41, fitted.report().after());
+        assertEquals("Simplified 1 of 2 measures to fit 64 bytes (65 -> 41 bytes): track 3 measure 1 (8 slices)",
+            fitted.report().summary());
+    }
+
+    @Test
+    void testFit_GraceNoteMergesIntoMainNote() {
+        // A sixteenth grace note before a held C4
+        TrackEvents events = TrackEvents.from(List.of(
+            note(62, 0, 120),
+            note(60, 120, 1800)));
+
+        // "[d4 c4@15]" has two tokens; on eighths it still has two ("[d4 c4@7]"), so quarters are used
+        MeasureSimplifier.Result fitted = fit(events, List.of(new MeterSegment(0, 4, 4, 1)), false,
+            OutputBudget.Unit.TOKENS, 1);
+
+        assertEquals("<[c4@4]>", fitted.patterns().get(0));
+        assertEquals(2, fitted.report().before());
+        assertEquals(1, fitted.report().after());
+        assertTrue(fitted.report().fits());
+    }
+
+    @Test
+    void testFit_UnreachableBudgetUsesCoarsestGrids() {
+        List<EventOutput> notes = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            notes.add(note(60 + i % 2 * 4, i * 120L, 120));
+        }
+        notes.add(note(67, 3840, 1920));
+
+        MeasureSimplifier.Result fitted = fit(TrackEvents.from(notes), List.of(new MeterSegment(0, 4, 4, 3)), true,
+            OutputBudget.Unit.BYTES, 1);
+
+        // One chord per measure; the empty measure is left as it is
+        assertEquals("<[[c4,e4]] [~@16] [g4]>", fitted.patterns().get(0));
+        assertFalse(fitted.report().fits());
+        assertEquals(List.of(new OutputBudget.SimplifiedMeasure(3, 1, 1), new OutputBudget.SimplifiedMeasure(3, 3, 1)),
+            fitted.report().simplified());
+        assertTrue(fitted.report().summary().startsWith("Could not fit 1 bytes even on the coarsest grids"));
+        assertTrue(fitted.report().summary().endsWith("track 3 measures 1 (1 slice), 3 (1 slice)"));
+    }
+
+    @Test
+    void testWindow_NotesHeldIntoFirstMeasure() {
+        TrackEvents events = TrackEvents.from(List.of(
+            note(60, 960, 1920),    // C4 held across the bar line
+            note(64, 960, 240),
+            note(62, 1900, 500)));
+        NoteIntervalIndex index = NoteIntervalIndex.of(events);
+
+        // Measure 2 alone: C4 starts on its first slice with the eight slices left of it
+        assertEquals("<[[c4@8,d4@4] ~@15]>",
+            MeasureGrid.window(index, 480, TWO_MEASURES, 16, true, 1, 1).render());
+        assertEquals("<[c4@8 ~@8]>", MeasureGrid.window(index, 480, TWO_MEASURES, 16, false, 1, 1).render());
+        assertEquals(MeasureGrid.of(events, 480, TWO_MEASURES, 16, true).render(),
+            MeasureGrid.window(index, 480, TWO_MEASURES, 16, true, 0, 2).render());
+
+        // Simplified measures keep their number in the file
+        MeasureSimplifier.Result fitted = MeasureSimplifier.fit(
+            List.of(MeasureGrid.window(index, 480, TWO_MEASURES, 16, true, 1, 1)), new int[] {3},
+            new OutputBudget(OutputBudget.Unit.TOKENS, 2));
+        assertEquals("<[[c4,d4]]>", fitted.patterns().get(0));
+        assertEquals(List.of(new OutputBudget.SimplifiedMeasure(3, 2, 1)), fitted.report().simplified());
+        assertEquals(1, fitted.report().totalMeasures());
+    }
+
+    @Test
+    void testOutputBudget_Of() {
+        assertNull(OutputBudget.of(null, null));
+        assertEquals(new OutputBudget(OutputBudget.Unit.BYTES, 5000), OutputBudget.of(5000, null));
+        assertEquals(new OutputBudget(OutputBudget.Unit.TOKENS, 800), OutputBudget.of(null, 800));
+        assertThrows(IllegalArgumentException.class, () -> OutputBudget.of(5000, 800));
+        assertThrows(IllegalArgumentException.class, () -> OutputBudget.of(0, null));
+    }
+
+    private static MeasureSimplifier.Result fit(TrackEvents events, List<MeterSegment> segments, boolean polyphonic,
+                                                OutputBudget.Unit unit, long limit) {
+        return MeasureSimplifier.fit(List.of(MeasureGrid.of(events, 480, segments, 16, polyphonic)),
+            new int[] {3}, new OutputBudget(unit, limit));
+    }
+
+    private static EventOutput note(int noteNumber, long tick, long durationTicks) {
+        EventOutput event = new EventOutput();
+        event.setType("note");
+        event.setNoteNumber(noteNumber);
+        event.setVelocity(64);
+        event.setTick(tick);
+        event.setDurationTicks(durationTicks);
+        return event;
+    }
+}
@@ -31,4 +31,11 @@ class NoteConverterTest {
         String result = NoteConverter.toStrudelNoteName(61); // C#4
         assertTrue(result.equals(result.toLowerCase()));
     }
+
+    @Test
+    void testToStrudelNoteName_SharedInstances() {
+        // Names come from a precomputed table rather than being built per call
+        assertSame(NoteConverter.toStrudelNoteName(61), NoteConverter.toStrudelNoteName(61));
+        assertThrows(IllegalArgumentException.class, () -> NoteConverter.toStrudelNoteName(128));
+    }
 }
@@ -0,0 +1,119 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantizationSearchTest {
+
+    private static final List<MeterSegment> FOUR_FOUR = List.of(new MeterSegment(0, 4, 4, 1));
+
+    @Test
+    void testChoose_StraightSixteenths() {
+        assertEquals(16, choose(track(120, 0, 1.0), FOUR_FOUR));
+    }
+
+    @Test
+    void testChoose_StaccatoSixteenthsKeepSixteenthGrid() {
+        // Note ends on thirty-seconds count half and do not justify a finer grid
+        assertEquals(16, choose(track(120, 0, 0.5), FOUR_FOUR));
+    }
+
+    @Test
+    void testChoose_TripletEighths() {
+        assertEquals(12, choose(track(160, 0, 1.0), FOUR_FOUR));
+    }
+
+    @Test
+    void testChoose_QuarterNotesUseCoarsestExactGrid() {
+        // 6 would put slices a third of a beat apart; 8, 16, ... all fit exactly
+        assertEquals(8, choose(track(480, 0, 1.0), FOUR_FOUR));
+    }
+
+    @Test
+    void testChoose_PerformanceJitterDoesNotRefineGrid() {
+        // Sixteenths played up to 20 ticks (a 96th) early or late
+        assertEquals(16, choose(track(120, 20, 0.9), FOUR_FOUR));
+    }
+
+    @Test
+    void testScore_SkipsGridsWithPartialSlicesPerMeasure() {
+        // 6/8 at quantize 6 would be 4.5 slices per measure
+        List<MeterSegment> sixEight = List.of(new MeterSegment(0, 6, 8, 1));
+        List<QuantizationSearch.Score> scores = QuantizationSearch.score(
+            QuantizationSearch.Ticks.of(List.of(track(240, 0, 1.0))), 480, sixEight);
+
+        assertEquals(List.of(8, 12, 16, 24, 32, 48),
+            scores.stream().map(QuantizationSearch.Score::quantization).toList());
+    }
+
+    @Test
+    void testScore_ErrorAndPositions() {
+        // Onsets at 0 and 160 ticks, ends at 160 and 320: on a sixteenth grid (120 ticks),
+        // 160 snaps to 120 (1/12 quarter off) and 320 to 360 (1/12 quarter off)
+        QuantizationSearch.Ticks ticks = QuantizationSearch.Ticks.of(List.of(TrackEvents.from(List.of(
+            note(60, 0, 160), note(62, 160, 160)))));
+
+        QuantizationSearch.Score score = QuantizationSearch.score(ticks, 480, 16);
+
+        // Onset 160 counts fully, ends at 160 and 320 count half
+        assertEquals((1 + 0.5 + 0.5) / 144.0, score.snapError(), 1e-12);
+        assertEquals(3, score.positions());
+        assertEquals(0, QuantizationSearch.score(ticks, 480, 12).snapError(), 1e-12);
+    }
+
+    @Test
+    void testChoose_MeasuresEachSegmentFromItsStart() {
+        // 3/4 starts a triplet eighth after a bar line; its sixteenths are off every grid anchored at tick 0
+        List<EventOutput> events = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            events.add(note(60, i * 120L, 120));
+        }
+        for (int i = 0; i < 2000; i++) {
+            events.add(note(60, 2080 + i * 120L, 120));
+        }
+        List<MeterSegment> segments = List.of(new MeterSegment(0, 4, 4, 2), new MeterSegment(2080, 3, 4, 667));
+
+        assertEquals(16, choose(TrackEvents.from(events), segments));
+        assertNotEquals(16, choose(TrackEvents.from(events), FOUR_FOUR));
+    }
+
+    @Test
+    void testChoose_RequiresSegments() {
+        assertThrows(IllegalArgumentException.class, () -> choose(track(120, 0, 1.0), List.of()));
+    }
+
+    private static int choose(TrackEvents events, List<MeterSegment> segments) {
+        return QuantizationSearch.choose(QuantizationSearch.Ticks.of(List.of(events)), 480, segments);
+    }
+
+    /**
+     * 2000 notes {@code step} ticks apart, held for {@code legato} of the step, with onsets
+     * moved by up to {@code jitter} ticks either way.
+     */
+    private static TrackEvents track(long step, int jitter, double legato) {
+        Random random = new Random(7);
+        List<EventOutput> events = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long offset = jitter > 0 ? random.nextInt(2 * jitter + 1) - jitter : 0;
+            events.add(note(60 + random.nextInt(12), Math.max(0, i * step + offset), (long) (step * legato)));
+        }
+        return TrackEvents.from(events);
+    }
+
+    private static EventOutput note(int noteNumber, long tick, long durationTicks) {
+        EventOutput event = new EventOutput();
+        event.setType("note");
+        event.setNoteNumber(noteNumber);
+        event.setVelocity(64);
+        event.setTick(tick);
+        event.setDurationTicks(durationTicks);
+        return event;
+    }
+}
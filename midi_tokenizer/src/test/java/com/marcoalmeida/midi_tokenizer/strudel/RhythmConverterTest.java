@@ -1,6 +1,7 @@
 package com.marcoalmeida.midi_tokenizer.strudel;
 
 import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
@@ -181,6 +182,120 @@ class RhythmConverterTest {
         assertTrue(pattern.contains("g4@6"));
     }
 
+    @Test
+    void testToQuantizedCyclePattern_PolyChordOrderAndTruncation() {
+        // Chord members keep event order; onsets past the last measure are dropped
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(67, 960, 480, 1.0, 0.5),    // G4 at beat 3
+            createNoteEvent(60, 0, 480, 0.0, 0.5),      // C4 at beat 1
+            createNoteEvent(64, 960, 480, 1.0, 0.5),    // E4 at beat 3
+            createNoteEvent(72, 1920, 480, 2.0, 0.5)    // Measure 2, not rendered
+        );
+
+        String pattern = RhythmConverter.toQuantizedCyclePattern(events, 480, 4, 4, 4, 120, true, 1);
+
+        assertEquals("<[c4 ~ [g4,e4] ~]>", pattern);
+    }
+
+    @Test
+    void testToQuantizedCyclePattern_NonPolyConflictUsesOccupantDuration() {
+        // The second E4 holds beat 3; the shorter C4 must not displace it just because
+        // an earlier, shorter E4 exists elsewhere in the track
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(64, 0, 384, 0.0, 0.4),      // E4, short
+            createNoteEvent(64, 960, 960, 1.0, 1.0),    // E4, half note
+            createNoteEvent(60, 960, 480, 1.0, 0.5)     // C4, quarter note
+        );
+
+        String pattern = RhythmConverter.toQuantizedCyclePattern(events, 480, 4, 4, 4, 120, false, 1);
+
+        assertEquals("<[e4 ~ e4@2]>", pattern);
+    }
+
+    @Test
+    void testToQuantizedCyclePattern_StrayNoteFarOut() {
+        // One note in the first measure and one in measure 10,000; everything between is rest
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(60, 0, 960, 0.0, 1.0),
+            createNoteEvent(62, 19_199_040, 480, 19999.0, 0.5)
+        );
+
+        String poly = RhythmConverter.toQuantizedCyclePattern(events, 480, 4, 4, 16, 120, true, 10_000);
+        assertTrue(poly.startsWith("<[c4@8 ~@15] [~@16] "));
+        assertTrue(poly.endsWith(" [~@16] [~@8 d4@4 ~@7]>"));
+        assertEquals(10_000, poly.chars().filter(ch -> ch == '[').count());
+
+        String mono = RhythmConverter.toQuantizedCyclePattern(events, 480, 4, 4, 16, 120, false, 10_000);
+        assertTrue(mono.startsWith("<[c4@8 ~@8] [~@16] "));
+        assertTrue(mono.endsWith(" [~@16] [~@8 d4@4 ~@4]>"));
+        assertEquals(10_000, mono.chars().filter(ch -> ch == '[').count());
+    }
+
+    @Test
+    void testToQuantizedTickPattern_IgnoresSeconds() {
+        // Seconds as if the tempo doubled halfway; tick placement is unaffected
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(60, 0, 480, 0.0, 0.5),      // C4 at beat 1
+            createNoteEvent(62, 960, 480, 1.0, 0.5),    // D4 at beat 3
+            createNoteEvent(64, 1920, 960, 1.5, 0.5),   // E4 half note in measure 2
+            createNoteEvent(65, 2880, 240, 2.0, 0.125)  // F4 eighth note at beat 3
+        );
+
+        String poly = RhythmConverter.toQuantizedTickPattern(events, 480, 4, 4, 8, true, 2);
+        assertEquals("<[c4@2 ~@3 d4@2 ~@3] [e4@4 ~@3 f4 ~@3]>", poly);
+
+        String mono = RhythmConverter.toQuantizedTickPattern(events, 480, 4, 4, 8, false, 2);
+        assertEquals("<[c4@2 ~@2 d4@2 ~@2] [e4@4 f4 ~@3]>", mono);
+    }
+
+    @Test
+    void testToQuantizedTickPattern_UnevenSliceWidth() {
+        // 100 ticks per quarter at quantize 6: slices are 66.67 ticks, rounded without drift
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(60, 0, 200, 0.0, 1.0),      // 3 slices
+            createNoteEvent(62, 200, 100, 1.0, 0.5),    // 1.5 slices, holds half of the second
+            createNoteEvent(64, 40_000, 100, 200.0, 0.5)
+        );
+
+        String pattern = RhythmConverter.toQuantizedTickPattern(events, 100, 3, 4, 6, false, 151);
+
+        assertTrue(pattern.startsWith("<[c4@3 d4] [~@4] "));
+        assertTrue(pattern.endsWith(" [~@4] [e4 ~@3]>"));
+        assertEquals(150, RhythmConverter.tickToSlice(40_000, 100, 6) / 4);
+    }
+
+    @Test
+    void testToSegmentedTickPattern_MeterChange() {
+        // One measure of 4/4, then 5/8 from tick 1920
+        List<EventOutput> events = Arrays.asList(
+            createNoteEvent(60, 960, 960, 0.0, 0.0),    // C4 up to the bar line
+            createNoteEvent(62, 1900, 500, 0.0, 0.0)    // D4 just early, rounds onto the 5/8 downbeat
+        );
+        List<MeterSegment> segments = List.of(
+            new MeterSegment(0, 4, 4, 1),
+            new MeterSegment(1920, 5, 8, 1)
+        );
+
+        String pattern = RhythmConverter.toSegmentedTickPattern(TrackEvents.from(events), 480, segments, 8, false);
+
+        // Measures are weighted by their length in quarters
+        assertEquals("<[~@4 c4@4]@4 [d4@2 ~@3]@2.5>", pattern);
+    }
+
+    @Test
+    void testToSegmentedTickPattern_NoteHeldAcrossMeterChange() {
+        // C4 held from the middle of a 4/4 measure into the 5/8 measure after it
+        List<EventOutput> events = List.of(createNoteEvent(60, 960, 1440, 0.0, 0.0));
+        List<MeterSegment> segments = List.of(
+            new MeterSegment(0, 4, 4, 1),
+            new MeterSegment(1920, 5, 8, 1)
+        );
+
+        // Non-polyphonic: the tail continues in the next segment, as across a bar line
+        assertEquals("<[~@4 c4@4]@4 [c4@2 ~@3]@2.5>",
+            RhythmConverter.toSegmentedTickPattern(TrackEvents.from(events), 480, segments, 8, false));
+    }
+
     private EventOutput createNoteEvent(int noteNumber, long tick, long durationTicks, 
                                        double timeSeconds, double durationSeconds) {
         EventOutput event = new EventOutput();
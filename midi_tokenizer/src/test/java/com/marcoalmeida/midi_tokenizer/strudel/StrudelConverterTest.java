@@ -9,8 +9,10 @@ import org.junit.jupiter.api.io.TempDir;
 import javax.sound.midi.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -221,6 +223,178 @@ class StrudelConverterTest {
         assertTrue(result.contains("sound(\"gm_flute\")"), "Missing flute (program 73)");
     }
 
+    @Test
+    void testConvert_JsonInputMatchesMidi() throws Exception {
+        File midiFile = createMultiTrackMidiFile("multitrack.mid");
+        ConversionOptions options = new ConversionOptions(null, null, null, true);
+        String fromMidi = withoutHeaderVariance(converter.convert(midiFile.getAbsolutePath(), options));
+
+        // Seconds are taken from the JSON when present and recomputed from the tempo map otherwise
+        for (boolean includeTimeSeconds : new boolean[]{true, false}) {
+            File jsonFile = tempDir.resolve("multitrack.json").toFile();
+            Files.writeString(jsonFile.toPath(),
+                midiParser.parseToJson(midiFile, includeTimeSeconds, true));
+
+            String fromJson = withoutHeaderVariance(converter.convert(jsonFile.getAbsolutePath(), options));
+            assertEquals(fromMidi, fromJson);
+        }
+    }
+
+    @Test
+    void testConvert_MixedMeter() throws Exception {
+        // One measure of 4/4, then 3/4
+        File midiFile = createMixedMeterMidiFile("mixed.mid");
+
+        String single = converter.convert(midiFile.getAbsolutePath(), ConversionOptions.defaults());
+        assertTrue(single.contains("Time Signature: 4/4, 3/4 from measure 2"), single);
+        assertTrue(single.contains("setcpm(120/1)"), single);
+        // Polyphonic rests run from each onset to the next
+        assertTrue(single.contains("note(`<\n[c4@4 ~@15]@4\n[e4@4 ~@11]@3\n[g4@4 ~@11]@3>`)"), single);
+
+        String all = converter.convert(midiFile.getAbsolutePath(), new ConversionOptions(null, null, null, false));
+        assertTrue(all.contains("Time Signature: 4/4, 3/4 from measure 2"), all);
+        assertTrue(all.contains("let track0 = note(`<\n[c4@4 ~@12]@4\n[e4@4 ~@8]@3\n[g4@4 ~@8]@3>`)"), all);
+    }
+
+    @Test
+    void testConvert_MeasureRange() throws Exception {
+        // One measure of 4/4, then 3/4
+        File midiFile = createMixedMeterMidiFile("range.mid");
+        ConversionOptions options = ConversionOptions.defaults();
+
+        String excerpt = converter.convert(midiFile.getAbsolutePath(),
+            options.withMeasureRange(MeasureRange.of(2, 3)));
+        assertTrue(excerpt.contains("Time Signature: 3/4 (measures 2-3 of 3)"), excerpt);
+        assertTrue(excerpt.contains("setcpm(120/3)"), excerpt);
+        assertTrue(excerpt.contains("note(`<\n[e4@4 ~@11]\n[g4@4 ~@11]>`)"), excerpt);
+
+        String all = converter.convert(midiFile.getAbsolutePath(),
+            new ConversionOptions(null, null, null, false).withMeasureRange(MeasureRange.of(null, 2)));
+        assertTrue(all.contains("Time Signature: 4/4, 3/4 from measure 2 (measures 1-2 of 3)"), all);
+        assertTrue(all.contains("let track0 = note(`<\n[c4@4 ~@12]@4\n[e4@4 ~@8]@3>`)"), all);
+
+        String last = converter.convert(midiFile.getAbsolutePath(), options.withMeasureRange(MeasureRange.of(3, 10)));
+        assertTrue(last.contains("Time Signature: 3/4 (measure 3 of 3)"), last);
+
+        assertThrows(IllegalArgumentException.class, () -> converter.convert(midiFile.getAbsolutePath(),
+            options.withMeasureRange(MeasureRange.of(4, null))));
+        assertNull(MeasureRange.of(null, null));
+        assertThrows(IllegalArgumentException.class, () -> MeasureRange.of(3, 2));
+        assertThrows(IllegalArgumentException.class, () -> MeasureRange.of(0, 2));
+    }
+
+    @Test
+    void testConvert_NoteHeldAcrossMeterChange() throws Exception {
+        // 4/4 for two measures, then 3/4; E2 held for five beats from beat 4 of measure 2
+        File file = tempDir.resolve("held.mid").toFile();
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track track = sequence.createTrack();
+        addTempoAndTimeSignature(track);
+        MetaMessage threeFour = new MetaMessage();
+        threeFour.setMessage(0x58, new byte[]{3, 2, 24, 8}, 4);
+        track.add(new MidiEvent(threeFour, 3840));
+        addNote(track, 0, 48, 0, 480);
+        addNote(track, 0, 40, 3360, 5760);
+        addNote(track, 0, 43, 6240, 6720);
+        MidiSystem.write(sequence, 1, file);
+        ConversionOptions options = new ConversionOptions(null, null, null, false);
+
+        // Held through the 3/4 measure and into the next, as across a bar line
+        String all = converter.convert(file.getAbsolutePath(), options);
+        assertTrue(all.contains("note(`<\n[c3@4 ~@12]@4\n[~@12 e2@4]@4\n[e2@12]@3\n[e2@4 ~@4 g2@4]@3>`)"), all);
+
+        // An excerpt renders the measure as the whole file does
+        String excerpt = converter.convert(file.getAbsolutePath(), options.withMeasureRange(MeasureRange.of(3, 3)));
+        assertTrue(excerpt.contains("note(`<\n[e2@12]>`)"), excerpt);
+    }
+
+    @Test
+    void testConvert_AutoQuantize() throws Exception {
+        // Track 0 plays triplet eighths, track 1 sixteenths
+        File midiFile = createTripletAndSixteenthsMidiFile("auto.mid");
+
+        String single = converter.convert(midiFile.getAbsolutePath(), ConversionOptions.of(null, 0, "auto", true, false));
+        assertTrue(single.contains("Quantization: 12 (auto)"), single);
+
+        // For the file as a whole, snapping a dozen triplets costs less than the extra
+        // positions of a grid that fits both
+        String global = converter.convert(midiFile.getAbsolutePath(), ConversionOptions.of(null, null, "auto", true, false));
+        assertTrue(global.contains("Quantization: 16 (auto)"), global);
+
+        String perTrack = converter.convert(midiFile.getAbsolutePath(),
+            ConversionOptions.of(null, null, "auto-track", true, false));
+        assertTrue(perTrack.contains("Quantization: auto per track (track 0: 12, track 1: 16)"), perTrack);
+        // One measure of triplets on a 12 grid and of sixteenths on a 16 grid
+        assertTrue(perTrack.contains("let track0 = note(`<\n[c4 d4 e4 c4 d4 e4 c4 d4 e4 c4 d4 e4]>`)"), perTrack);
+        assertTrue(perTrack.contains("let track1 = note(`<\n[c3 d3 e3 f3 c3 d3 e3 f3 c3 d3 e3 f3 c3 d3 e3 f3]>`)"), perTrack);
+    }
+
+    @Test
+    void testConvert_OutputBudget() throws Exception {
+        // Track 0 plays triplet eighths, track 1 sixteenths, both on the sixteenth grid
+        File midiFile = createTripletAndSixteenthsMidiFile("budget.mid");
+        ConversionOptions options = new ConversionOptions(null, null, null, false);
+        String unlimited = converter.convert(midiFile.getAbsolutePath(), options);
+
+        StrudelConverter.Conversion within = converter.convertWithReport(midiFile.getAbsolutePath(),
+            options.withOutputBudget(OutputBudget.of(1000, null)));
+        assertEquals(unlimited.replaceAll("Converted: .*", ""), within.content().replaceAll("Converted: .*", ""));
+        assertEquals("Patterns use 100 of 1000 bytes; no measures simplified", within.budgetReport().summary());
+
+        // Merging the sixteenths into eighths saves the most
+        StrudelConverter.Conversion fitted = converter.convertWithReport(midiFile.getAbsolutePath(),
+            options.withOutputBudget(OutputBudget.of(80, null)));
+        assertTrue(fitted.content().contains("let track0 = note(`<\n[c4 d4@2 e4 c4 d4@2 e4 c4 d4@2 e4 c4 d4@2 e4]>`)"),
+            fitted.content());
+        assertTrue(fitted.content().contains("let track1 = note(`<\n[c3 e3 c3 e3 c3 e3 c3 e3]>`)"), fitted.content());
+        assertEquals("Simplified 1 of 2 measures to fit 80 bytes (100 -> 76 bytes): track 1 measure 1 (8 slices)",
+            fitted.budgetReport().summary());
+        assertNull(converter.convertWithReport(midiFile.getAbsolutePath(), options).budgetReport());
+    }
+
+    @Test
+    void testConvert_OutputBudgetMatchesWrittenPatterns() throws Exception {
+        ConversionOptions options = new ConversionOptions(null, null, null, true);
+        for (File midiFile : List.of(createMixedMeterMidiFile("sized.mid"),
+                                     createTripletAndSixteenthsMidiFile("sized2.mid"))) {
+            StrudelConverter.Conversion within = converter.convertWithReport(midiFile.getAbsolutePath(),
+                options.withOutputBudget(OutputBudget.of(1000, null)));
+            assertEquals(patternBytes(within.content()), within.budgetReport().after(), within.content());
+
+            StrudelConverter.Conversion fitted = converter.convertWithReport(midiFile.getAbsolutePath(),
+                options.withOutputBudget(OutputBudget.of(60, null)));
+            assertEquals(patternBytes(fitted.content()), fitted.budgetReport().after(), fitted.content());
+        }
+    }
+
+    @Test
+    void testConversionOptions_QuantizeArgument() {
+        assertEquals(8, ConversionOptions.of(null, null, "8", true, false).quantization());
+        assertFalse(ConversionOptions.of(null, null, null, true, false).isAutoQuantize());
+        assertEquals(ConversionOptions.AutoQuantize.GLOBAL,
+            ConversionOptions.of(null, null, "AUTO", true, false).autoQuantize());
+        assertTrue(ConversionOptions.of(null, null, "auto-track", true, true).isParallelParse());
+        assertTrue(ConversionOptions.of(null, null, "12", true, true).isParallelParse());
+        assertThrows(IllegalArgumentException.class, () -> ConversionOptions.of(null, null, "fine", true, false));
+        assertThrows(IllegalArgumentException.class, () -> ConversionOptions.of(null, null, "0", true, false));
+    }
+
+    /**
+     * Length of the text inside every {@code note(`...`)} of a converted file.
+     */
+    private static long patternBytes(String content) {
+        long bytes = 0;
+        for (int start = content.indexOf("note(`"); start >= 0; start = content.indexOf("note(`", start)) {
+            start += "note(`".length();
+            bytes += content.indexOf("`)", start) - start;
+        }
+        return bytes;
+    }
+
+    private static String withoutHeaderVariance(String pattern) {
+        return pattern.replaceAll("Converted: .*", "").replaceAll("multitrack\\.(mid|json)", "multitrack");
+    }
+
     /**
      * Creates a simple test MIDI file with the given notes.
      */
@@ -377,6 +551,53 @@ class StrudelConverterTest {
         return file;
     }
 
+    /**
+     * Creates a MIDI file that changes from 4/4 to 3/4 after one measure, with a quarter note
+     * on the first beat of each measure.
+     */
+    private File createMixedMeterMidiFile(String filename) throws Exception {
+        File file = tempDir.resolve(filename).toFile();
+
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track track = sequence.createTrack();
+        addTempoAndTimeSignature(track);
+        MetaMessage threeFour = new MetaMessage();
+        threeFour.setMessage(0x58, new byte[]{3, 2, 24, 8}, 4);
+        track.add(new MidiEvent(threeFour, 1920));
+        addTrackName(track, "Piano");
+        addProgramChange(track, 0, 0);
+        addNote(track, 0, 60, 0, 480);       // C4, measure 1 (4/4)
+        addNote(track, 0, 64, 1920, 2400);   // E4, measure 2 (3/4)
+        addNote(track, 0, 67, 3360, 3840);   // G4, measure 3 (3/4)
+
+        MidiSystem.write(sequence, 1, file);
+        return file;
+    }
+
+    /**
+     * Creates a MIDI file with one measure of legato triplet eighths on track 0 and of legato
+     * sixteenths on track 1.
+     */
+    private File createTripletAndSixteenthsMidiFile(String filename) throws Exception {
+        File file = tempDir.resolve(filename).toFile();
+
+        Sequence sequence = new Sequence(Sequence.PPQ, 480);
+        Track triplets = sequence.createTrack();
+        addTempoAndTimeSignature(triplets);
+        int[] tripletNotes = {60, 62, 64};
+        for (int i = 0; i < 12; i++) {
+            addNote(triplets, 0, tripletNotes[i % 3], i * 160L, (i + 1) * 160L);
+        }
+        Track sixteenths = sequence.createTrack();
+        int[] sixteenthNotes = {48, 50, 52, 53};
+        for (int i = 0; i < 16; i++) {
+            addNote(sixteenths, 1, sixteenthNotes[i % 4], i * 120L, (i + 1) * 120L);
+        }
+
+        MidiSystem.write(sequence, 1, file);
+        return file;
+    }
+
     /**
      * Creates a MIDI file with different instruments.
      */
@@ -0,0 +1,97 @@
+package com.marcoalmeida.midi_tokenizer.strudel;
+
+import com.marcoalmeida.midi_tokenizer.midi.MidiParser;
+import com.marcoalmeida.midi_tokenizer.model.EventOutput;
+import com.marcoalmeida.midi_tokenizer.model.MidiOutput;
+import com.marcoalmeida.midi_tokenizer.model.TrackEvents;
+import com.marcoalmeida.midi_tokenizer.model.TrackOutput;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrackPatternCacheTest {
+
+    private static final String SAMPLE = "samples/azul.mid";
+
+    private final MidiParser parser = new MidiParser();
+    private final ConversionOptions options = new ConversionOptions(null, null, null, true);
+
+    @Test
+    void testUnchangedFileReusesEveryTrack() throws Exception {
+        StrudelConverter converter = new StrudelConverter(parser);
+        TrackPatternCache cache = converter.getPatternCache();
+
+        String first = converter.convert(SAMPLE, options);
+        long tracks = cache.getMisses();
+        assertTrue(tracks > 1, "sample should have several non-empty tracks");
+        assertEquals(0, cache.getHits());
+
+        String second = converter.convert(SAMPLE, options);
+        assertEquals(tracks, cache.getHits());
+        assertEquals(tracks, cache.getMisses());
+        assertEquals(withoutTimestamp(first), withoutTimestamp(second));
+    }
+
+    @Test
+    void testEditedTrackIsTheOnlyOneReconverted() throws Exception {
+        StrudelConverter converter = new StrudelConverter(parser);
+        TrackPatternCache cache = converter.getPatternCache();
+        converter.convert(parser.parse(new File(SAMPLE), true, true), SAMPLE, options);
+        long tracks = cache.getMisses();
+
+        MidiOutput edited = parser.parse(new File(SAMPLE), true, true);
+        TrackOutput track = firstTrackWithNotes(edited);
+        List<EventOutput> events = track.getTrackEvents().toEventOutputs();
+        EventOutput note = events.stream().filter(e -> "note".equals(e.getType())).findFirst().orElseThrow();
+        note.setNoteNumber(note.getNoteNumber() + 1);
+        track.setTrackEvents(TrackEvents.from(events));
+
+        String incremental = converter.convert(edited, SAMPLE, options);
+        assertEquals(tracks + 1, cache.getMisses());
+        assertEquals(tracks - 1, cache.getHits());
+
+        String fresh = new StrudelConverter(parser).convert(edited, SAMPLE, options);
+        assertEquals(withoutTimestamp(fresh), withoutTimestamp(incremental));
+    }
+
+    @Test
+    void testOptionsArePartOfTheFingerprint() throws Exception {
+        StrudelConverter converter = new StrudelConverter(parser);
+        TrackPatternCache cache = converter.getPatternCache();
+
+        String sixteenth = converter.convert(SAMPLE, new ConversionOptions(null, null, 16, true));
+        String eighth = converter.convert(SAMPLE, new ConversionOptions(null, null, 8, true));
+        assertEquals(0, cache.getHits());
+        assertNotEquals(withoutTimestamp(sixteenth), withoutTimestamp(eighth));
+    }
+
+    @Test
+    void testEvictsToStayWithinBound() {
+        TrackPatternCache cache = new TrackPatternCache(10);
+        TrackPatternCache.Fingerprint a = new TrackPatternCache.Hasher().add("a").build();
+        TrackPatternCache.Fingerprint b = new TrackPatternCache.Hasher().add("b").build();
+
+        cache.get(a, () -> "123456");
+        cache.get(b, () -> "abcdef");
+        assertEquals(1, cache.entryCount());
+
+        // Too large to cache at all
+        cache.get(a, () -> "0123456789x");
+        assertEquals(1, cache.entryCount());
+        assertNotEquals(a, b);
+    }
+
+    private static TrackOutput firstTrackWithNotes(MidiOutput output) {
+        return output.getTracks().stream()
+            .filter(t -> t.getTrackEvents().noteCount() > 0)
+            .findFirst()
+            .orElseThrow();
+    }
+
+    private static String withoutTimestamp(String pattern) {
+        return pattern.replaceAll("Converted: .*", "");
+    }
+}